@@ -14,6 +14,7 @@ import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
 import com.dantsu.escposprinter.exceptions.EscPosParserException;
 
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 
 public abstract class AsyncEscPosPrint extends AsyncTask<AsyncEscPosPrinter, Integer, AsyncEscPosPrint.PrinterStatus> {
     public final static int FINISH_SUCCESS = 1;
@@ -70,12 +71,7 @@ public abstract class AsyncEscPosPrint extends AsyncTask<AsyncEscPosPrinter, Int
 
             this.publishProgress(AsyncEscPosPrint.PROGRESS_PRINTING);
 
-            String[] textsToPrint = printerData.getTextsToPrint();
-
-            for(String textToPrint : textsToPrint) {
-                printer.printFormattedTextAndCut(textToPrint);
-                Thread.sleep(500);
-            }
+            printer.printBatch(Arrays.asList(printerData.getTextsToPrint()));
 
             this.publishProgress(AsyncEscPosPrint.PROGRESS_PRINTED);
 
@@ -91,8 +87,6 @@ public abstract class AsyncEscPosPrint extends AsyncTask<AsyncEscPosPrinter, Int
         } catch (EscPosBarcodeException e) {
             e.printStackTrace();
             return new PrinterStatus(printerData, AsyncEscPosPrint.FINISH_BARCODE_ERROR);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
         }
         return new PrinterStatus(printerData, AsyncEscPosPrint.FINISH_SUCCESS);
     }
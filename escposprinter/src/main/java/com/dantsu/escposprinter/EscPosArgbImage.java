@@ -0,0 +1,46 @@
+package com.dantsu.escposprinter;
+
+/**
+ * Image stored in a plain int array of ARGB pixels, one row after the other.
+ */
+public class EscPosArgbImage implements IEscPosArgbImage {
+
+    private int width;
+    private int height;
+    private int[] pixels;
+
+    /**
+     * Create new instance of EscPosArgbImage. The array is not copied.
+     *
+     * @param width  Image width in pixels
+     * @param height Image height in pixels
+     * @param pixels ARGB pixels (0xAARRGGBB), width * height items
+     */
+    public EscPosArgbImage(int width, int height, int[] pixels) {
+        if (width < 0 || height < 0 || pixels.length < width * height) {
+            throw new IllegalArgumentException("Invalid image : " + (width * height) + " pixels expected.");
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    @Override
+    public void getRow(int y, int[] row) {
+        System.arraycopy(this.pixels, y * this.width, row, 0, this.width);
+    }
+
+    public int[] getPixels() {
+        return this.pixels;
+    }
+}
@@ -0,0 +1,40 @@
+package com.dantsu.escposprinter;
+
+import android.graphics.Bitmap;
+
+/**
+ * Android Bitmap read with one Bitmap.getPixels call by row.
+ */
+public class EscPosBitmapImage implements IEscPosArgbImage {
+
+    private Bitmap bitmap;
+
+    /**
+     * Create new instance of EscPosBitmapImage.
+     *
+     * @param bitmap Bitmap to be read
+     */
+    public EscPosBitmapImage(Bitmap bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.bitmap.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return this.bitmap.getHeight();
+    }
+
+    @Override
+    public void getRow(int y, int[] row) {
+        int width = this.bitmap.getWidth();
+        this.bitmap.getPixels(row, 0, width, 0, y, width, 1);
+    }
+
+    public Bitmap getBitmap() {
+        return this.bitmap;
+    }
+}
@@ -1,8 +1,11 @@
 package com.dantsu.escposprinter;
 
+import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
+
 public class EscPosCharsetEncoding {
     private String charsetName;
     private byte[] charsetCommand;
+    private EscPosCharsetWidth charsetWidth;
 
     /**
      * Create new instance of EscPosCharsetEncoding.
@@ -22,4 +25,16 @@ public class EscPosCharsetEncoding {
     public String getName() {
         return this.charsetName;
     }
+
+    /**
+     * Get the characters width table of the charset encoding.
+     *
+     * @return EscPosCharsetWidth instance
+     */
+    public EscPosCharsetWidth getCharsetWidth() throws EscPosEncodingException {
+        if (this.charsetWidth == null) {
+            this.charsetWidth = EscPosCharsetWidth.forCharsetName(this.charsetName);
+        }
+        return this.charsetWidth;
+    }
 }
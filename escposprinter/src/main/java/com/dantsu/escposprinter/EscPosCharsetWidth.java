@@ -0,0 +1,189 @@
+package com.dantsu.escposprinter;
+
+import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
+
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class EscPosCharsetWidth {
+
+    public static final byte WIDTH_ZERO = 0;
+    public static final byte WIDTH_SINGLE = 1;
+    public static final byte WIDTH_DOUBLE = 2;
+
+    private static final HashMap<String, EscPosCharsetWidth> charsetWidths = new HashMap<String, EscPosCharsetWidth>();
+
+    /**
+     * Get the shared width table of a charset encoding.
+     *
+     * @param charsetName Name of charset encoding (Ex: windows-1252)
+     * @return EscPosCharsetWidth instance of the charset
+     */
+    public static EscPosCharsetWidth forCharsetName(String charsetName) throws EscPosEncodingException {
+        synchronized (EscPosCharsetWidth.charsetWidths) {
+            EscPosCharsetWidth charsetWidth = EscPosCharsetWidth.charsetWidths.get(charsetName);
+            if (charsetWidth == null) {
+                try {
+                    charsetWidth = new EscPosCharsetWidth(Charset.forName(charsetName));
+                } catch (IllegalArgumentException e) {
+                    throw new EscPosEncodingException(e.getMessage());
+                }
+                EscPosCharsetWidth.charsetWidths.put(charsetName, charsetWidth);
+            }
+            return charsetWidth;
+        }
+    }
+
+    /**
+     * Get the number of columns that a text size command use for one character.
+     *
+     * @param textSize Use EscPosPrinterCommands.TEXT_SIZE_... constants
+     * @return int
+     */
+    public static int getTextSizeWidthMultiplier(byte[] textSize) {
+        if (textSize == null || textSize.length < 3) {
+            return 1;
+        }
+        return ((textSize[2] >> 4) & 0x07) + 1;
+    }
+
+    /**
+     * Check if a code point is displayed on two columns (East Asian Wide and Fullwidth characters).
+     *
+     * @param codePoint Unicode code point
+     * @return true if the character is wide
+     */
+    public static boolean isWideCodePoint(int codePoint) {
+        return (codePoint >= 0x1100 && codePoint <= 0x115F) ||
+            (codePoint >= 0x2E80 && codePoint <= 0x303E) ||
+            (codePoint >= 0x3041 && codePoint <= 0x33FF) ||
+            (codePoint >= 0x3400 && codePoint <= 0x4DBF) ||
+            (codePoint >= 0x4E00 && codePoint <= 0x9FFF) ||
+            (codePoint >= 0xA000 && codePoint <= 0xA4CF) ||
+            (codePoint >= 0xAC00 && codePoint <= 0xD7A3) ||
+            (codePoint >= 0xF900 && codePoint <= 0xFAFF) ||
+            (codePoint >= 0xFE30 && codePoint <= 0xFE4F) ||
+            (codePoint >= 0xFF00 && codePoint <= 0xFF60) ||
+            (codePoint >= 0xFFE0 && codePoint <= 0xFFE6) ||
+            (codePoint >= 0x20000 && codePoint <= 0x3FFFD);
+    }
+
+    /**
+     * Check if a code point is printed over the previous character (combining marks and format characters).
+     *
+     * @param codePoint Unicode code point
+     * @return true if the character has no width
+     */
+    public static boolean isZeroWidthCodePoint(int codePoint) {
+        switch (Character.getType(codePoint)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.FORMAT:
+                return true;
+        }
+        return false;
+    }
+
+
+    private CharsetEncoder charsetEncoder;
+    private AtomicReferenceArray<byte[]> widthPages = new AtomicReferenceArray<byte[]>(256);
+
+    /**
+     * Create new instance of EscPosCharsetWidth.
+     *
+     * @param charset Charset used to send text to the printer
+     */
+    public EscPosCharsetWidth(Charset charset) {
+        this.charsetEncoder = charset.newEncoder();
+    }
+
+    /**
+     * Compute the width of a code point. Characters that cannot be encoded are replaced by one character.
+     */
+    private byte computeWidth(int codePoint) {
+        boolean canEncode = Character.isSupplementaryCodePoint(codePoint) ?
+            this.charsetEncoder.canEncode(new String(Character.toChars(codePoint))) :
+            this.charsetEncoder.canEncode((char) codePoint);
+
+        if (!canEncode) {
+            return EscPosCharsetWidth.WIDTH_SINGLE;
+        }
+        if (EscPosCharsetWidth.isZeroWidthCodePoint(codePoint)) {
+            return EscPosCharsetWidth.WIDTH_ZERO;
+        }
+        if (EscPosCharsetWidth.isWideCodePoint(codePoint)) {
+            return EscPosCharsetWidth.WIDTH_DOUBLE;
+        }
+        return EscPosCharsetWidth.WIDTH_SINGLE;
+    }
+
+    /**
+     * Build the width table of 256 characters of the Basic Multilingual Plane.
+     */
+    private synchronized byte[] loadWidthPage(int pageIndex) {
+        byte[] widthPage = this.widthPages.get(pageIndex);
+        if (widthPage != null) {
+            return widthPage;
+        }
+
+        widthPage = new byte[256];
+        int firstChar = pageIndex << 8;
+        for (int i = 0; i < 256; ++i) {
+            int c = firstChar + i;
+            widthPage[i] = Character.isSurrogate((char) c) ? EscPosCharsetWidth.WIDTH_SINGLE : this.computeWidth(c);
+        }
+        this.widthPages.set(pageIndex, widthPage);
+        return widthPage;
+    }
+
+    /**
+     * Get the number of columns used by a character.
+     *
+     * @param c Character to be measured
+     * @return int
+     */
+    public int getCharWidth(char c) {
+        byte[] widthPage = this.widthPages.get(c >> 8);
+        if (widthPage == null) {
+            widthPage = this.loadWidthPage(c >> 8);
+        }
+        return widthPage[c & 0xFF];
+    }
+
+    /**
+     * Get the number of columns used by a text.
+     *
+     * @param text Text to be measured
+     * @return int
+     */
+    public int getTextWidth(CharSequence text) {
+        return this.getTextWidth(text, 0, text.length());
+    }
+
+    /**
+     * Get the number of columns used by a part of a text.
+     *
+     * @param text  Text to be measured
+     * @param start Index of the first character
+     * @param end   Index after the last character
+     * @return int
+     */
+    public int getTextWidth(CharSequence text, int start, int end) {
+        int width = 0;
+        for (int i = start; i < end; ++i) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                width += this.computeSupplementaryWidth(Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                width += this.getCharWidth(c);
+            }
+        }
+        return width;
+    }
+
+    private synchronized int computeSupplementaryWidth(int codePoint) {
+        return this.computeWidth(codePoint);
+    }
+}
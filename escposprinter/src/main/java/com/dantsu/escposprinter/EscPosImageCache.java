@@ -0,0 +1,323 @@
+package com.dantsu.escposprinter;
+
+import com.dantsu.escposprinter.dither.DitherAlgorithm;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Images already converted to ESC/POS bytes, found by a key built from the pixels of the image, the printed size and
+ * the dithering algorithm. The same image is converted once, then printed from the cache.
+ * <p>
+ * Images are kept in memory, the least recently used are removed when the memory size is exceeded. If a directory is
+ * given, images are also written in it, so they remain available after the application restarts.
+ * <p>
+ * Register the cache with EscPosPrinter.useImageCache : EscPosPrinterSize.bitmapToBytes and
+ * PrinterTextParserImg.bitmapToHexadecimalString use it.
+ */
+public class EscPosImageCache {
+
+    private static final String FILE_EXTENSION = ".escpos";
+    private static final char[] HEXADECIMAL = "0123456789abcdef".toCharArray();
+
+    private final LinkedHashMap<String, byte[]> images = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    private final long maxMemorySize;
+    private long memorySize = 0;
+    private final File directory;
+    private final long maxDirectorySize;
+
+    /**
+     * Create new instance of EscPosImageCache that keep the images in memory only.
+     *
+     * @param maxMemorySize Maximum number of bytes of the images kept in memory
+     */
+    public EscPosImageCache(long maxMemorySize) {
+        this(maxMemorySize, null, 0);
+    }
+
+    /**
+     * Create new instance of EscPosImageCache that keep the images in memory and in a directory.
+     *
+     * @param maxMemorySize    Maximum number of bytes of the images kept in memory
+     * @param directory        Directory where the images are written (Ex: new File(context.getCacheDir(), "escpos")), null to keep the images in memory only
+     * @param maxDirectorySize Maximum number of bytes of the files written in the directory
+     */
+    public EscPosImageCache(long maxMemorySize, File directory, long maxDirectorySize) {
+        if (maxMemorySize < 0 || maxDirectorySize < 0) {
+            throw new IllegalArgumentException("Cache sizes must not be negative.");
+        }
+        this.maxMemorySize = maxMemorySize;
+        this.directory = directory;
+        this.maxDirectorySize = maxDirectorySize;
+    }
+
+    /**
+     * Build the key of a converted image.
+     *
+     * @param image           Image before it is resized
+     * @param width           Width of the printed image in dots
+     * @param height          Height of the printed image in dots
+     * @param ditherAlgorithm Algorithm used to convert the image
+     * @return The key of the image in the cache
+     */
+    public static String computeKey(IEscPosArgbImage image, int width, int height, DitherAlgorithm ditherAlgorithm) {
+        int imageWidth = image.getWidth(), imageHeight = image.getHeight();
+        int[] row = new int[imageWidth];
+        byte[] rowBytes = new byte[imageWidth * 4];
+        MessageDigest digest = EscPosImageCache.createDigest();
+
+        for (int y = 0; y < imageHeight; ++y) {
+            image.getRow(y, row);
+            for (int x = 0, i = 0; x < imageWidth; ++x) {
+                int pixel = row[x];
+                rowBytes[i++] = (byte) (pixel >>> 24);
+                rowBytes[i++] = (byte) (pixel >>> 16);
+                rowBytes[i++] = (byte) (pixel >>> 8);
+                rowBytes[i++] = (byte) pixel;
+            }
+            digest.update(rowBytes);
+        }
+
+        return EscPosImageCache.toHexadecimal(digest.digest()) + ":" + imageWidth + "x" + imageHeight + ":" +
+            width + "x" + height + ":" + ditherAlgorithm.getCacheKey();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHexadecimal(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; ++i) {
+            chars[i * 2] = EscPosImageCache.HEXADECIMAL[(bytes[i] >> 4) & 0x0F];
+            chars[i * 2 + 1] = EscPosImageCache.HEXADECIMAL[bytes[i] & 0x0F];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Get a converted image from the memory, or from the directory if it is not in memory anymore.
+     *
+     * @param key Key of the image (see computeKey)
+     * @return Bytes contain the image in ESC/POS command, null if the image is not in the cache. The array must not be modified.
+     */
+    public byte[] get(String key) {
+        synchronized (this.images) {
+            byte[] image = this.images.get(key);
+            if (image != null) {
+                return image;
+            }
+        }
+
+        if (this.directory == null) {
+            return null;
+        }
+
+        File file = this.getFile(key);
+        byte[] image = EscPosImageCache.readFile(file);
+        if (image == null) {
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        this.putInMemory(key, image);
+        return image;
+    }
+
+    /**
+     * Add a converted image to the cache.
+     *
+     * @param key   Key of the image (see computeKey)
+     * @param image Bytes contain the image in ESC/POS command. The array must not be modified after.
+     * @return Fluent interface
+     */
+    public EscPosImageCache put(String key, byte[] image) {
+        this.putInMemory(key, image);
+        if (this.directory != null && image.length <= this.maxDirectorySize) {
+            this.writeFile(this.getFile(key), image);
+        }
+        return this;
+    }
+
+    /**
+     * Remove all images from the memory and from the directory.
+     *
+     * @return Fluent interface
+     */
+    public EscPosImageCache clear() {
+        synchronized (this.images) {
+            this.images.clear();
+            this.memorySize = 0;
+        }
+        if (this.directory != null) {
+            synchronized (this.directory) {
+                for (File file : this.listFiles()) {
+                    file.delete();
+                }
+            }
+        }
+        return this;
+    }
+
+    private void putInMemory(String key, byte[] image) {
+        if (image.length > this.maxMemorySize) {
+            return;
+        }
+        synchronized (this.images) {
+            byte[] previousImage = this.images.put(key, image);
+            if (previousImage != null) {
+                this.memorySize -= previousImage.length;
+            }
+            this.memorySize += image.length;
+
+            Iterator<Map.Entry<String, byte[]>> iterator = this.images.entrySet().iterator();
+            while (this.memorySize > this.maxMemorySize && iterator.hasNext()) {
+                this.memorySize -= iterator.next().getValue().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    private File getFile(String key) {
+        byte[] keyBytes;
+        try {
+            keyBytes = key.getBytes("UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new File(this.directory, EscPosImageCache.toHexadecimal(EscPosImageCache.createDigest().digest(keyBytes)) + EscPosImageCache.FILE_EXTENSION);
+    }
+
+    private File[] listFiles() {
+        File[] files = this.directory.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        int nbrFiles = 0;
+        for (File file : files) {
+            if (file.getName().endsWith(EscPosImageCache.FILE_EXTENSION)) {
+                files[nbrFiles++] = file;
+            }
+        }
+        return Arrays.copyOf(files, nbrFiles);
+    }
+
+    /**
+     * Read a file written by writeFile, null if it does not exist or is not a complete "GS v 0" command.
+     */
+    private static byte[] readFile(File file) {
+        long length = file.length();
+        if (length < 8 || length > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        byte[] image = new byte[(int) length];
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            int offset = 0;
+            while (offset < image.length) {
+                int nbrBytesRead = inputStream.read(image, offset, image.length - offset);
+                if (nbrBytesRead == -1) {
+                    return null;
+                }
+                offset += nbrBytesRead;
+            }
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    // Ignored, the file is already read
+                }
+            }
+        }
+
+        int bytesByLine = (image[4] & 0xFF) + (image[5] & 0xFF) * 256,
+            height = (image[6] & 0xFF) + (image[7] & 0xFF) * 256;
+        if (image.length != 8 + bytesByLine * height) {
+            file.delete();
+            return null;
+        }
+        return image;
+    }
+
+    /**
+     * Write the image in a temporary file renamed once complete, so an interrupted write never leaves a truncated image,
+     * then remove the oldest files if the directory is too big. Errors are ignored : the image stays in memory.
+     */
+    private void writeFile(File file, byte[] image) {
+        synchronized (this.directory) {
+            if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+                return;
+            }
+
+            File temporaryFile = new File(this.directory, file.getName() + ".tmp");
+            OutputStream outputStream = null;
+            boolean isWritten = false;
+            try {
+                outputStream = new FileOutputStream(temporaryFile);
+                outputStream.write(image);
+                outputStream.close();
+                outputStream = null;
+                isWritten = temporaryFile.renameTo(file);
+            } catch (IOException e) {
+                isWritten = false;
+            } finally {
+                if (outputStream != null) {
+                    try {
+                        outputStream.close();
+                    } catch (IOException e) {
+                        // Ignored, the temporary file is deleted
+                    }
+                }
+                if (!isWritten) {
+                    temporaryFile.delete();
+                }
+            }
+
+            this.trimDirectory();
+        }
+    }
+
+    private void trimDirectory() {
+        File[] files = this.listFiles();
+        long directorySize = 0;
+        for (File file : files) {
+            directorySize += file.length();
+        }
+        if (directorySize <= this.maxDirectorySize) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                long lastModified1 = file1.lastModified(), lastModified2 = file2.lastModified();
+                return lastModified1 < lastModified2 ? -1 : (lastModified1 == lastModified2 ? 0 : 1);
+            }
+        });
+        for (int i = 0; i < files.length && directorySize > this.maxDirectorySize; ++i) {
+            long fileSize = files[i].length();
+            if (files[i].delete()) {
+                directorySize -= fileSize;
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.dantsu.escposprinter;
+
+import android.graphics.Bitmap;
+
+import com.dantsu.escposprinter.dither.DitherAlgorithm;
+
+import java.util.HashMap;
+
+/**
+ * Images converted once to ESC/POS bytes, or dithered while printed, and printed by name with the tag
+ * &lt;img ref='name'/&gt;.
+ */
+public class EscPosImageRegistry {
+
+    private EscPosPrinterSize printerSize;
+    private final HashMap<String, IEscPosRasterImage> images = new HashMap<String, IEscPosRasterImage>();
+
+    /**
+     * Create new instance of EscPosImageRegistry.
+     *
+     * @param printerSize A EscPosPrinterSize instance that will print the images.
+     */
+    public EscPosImageRegistry(EscPosPrinterSize printerSize) {
+        this.printerSize = printerSize;
+    }
+
+    /**
+     * Convert a Bitmap to a grayscale image and register it.
+     *
+     * @param name   Name used in the ref attribute of the img tag
+     * @param bitmap Bitmap instance to be converted
+     * @return Fluent interface
+     */
+    public EscPosImageRegistry registerImage(String name, Bitmap bitmap) {
+        return this.registerImage(name, bitmap, true);
+    }
+
+    /**
+     * Convert a Bitmap and register it.
+     *
+     * @param name     Name used in the ref attribute of the img tag
+     * @param bitmap   Bitmap instance to be converted
+     * @param gradient false : Black and white image, true : Grayscale image
+     * @return Fluent interface
+     */
+    public EscPosImageRegistry registerImage(String name, Bitmap bitmap, boolean gradient) {
+        return this.registerImage(name, this.printerSize.bitmapToBytes(bitmap, gradient));
+    }
+
+    /**
+     * Convert a Bitmap with a dithering algorithm and register it.
+     *
+     * @param name            Name used in the ref attribute of the img tag
+     * @param bitmap          Bitmap instance to be converted
+     * @param ditherAlgorithm Algorithm used to convert the colors to black and white dots (Ex: new DitherFloydSteinberg())
+     * @return Fluent interface
+     */
+    public EscPosImageRegistry registerImage(String name, Bitmap bitmap, DitherAlgorithm ditherAlgorithm) {
+        return this.registerImage(name, this.printerSize.bitmapToBytes(bitmap, ditherAlgorithm));
+    }
+
+    /**
+     * Register an image already converted to ESC/POS bytes. The array is not copied and must not be modified after.
+     *
+     * @param name  Name used in the ref attribute of the img tag
+     * @param image Bytes contain the image in ESC/POS command (Ex: result of EscPosPrinterSize.bitmapToBytes)
+     * @return Fluent interface
+     */
+    public EscPosImageRegistry registerImage(String name, byte[] image) {
+        return this.registerImage(name, new EscPosRasterImage(image));
+    }
+
+    /**
+     * Register an image read row by row while it is printed (Ex: result of EscPosPrinterSize.bitmapToRasterImage).
+     *
+     * @param name  Name used in the ref attribute of the img tag
+     * @param image Image to be printed, it must not be wider than the printer
+     * @return Fluent interface
+     */
+    public EscPosImageRegistry registerImage(String name, IEscPosRasterImage image) {
+        synchronized (this.images) {
+            this.images.put(name, image);
+        }
+        return this;
+    }
+
+    /**
+     * Remove an image from the registry.
+     *
+     * @param name Name of the image
+     * @return Fluent interface
+     */
+    public EscPosImageRegistry unregisterImage(String name) {
+        synchronized (this.images) {
+            this.images.remove(name);
+        }
+        return this;
+    }
+
+    /**
+     * Remove all images from the registry.
+     *
+     * @return Fluent interface
+     */
+    public EscPosImageRegistry clear() {
+        synchronized (this.images) {
+            this.images.clear();
+        }
+        return this;
+    }
+
+    /**
+     * Check if an image is registered with this name.
+     *
+     * @param name Name of the image
+     * @return boolean
+     */
+    public boolean hasImage(String name) {
+        synchronized (this.images) {
+            return this.images.containsKey(name);
+        }
+    }
+
+    /**
+     * Get a registered image.
+     *
+     * @param name Name of the image
+     * @return The image, null if no image is registered with this name
+     */
+    public IEscPosRasterImage getImage(String name) {
+        synchronized (this.images) {
+            return this.images.get(name);
+        }
+    }
+}
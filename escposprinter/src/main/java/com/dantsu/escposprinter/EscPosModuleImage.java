@@ -0,0 +1,152 @@
+package com.dantsu.escposprinter;
+
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+import java.util.Arrays;
+
+/**
+ * 2D code printed as a raster image from its matrix of modules (QR code, PDF417, DataMatrix, Aztec...). The rows of
+ * dots of each row of modules are built once, the first time the image is read, then copied for each row of the image.
+ * The image can be printed several times and by several threads.
+ */
+public class EscPosModuleImage implements IEscPosRasterImage {
+
+    private BitMatrix modules;
+    private int moduleWidth;
+    private int moduleHeight;
+    private int quietZone;
+    private int bytesByLine;
+    private volatile byte[] moduleRows = null;
+
+    /**
+     * Create new instance of EscPosModuleImage.
+     *
+     * @param modules      Modules of the 2D code, a set bit is a black module
+     * @param moduleWidth  Number of dots of the width of a module
+     * @param moduleHeight Number of dots of the height of a module
+     * @param quietZone    Number of white modules around the 2D code, the width of a module is used on all sides
+     */
+    public EscPosModuleImage(BitMatrix modules, int moduleWidth, int moduleHeight, int quietZone) {
+        this.modules = modules;
+        this.moduleWidth = Math.max(0, moduleWidth);
+        this.moduleHeight = Math.max(0, moduleHeight);
+        this.quietZone = Math.max(0, quietZone);
+        this.bytesByLine = (modules.getWidth() * this.moduleWidth + this.getQuietZoneDots() * 2 + 7) / 8;
+    }
+
+    /**
+     * Get the number of dots of the width of a module.
+     *
+     * @return int
+     */
+    public int getModuleWidth() {
+        return this.moduleWidth;
+    }
+
+    /**
+     * Get the number of dots of the height of a module.
+     *
+     * @return int
+     */
+    public int getModuleHeight() {
+        return this.moduleHeight;
+    }
+
+    /**
+     * Get the number of white modules around the 2D code.
+     *
+     * @return int
+     */
+    public int getQuietZone() {
+        return this.quietZone;
+    }
+
+    /**
+     * Get the number of dots of the quiet zone on each side of the 2D code.
+     *
+     * @return int
+     */
+    public int getQuietZoneDots() {
+        return this.quietZone * this.moduleWidth;
+    }
+
+    @Override
+    public int getBytesByLine() {
+        return this.bytesByLine;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.modules.getHeight() * this.moduleHeight + this.getQuietZoneDots() * 2;
+    }
+
+    @Override
+    public void readRows(int firstRow, int nbrRows, byte[] buffer, int offset) {
+        byte[] moduleRows = this.getModuleRows();
+        int nbrModuleRows = this.modules.getHeight(), quietZoneDots = this.getQuietZoneDots();
+
+        for (int row = firstRow; row < firstRow + nbrRows; ++row, offset += this.bytesByLine) {
+            int y = row < quietZoneDots ? -1 : (row - quietZoneDots) / this.moduleHeight;
+            if (y < 0 || y >= nbrModuleRows) {
+                Arrays.fill(buffer, offset, offset + this.bytesByLine, (byte) 0);
+            } else {
+                System.arraycopy(moduleRows, y * this.bytesByLine, buffer, offset, this.bytesByLine);
+            }
+        }
+    }
+
+    private byte[] getModuleRows() {
+        byte[] moduleRows = this.moduleRows;
+        if (moduleRows == null) {
+            // Concurrent readers may build the rows twice, both results are the same
+            moduleRows = this.buildModuleRows();
+            this.moduleRows = moduleRows;
+        }
+        return moduleRows;
+    }
+
+    /**
+     * Build the row of dots of each row of modules. Each run of black modules is written at once.
+     */
+    private byte[] buildModuleRows() {
+        int width = this.modules.getWidth(), height = this.modules.getHeight(), quietZoneDots = this.getQuietZoneDots();
+        byte[] moduleRows = new byte[height * this.bytesByLine];
+        BitArray rowModules = new BitArray(width);
+
+        for (int y = 0; y < height; ++y) {
+            rowModules = this.modules.getRow(y, rowModules);
+            int offset = y * this.bytesByLine, x = rowModules.getNextSet(0);
+
+            while (x < width) {
+                int runEnd = rowModules.getNextUnset(x);
+                EscPosModuleImage.fillDots(moduleRows, offset, quietZoneDots + x * this.moduleWidth, quietZoneDots + runEnd * this.moduleWidth);
+                x = rowModules.getNextSet(runEnd);
+            }
+        }
+        return moduleRows;
+    }
+
+    /**
+     * Set the bits of the dots from firstDot to endDot - 1 of a row.
+     */
+    private static void fillDots(byte[] row, int offset, int firstDot, int endDot) {
+        if (firstDot >= endDot) {
+            return;
+        }
+
+        int
+            firstByte = firstDot >> 3,
+            lastByte = (endDot - 1) >> 3,
+            firstMask = 0xFF >>> (firstDot & 7),
+            lastMask = (0xFF << (7 - ((endDot - 1) & 7))) & 0xFF;
+
+        if (firstByte == lastByte) {
+            row[offset + firstByte] |= (byte) (firstMask & lastMask);
+            return;
+        }
+        row[offset + firstByte] |= (byte) firstMask;
+        Arrays.fill(row, offset + firstByte + 1, offset + lastByte, (byte) 0xFF);
+        row[offset + lastByte] |= (byte) lastMask;
+    }
+}
@@ -11,9 +11,15 @@ import com.dantsu.escposprinter.textparser.IPrinterTextParserElement;
 import com.dantsu.escposprinter.textparser.PrinterTextParserLine;
 import com.dantsu.escposprinter.textparser.PrinterTextParserString;
 
+import java.io.Reader;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
 public class EscPosPrinter extends EscPosPrinterSize {
 
     private EscPosPrinterCommands printer = null;
+    private ExecutorService parserExecutorService = null;
+    private EscPosImageRegistry imageRegistry = new EscPosImageRegistry(this);
 
     /**
      * Create new instance of EscPosPrinter.
@@ -34,7 +40,7 @@ public class EscPosPrinter extends EscPosPrinterSize {
      * @param printerDpi                  DPI of the connected printer
      * @param printerWidthMM              Printing width in millimeters
      * @param printerNbrCharactersPerLine The maximum number of characters that can be printed on a line.
-     * @param charsetEncoding             Set the charset encoding.
+     * @param charsetEncoding             Set the charset encoding. If null, the default code page of the printer profile is used.
      */
     public EscPosPrinter(DeviceConnection printerConnection, int printerDpi, float printerWidthMM, int printerNbrCharactersPerLine, EscPosCharsetEncoding charsetEncoding) throws EscPosConnectionException {
         this(printerConnection != null ? new EscPosPrinterCommands(printerConnection, charsetEncoding) : null, printerDpi, printerWidthMM, printerNbrCharactersPerLine);
@@ -51,7 +57,7 @@ public class EscPosPrinter extends EscPosPrinterSize {
     public EscPosPrinter(EscPosPrinterCommands printer, int printerDpi, float printerWidthMM, int printerNbrCharactersPerLine) throws EscPosConnectionException {
         super(printerDpi, printerWidthMM, printerNbrCharactersPerLine);
         if (printer != null) {
-            this.printer = printer.connect();
+            this.printer = printer.usePrinterDpi(printerDpi).connect();
         }
     }
 
@@ -79,6 +85,127 @@ public class EscPosPrinter extends EscPosPrinterSize {
         return this;
     }
 
+    /**
+     * Get the images that can be printed with the tag &lt;img ref='name'/&gt;.
+     *
+     * @return EscPosImageRegistry instance of this printer
+     */
+    public EscPosImageRegistry getImageRegistry() {
+        return this.imageRegistry;
+    }
+
+    /**
+     * Use an image registry filled previously, to share the converted images between several EscPosPrinter instances.
+     *
+     * @param imageRegistry EscPosImageRegistry instance
+     * @return Fluent interface
+     */
+    public EscPosPrinter useImageRegistry(EscPosImageRegistry imageRegistry) {
+        this.imageRegistry = imageRegistry;
+        return this;
+    }
+
+    /**
+     * Keep the images converted by bitmapToBytes in a cache, so an image printed again is not converted again. Share the
+     * same cache between the EscPosPrinter instances of a printer model.
+     *
+     * @param imageCache EscPosImageCache instance, null to convert the images each time
+     * @return Fluent interface
+     */
+    public EscPosPrinter useImageCache(EscPosImageCache imageCache) {
+        this.imageCache = imageCache;
+        return this;
+    }
+
+    /**
+     * Parse the lines of the formatted texts in parallel. Useful for long texts and texts with many images or QR codes.
+     *
+     * @param enable true to parse on the thread pool shared by all printers, false to parse on the calling thread
+     * @return Fluent interface
+     */
+    public EscPosPrinter useParallelParsing(boolean enable) {
+        return this.useParallelParsing(enable ? PrinterTextParser.getSharedExecutorService() : null);
+    }
+
+    /**
+     * Parse the lines of the formatted texts in parallel on a thread pool.
+     *
+     * @param executorService Thread pool used to parse lines, null to parse on the calling thread
+     * @return Fluent interface
+     */
+    public EscPosPrinter useParallelParsing(ExecutorService executorService) {
+        this.parserExecutorService = executorService;
+        return this;
+    }
+
+    /**
+     * Convert the images of bitmapToBytes in parallel, by bands of rows, and read the next band of a printed image while
+     * the current one is sent. Useful for large images.
+     *
+     * @param enable true to convert on the thread pool shared by all printers, false to convert on the calling thread
+     * @return Fluent interface
+     */
+    public EscPosPrinter useParallelImageConversion(boolean enable) {
+        return this.useParallelImageConversion(enable ? PrinterTextParser.getSharedExecutorService() : null);
+    }
+
+    /**
+     * Convert the images of bitmapToBytes in parallel on a thread pool, by bands of rows, and read the next band of a
+     * printed image while the current one is sent.
+     *
+     * @param executorService Thread pool used to convert images, null to convert on the calling thread
+     * @return Fluent interface
+     */
+    public EscPosPrinter useParallelImageConversion(ExecutorService executorService) {
+        this.imageExecutorService = executorService;
+        if (this.printer != null) {
+            this.printer.useParallelImageConversion(executorService);
+        }
+        return this;
+    }
+
+    /**
+     * Set the number of rows of the raster commands an image is split into. Small bands fit in the input buffer of
+     * small printers, large bands need less commands.
+     *
+     * @param nbrRows Number of rows of a band (Default : EscPosPrinterCommands.IMAGE_BAND_HEIGHT)
+     * @return Fluent interface
+     */
+    public EscPosPrinter useImageBandHeight(int nbrRows) {
+        if (this.printer != null) {
+            this.printer.useImageBandHeight(nbrRows);
+        }
+        return this;
+    }
+
+    /**
+     * Set the capabilities of the connected printer, used to choose the best commands (Ex: "GS ( L" graphics) and to
+     * pace the connection.
+     *
+     * @param profile Printer profile
+     * @return Fluent interface
+     */
+    public EscPosPrinter useProfile(EscPosPrinterProfile profile) {
+        if (this.printer != null) {
+            this.printer.useProfile(profile);
+        }
+        return this;
+    }
+
+    /**
+     * Identify the connected printer with the "GS I" commands and use the bundled profile of its model. A printer
+     * address already identified by the identifier is not queried again.
+     *
+     * @param identifier Identifier that keeps the identification of each printer address
+     * @return Fluent interface
+     */
+    public EscPosPrinter useIdentifiedProfile(EscPosPrinterIdentifier identifier) throws EscPosConnectionException {
+        if (this.printer != null) {
+            this.printer.useIdentifiedProfile(identifier);
+        }
+        return this;
+    }
+
     /**
      * Print a formatted text. Read the README.md for more information about text formatting options.
      *
@@ -112,34 +239,84 @@ public class EscPosPrinter extends EscPosPrinterSize {
             return this;
         }
 
-        PrinterTextParser textParser = new PrinterTextParser(this);
-        PrinterTextParserLine[] linesParsed = textParser
-                .setFormattedText(text)
-                .parse();
+        this.printParsedText(new PrinterTextParser(this).setFormattedText(text).parse(this.parserExecutorService), dotsFeedPaper);
+        return this;
+    }
 
+    private void printParsedText(PrinterTextParserLine[] linesParsed, int dotsFeedPaper) throws EscPosConnectionException, EscPosEncodingException {
         this.printer.reset();
 
         for (PrinterTextParserLine line : linesParsed) {
-            PrinterTextParserColumn[] columns = line.getColumns();
-
-            IPrinterTextParserElement lastElement = null;
-            for (PrinterTextParserColumn column : columns) {
-                IPrinterTextParserElement[] elements = column.getElements();
-                for (IPrinterTextParserElement element : elements) {
-                    element.print(this.printer);
-                    lastElement = element;
-                }
-            }
+            this.printLine(line);
+        }
 
-            if (lastElement instanceof PrinterTextParserString) {
-                this.printer.newLine();
-            }
+        this.printer.feedPaper(dotsFeedPaper);
+    }
+
+    /**
+     * Print a formatted text read from a Reader. Lines are parsed and sent to the printer one by one, so the memory
+     * used does not depend on the length of the text. Read the README.md for more information about text formatting options.
+     *
+     * @param reader Reader of the formatted text to be printed.
+     * @return Fluent interface
+     */
+    public EscPosPrinter printFormattedText(Reader reader) throws EscPosConnectionException, EscPosParserException, EscPosEncodingException, EscPosBarcodeException {
+        return this.printFormattedText(reader, 20f);
+    }
+
+    /**
+     * Print a formatted text read from a Reader. Read the README.md for more information about text formatting options.
+     *
+     * @param reader      Reader of the formatted text to be printed.
+     * @param mmFeedPaper millimeter distance feed paper at the end.
+     * @return Fluent interface
+     */
+    public EscPosPrinter printFormattedText(Reader reader, float mmFeedPaper) throws EscPosConnectionException, EscPosParserException, EscPosEncodingException, EscPosBarcodeException {
+        return this.printFormattedText(reader, this.mmToPx(mmFeedPaper));
+    }
+
+    /**
+     * Print a formatted text read from a Reader. Read the README.md for more information about text formatting options.
+     *
+     * @param reader        Reader of the formatted text to be printed.
+     * @param dotsFeedPaper distance feed paper at the end.
+     * @return Fluent interface
+     */
+    public EscPosPrinter printFormattedText(Reader reader, int dotsFeedPaper) throws EscPosConnectionException, EscPosParserException, EscPosEncodingException, EscPosBarcodeException {
+        if (this.printer == null || this.printerNbrCharactersPerLine == 0) {
+            return this;
+        }
+
+        PrinterTextParser textParser = new PrinterTextParser(this).setFormattedText(reader);
+        PrinterTextParserLine line;
+
+        this.printer.reset();
+
+        while ((line = textParser.parseNextLine()) != null) {
+            this.printLine(line);
         }
 
         this.printer.feedPaper(dotsFeedPaper);
         return this;
     }
 
+    private void printLine(PrinterTextParserLine line) throws EscPosConnectionException, EscPosEncodingException {
+        PrinterTextParserColumn[] columns = line.getColumns();
+
+        IPrinterTextParserElement lastElement = null;
+        for (PrinterTextParserColumn column : columns) {
+            IPrinterTextParserElement[] elements = column.getElements();
+            for (IPrinterTextParserElement element : elements) {
+                element.print(this.printer);
+                lastElement = element;
+            }
+        }
+
+        if (lastElement instanceof PrinterTextParserString) {
+            this.printer.newLine();
+        }
+    }
+
     /**
      * Print a formatted text and cut the paper. Read the README.md for more information about text formatting options.
      *
@@ -179,6 +356,49 @@ public class EscPosPrinter extends EscPosPrinterSize {
         return this;
     }
 
+    /**
+     * Print formatted texts one after the other and cut the paper after each one (Ex: tickets). The texts are sent back
+     * to back on the same connection, the only waits are the ones the printer needs (see EscPosPrinterProfile).
+     *
+     * @param texts Formatted texts to be printed.
+     * @return Fluent interface
+     */
+    public EscPosPrinter printBatch(List<String> texts) throws EscPosConnectionException, EscPosParserException, EscPosEncodingException, EscPosBarcodeException {
+        return this.printBatch(texts, 20f);
+    }
+
+    /**
+     * Print formatted texts one after the other and cut the paper after each one (Ex: tickets).
+     *
+     * @param texts       Formatted texts to be printed.
+     * @param mmFeedPaper millimeter distance feed paper at the end of each text.
+     * @return Fluent interface
+     */
+    public EscPosPrinter printBatch(List<String> texts, float mmFeedPaper) throws EscPosConnectionException, EscPosParserException, EscPosEncodingException, EscPosBarcodeException {
+        return this.printBatch(texts, this.mmToPx(mmFeedPaper));
+    }
+
+    /**
+     * Print formatted texts one after the other and cut the paper after each one (Ex: tickets). Each text starts with
+     * the default text format, whatever the tags left open by the previous one.
+     *
+     * @param texts         Formatted texts to be printed.
+     * @param dotsFeedPaper distance feed paper at the end of each text.
+     * @return Fluent interface
+     */
+    public EscPosPrinter printBatch(List<String> texts, int dotsFeedPaper) throws EscPosConnectionException, EscPosParserException, EscPosEncodingException, EscPosBarcodeException {
+        if (this.printer == null || this.printerNbrCharactersPerLine == 0) {
+            return this;
+        }
+
+        PrinterTextParser textParser = new PrinterTextParser(this);
+        for (String text : texts) {
+            this.printParsedText(textParser.resetTextFormat().setFormattedText(text).parse(this.parserExecutorService), dotsFeedPaper);
+            this.printer.cutPaper();
+        }
+        return this;
+    }
+
     /**
      * Print a formatted text, cut the paper and open the cash box. Read the README.md for more information about text formatting options.
      *
@@ -4,10 +4,20 @@ import android.graphics.Bitmap;
 
 import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.dantsu.escposprinter.barcode.Barcode;
+import com.dantsu.escposprinter.barcode.Barcode2D;
 import com.dantsu.escposprinter.connection.DeviceConnection;
+import com.dantsu.escposprinter.dither.DitherAlgorithm;
+import com.dantsu.escposprinter.dither.DitherClassic;
 import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
 import com.dantsu.escposprinter.exceptions.EscPosConnectionException;
 import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
@@ -70,37 +80,102 @@ public class EscPosPrinterCommands {
     public static final int BARCODE_TYPE_EAN8 = 68;
     public static final int BARCODE_TYPE_39 = 69;
     public static final int BARCODE_TYPE_ITF = 70;
+    public static final int BARCODE_TYPE_CODABAR = 71;
+    public static final int BARCODE_TYPE_93 = 72;
     public static final int BARCODE_TYPE_128 = 73;
 
     public static final int BARCODE_TEXT_POSITION_NONE = 0;
     public static final int BARCODE_TEXT_POSITION_ABOVE = 1;
     public static final int BARCODE_TEXT_POSITION_BELOW = 2;
 
+    public static final int BARCODE_2D_PDF417 = 48;
+    public static final int BARCODE_2D_AZTEC = 53;
+    public static final int BARCODE_2D_DATAMATRIX = 54;
+
     public static final int QRCODE_1 = 49;
     public static final int QRCODE_2 = 50;
 
+    public static final int QRCODE_ERROR_CORRECTION_L = 48;
+    public static final int QRCODE_ERROR_CORRECTION_M = 49;
+    public static final int QRCODE_ERROR_CORRECTION_Q = 50;
+    public static final int QRCODE_ERROR_CORRECTION_H = 51;
+
+    /**
+     * Number of QR code images kept by QRCodeDataToRasterImage.
+     */
+    private static final int QRCODE_CACHE_SIZE = 32;
+
+    private static final Map<EncodeHintType, Object> QRCODE_HINTS;
+    private static final LinkedHashMap<String, EscPosQRCodeImage> QRCODE_CACHE = new LinkedHashMap<String, EscPosQRCodeImage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, EscPosQRCodeImage> eldest) {
+            return this.size() > EscPosPrinterCommands.QRCODE_CACHE_SIZE;
+        }
+    };
+
+    static {
+        EnumMap<EncodeHintType, Object> hints = new EnumMap<EncodeHintType, Object>(EncodeHintType.class);
+        hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+        QRCODE_HINTS = Collections.unmodifiableMap(hints);
+    }
+
+    private static final int IMAGE_COMMAND_GS_V_0 = 0;
+    private static final int IMAGE_COMMAND_ESC_ASTERISK = 1;
+    private static final int IMAGE_COMMAND_GS_L = 2;
+
+    /**
+     * Print the graphics stored in the print buffer ("GS ( L" function 50).
+     */
+    public static final byte[] GRAPHICS_PRINT = {0x1D, 0x28, 0x4C, 0x02, 0x00, 0x30, 0x32};
+
+    /**
+     * Default number of rows of the raster commands an image is split into.
+     */
+    public static final int IMAGE_BAND_HEIGHT = 256;
+
+    /**
+     * Charset encoding used when none is given and the printer profile has no default code page.
+     */
+    public static final EscPosCharsetEncoding DEFAULT_CHARSET_ENCODING = new EscPosCharsetEncoding("windows-1252", 6);
+
     private DeviceConnection printerConnection;
     private EscPosCharsetEncoding charsetEncoding;
     private boolean useEscAsteriskCommand;
+    private int imageBandHeight = EscPosPrinterCommands.IMAGE_BAND_HEIGHT;
+    private int printerDpi = 203;
+    private EscPosPrinterProfile profile = new EscPosPrinterProfile();
+    private ExecutorService imageExecutorService = null;
+    private byte[] currentAlign = EscPosPrinterCommands.TEXT_ALIGN_LEFT;
+    private int imageFeedRows = 0;
+    private int imageMarginLeft = 0;
+    private int imageLeftMargin = 0;
 
 
     public static byte[] initGSv0Command(int bytesByLine, int bitmapHeight) {
+        byte[] imageBytes = new byte[8 + bytesByLine * bitmapHeight];
+        EscPosPrinterCommands.writeGSv0Header(imageBytes, bytesByLine, bitmapHeight);
+        return imageBytes;
+    }
+
+    private static void writeGSv0Header(byte[] imageBytes, int bytesByLine, int bitmapHeight) {
+        EscPosPrinterCommands.writeGSv0Header(imageBytes, 0, bytesByLine, bitmapHeight);
+    }
+
+    private static void writeGSv0Header(byte[] imageBytes, int offset, int bytesByLine, int bitmapHeight) {
         int
             xH = bytesByLine / 256,
             xL = bytesByLine - (xH * 256),
             yH = bitmapHeight / 256,
             yL = bitmapHeight - (yH * 256);
 
-        byte[] imageBytes = new byte[8 + bytesByLine * bitmapHeight];
-        imageBytes[0] = 0x1D;
-        imageBytes[1] = 0x76;
-        imageBytes[2] = 0x30;
-        imageBytes[3] = 0x00;
-        imageBytes[4] = (byte) xL;
-        imageBytes[5] = (byte) xH;
-        imageBytes[6] = (byte) yL;
-        imageBytes[7] = (byte) yH;
-        return imageBytes;
+        imageBytes[offset] = 0x1D;
+        imageBytes[offset + 1] = 0x76;
+        imageBytes[offset + 2] = 0x30;
+        imageBytes[offset + 3] = 0x00;
+        imageBytes[offset + 4] = (byte) xL;
+        imageBytes[offset + 5] = (byte) xH;
+        imageBytes[offset + 6] = (byte) yL;
+        imageBytes[offset + 7] = (byte) yH;
     }
 
     /**
@@ -111,56 +186,64 @@ public class EscPosPrinterCommands {
      * @return Bytes contain the image in ESC/POS command
      */
     public static byte[] bitmapToBytes(Bitmap bitmap, boolean gradient) {
-        int
-            bitmapWidth = bitmap.getWidth(),
-            bitmapHeight = bitmap.getHeight(),
-            bytesByLine = (int) Math.ceil(((float) bitmapWidth) / 8f);
-
-        byte[] imageBytes = EscPosPrinterCommands.initGSv0Command(bytesByLine, bitmapHeight);
-
-        int i = 8,
-            greyscaleCoefficientInit = 0,
-            gradientStep = 6;
-
-        double
-            colorLevelStep = 765.0 / (15 * gradientStep + gradientStep - 1);
-
-        for (int posY = 0; posY < bitmapHeight; posY++) {
-            int greyscaleCoefficient = greyscaleCoefficientInit,
-                greyscaleLine = posY % gradientStep;
-            for (int j = 0; j < bitmapWidth; j += 8) {
-                int b = 0;
-                for (int k = 0; k < 8; k++) {
-                    int posX = j + k;
-                    if (posX < bitmapWidth) {
-                        int color = bitmap.getPixel(posX, posY),
-                            red = (color >> 16) & 255,
-                            green = (color >> 8) & 255,
-                            blue = color & 255;
-
-                        if (
-                            (gradient && (red + green + blue) < ((greyscaleCoefficient * gradientStep + greyscaleLine) * colorLevelStep)) ||
-                                (!gradient && (red < 160 || green < 160 || blue < 160))
-                        ) {
-                            b |= 1 << (7 - k);
-                        }
+        return EscPosPrinterCommands.bitmapToBytes(new EscPosBitmapImage(bitmap), gradient);
+    }
 
-                        greyscaleCoefficient += 5;
-                        if (greyscaleCoefficient > 15) {
-                            greyscaleCoefficient -= 16;
-                        }
-                    }
-                }
-                imageBytes[i++] = (byte) b;
-            }
+    /**
+     * Convert an ARGB image to a byte array compatible with ESC/POS printer.
+     *
+     * @param image Image to be convert
+     * @param gradient false : Black and white image, true : Grayscale image
+     * @return Bytes contain the image in ESC/POS command
+     */
+    public static byte[] bitmapToBytes(IEscPosArgbImage image, boolean gradient) {
+        return EscPosPrinterCommands.bitmapToBytes(image, gradient, null);
+    }
 
-            greyscaleCoefficientInit += 2;
-            if (greyscaleCoefficientInit > 15) {
-                greyscaleCoefficientInit = 0;
-            }
-        }
+    /**
+     * Convert an ARGB image to a byte array compatible with ESC/POS printer, the bands of the image are converted in parallel.
+     *
+     * @param image Image to be convert
+     * @param gradient false : Black and white image, true : Grayscale image
+     * @param executorService Thread pool used to convert the image, null to convert on the calling thread
+     * @return Bytes contain the image in ESC/POS command
+     */
+    public static byte[] bitmapToBytes(IEscPosArgbImage image, boolean gradient, ExecutorService executorService) {
+        return new DitherClassic(gradient).convert(image, executorService);
+    }
 
-        return imageBytes;
+    /**
+     * Convert Bitmap instance to a byte array compatible with ESC/POS printer.
+     *
+     * @param bitmap Bitmap to be convert
+     * @param ditherAlgorithm Algorithm used to convert the colors to black and white dots (Ex: new DitherFloydSteinberg())
+     * @return Bytes contain the image in ESC/POS command
+     */
+    public static byte[] bitmapToBytes(Bitmap bitmap, DitherAlgorithm ditherAlgorithm) {
+        return EscPosPrinterCommands.bitmapToBytes(new EscPosBitmapImage(bitmap), ditherAlgorithm);
+    }
+
+    /**
+     * Convert an ARGB image to a byte array compatible with ESC/POS printer.
+     *
+     * @param image Image to be convert
+     * @param ditherAlgorithm Algorithm used to convert the colors to black and white dots (Ex: new DitherFloydSteinberg())
+     * @return Bytes contain the image in ESC/POS command
+     */
+    public static byte[] bitmapToBytes(IEscPosArgbImage image, DitherAlgorithm ditherAlgorithm) {
+        return ditherAlgorithm.convert(image);
+    }
+
+    /**
+     * Convert an ARGB image to a byte array compatible with ESC/POS printer, the bands of the image are converted in parallel.
+     *
+     * @param image Image to be convert
+     * @param ditherAlgorithm Algorithm used to convert the colors to black and white dots (Ex: new DitherFloydSteinberg())
+     * @param executorService Thread pool used to convert the image, null to convert on the calling thread
+     * @return Bytes contain the image in ESC/POS command
+     */
+    public static byte[] bitmapToBytes(IEscPosArgbImage image, DitherAlgorithm ditherAlgorithm, ExecutorService executorService) {
+        return ditherAlgorithm.convert(image, executorService);
     }
 
     public static byte[][] convertGSv0ToEscAsterisk(byte[] bytes) {
@@ -170,50 +253,117 @@ public class EscPosPrinterCommands {
             yL = bytes[6] & 0xFF,
             yH = bytes[7] & 0xFF,
             bytesByLine = xH * 256 + xL,
-            dotsByLine = bytesByLine * 8,
-            nH = dotsByLine / 256,
-            nL = dotsByLine % 256,
             imageHeight = yH * 256 + yL,
-            imageLineHeightCount = (int) Math.ceil((double) imageHeight / 24.0),
-            imageBytesSize = 6 + bytesByLine * 24;
+            imageLineHeightCount = (imageHeight + 23) / 24;
 
         byte[][] returnedBytes = new byte[imageLineHeightCount + 2][];
         returnedBytes[0] = EscPosPrinterCommands.LINE_SPACING_24;
         for (int i = 0; i < imageLineHeightCount; ++i) {
-            int pxBaseRow = i * 24;
-            byte[] imageBytes = new byte[imageBytesSize];
-            imageBytes[0] = 0x1B;
-            imageBytes[1] = 0x2A;
-            imageBytes[2] = 0x21;
-            imageBytes[3] = (byte) nL;
-            imageBytes[4] = (byte) nH;
-            for (int j = 5; j < imageBytes.length; ++j) {
-                int
-                    imgByte = j - 5,
-                    byteRow = imgByte % 3,
-                    pxColumn = imgByte / 3,
-                    bitColumn = 1 << (7 - pxColumn % 8),
-                    pxRow = pxBaseRow + byteRow * 8;
-                for (int k = 0; k < 8; ++k) {
-                    int indexBytes = bytesByLine * (pxRow + k) + pxColumn / 8 + 8;
-
-                    if (indexBytes >= bytes.length) {
-                        break;
-                    }
-
-                    boolean isBlack = (bytes[indexBytes] & bitColumn) == bitColumn;
-                    if (isBlack) {
-                        imageBytes[j] |= 1 << 7 - k;
-                    }
-                }
-            }
-            imageBytes[imageBytes.length - 1] = EscPosPrinterCommands.LF;
-            returnedBytes[i + 1] = imageBytes;
+            returnedBytes[i + 1] = new byte[EscPosPrinterCommands.getEscAsteriskStripeLength(bytesByLine)];
+            EscPosPrinterCommands.writeEscAsteriskStripe(bytes, 8 + bytesByLine * i * 24, Math.min(24, imageHeight - i * 24), bytesByLine, returnedBytes[i + 1], 0);
         }
         returnedBytes[returnedBytes.length - 1] = EscPosPrinterCommands.LINE_SPACING_30;
         return returnedBytes;
     }
 
+    /**
+     * Convert an image to a sequence of "ESC *" commands of 24 rows, each followed by a line feed. The result can be
+     * printed many times with printEscAsteriskImage.
+     *
+     * @param image Image to be converted
+     * @return Bytes of the "ESC *" commands
+     */
+    public static byte[] rasterImageToEscAsterisk(IEscPosRasterImage image) {
+        int
+            bytesByLine = image.getBytesByLine(),
+            height = image.getHeight(),
+            stripeLength = EscPosPrinterCommands.getEscAsteriskStripeLength(bytesByLine);
+
+        byte[] rows = new byte[bytesByLine * 24], stripes = new byte[(height + 23) / 24 * stripeLength];
+        for (int row = 0, stripeOffset = 0; row < height; row += 24, stripeOffset += stripeLength) {
+            int nbrRows = Math.min(24, height - row);
+            image.readRows(row, nbrRows, rows, 0);
+            EscPosPrinterCommands.writeEscAsteriskStripe(rows, 0, nbrRows, bytesByLine, stripes, stripeOffset);
+        }
+        return stripes;
+    }
+
+    /**
+     * Get the length of an "ESC *" command of 24 rows followed by a line feed.
+     *
+     * @param bytesByLine Number of bytes of a row
+     * @return int
+     */
+    private static int getEscAsteriskStripeLength(int bytesByLine) {
+        return 6 + bytesByLine * 24;
+    }
+
+    /**
+     * Convert up to 24 rows of "GS v 0" data to an "ESC *" command followed by a line feed. Missing rows are printed
+     * white.
+     * <p>
+     * "ESC *" stores the dots column by column, 3 bytes of 8 vertical dots by column. Each block of 8 rows by 8 columns
+     * is converted at once with a 8x8 bit matrix transpose.
+     *
+     * @param rows         Array that contains the rows
+     * @param offset       Index of the first byte of the first row
+     * @param nbrRows      Number of rows, from 1 to 24
+     * @param bytesByLine  Number of bytes of a row
+     * @param stripe       Array that receive the command
+     * @param stripeOffset Index in stripe of the first byte of the command
+     */
+    private static void writeEscAsteriskStripe(byte[] rows, int offset, int nbrRows, int bytesByLine, byte[] stripe, int stripeOffset) {
+        int dotsByLine = bytesByLine * 8;
+
+        stripe[stripeOffset] = 0x1B;
+        stripe[stripeOffset + 1] = 0x2A;
+        stripe[stripeOffset + 2] = 0x21;
+        stripe[stripeOffset + 3] = (byte) (dotsByLine % 256);
+        stripe[stripeOffset + 4] = (byte) (dotsByLine / 256);
+        stripe[stripeOffset + 5 + bytesByLine * 24] = EscPosPrinterCommands.LF;
+
+        for (int byteRow = 0; byteRow < 3; ++byteRow) {
+            int
+                firstRow = byteRow * 8,
+                nbrBlockRows = Math.max(0, Math.min(8, nbrRows - firstRow));
+
+            for (int column = 0; column < bytesByLine; ++column) {
+                // Pack the 8 rows of the block in a long, first row in the most significant byte
+                long block = 0;
+                for (int k = 0, index = offset + firstRow * bytesByLine + column; k < nbrBlockRows; ++k, index += bytesByLine) {
+                    block |= (long) (rows[index] & 0xFF) << (56 - k * 8);
+                }
+
+                if (block != 0) {
+                    block = EscPosPrinterCommands.transposeBitMatrix(block);
+                }
+
+                // Byte k of the transposed block is the column k of the block, the 8 dots of column (column * 8 + k)
+                for (int k = 0, index = stripeOffset + 5 + column * 24 + byteRow; k < 8; ++k, index += 3) {
+                    stripe[index] = (byte) (block >>> (56 - k * 8));
+                }
+            }
+        }
+    }
+
+    /**
+     * Transpose a 8x8 bit matrix, stored row by row in a long with the first row in the most significant byte and the
+     * first column in the most significant bit of each byte (Hacker's Delight, transpose8).
+     *
+     * @param x Bit matrix
+     * @return Transposed bit matrix
+     */
+    private static long transposeBitMatrix(long x) {
+        long t;
+        t = (x ^ (x >>> 7)) & 0x00AA00AA00AA00AAL;
+        x = x ^ t ^ (t << 7);
+        t = (x ^ (x >>> 14)) & 0x0000CCCC0000CCCCL;
+        x = x ^ t ^ (t << 14);
+        t = (x ^ (x >>> 28)) & 0x00000000F0F0F0F0L;
+        x = x ^ t ^ (t << 28);
+        return x;
+    }
+
     /**
      * Convert a string to QR Code byte array compatible with ESC/POS printer.
      *
@@ -222,14 +372,70 @@ public class EscPosPrinterCommands {
      * @return Bytes contain the image in ESC/POS command
      */
     public static byte[] QRCodeDataToBytes(String data, int size) throws EscPosBarcodeException {
+        EscPosQRCodeImage image = EscPosPrinterCommands.QRCodeDataToRasterImage(data, size);
+        byte[] imageBytes = EscPosPrinterCommands.initGSv0Command(image.getBytesByLine(), image.getHeight());
+        image.readRows(0, image.getHeight(), imageBytes, 8);
+        return imageBytes;
+    }
 
-        ByteMatrix byteMatrix = null;
+    /**
+     * Encode a string in a QR Code printed as a raster image. The size of the modules is the one that gives the
+     * nearest size to the requested size, the image is empty if the QR code cannot be printed that small.
+     *
+     * @param data String data to convert in QR Code
+     * @param size QR code dots size
+     * @return QR code image, its rows are built while it is printed
+     */
+    public static EscPosQRCodeImage QRCodeDataToRasterImage(String data, int size) throws EscPosBarcodeException {
+        return EscPosPrinterCommands.QRCodeDataToRasterImage(data, size, EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_L, 0);
+    }
 
-        try {
-            EnumMap<EncodeHintType, Object> hints = new EnumMap<EncodeHintType, Object>(EncodeHintType.class);
-            hints.put(EncodeHintType.CHARACTER_SET, "UTF-8");
+    /**
+     * Encode a string in a QR Code printed as a raster image. The size of the modules is the one that gives the
+     * nearest size to the requested size, the image is empty if the QR code cannot be printed that small.
+     * <p>
+     * The last QR codes are kept : encoding the same data with the same settings again returns the same image.
+     *
+     * @param data                 String data to convert in QR Code
+     * @param size                 QR code dots size, quiet zone included
+     * @param errorCorrectionLevel Error correction level. Use EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_... constants
+     * @param quietZone            Number of white modules around the QR code
+     * @return QR code image, its rows are built while it is printed
+     */
+    public static EscPosQRCodeImage QRCodeDataToRasterImage(String data, int size, int errorCorrectionLevel, int quietZone) throws EscPosBarcodeException {
+        ErrorCorrectionLevel zxingErrorCorrectionLevel;
+        switch (errorCorrectionLevel) {
+            case EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_L:
+                zxingErrorCorrectionLevel = ErrorCorrectionLevel.L;
+                break;
+            case EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_M:
+                zxingErrorCorrectionLevel = ErrorCorrectionLevel.M;
+                break;
+            case EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_Q:
+                zxingErrorCorrectionLevel = ErrorCorrectionLevel.Q;
+                break;
+            case EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_H:
+                zxingErrorCorrectionLevel = ErrorCorrectionLevel.H;
+                break;
+            default:
+                throw new EscPosBarcodeException("Invalid QR code error correction level");
+        }
+        if (quietZone < 0) {
+            throw new EscPosBarcodeException("Invalid QR code quiet zone");
+        }
+
+        String key = errorCorrectionLevel + ":" + quietZone + ":" + size + ":" + data;
+        synchronized (EscPosPrinterCommands.QRCODE_CACHE) {
+            EscPosQRCodeImage image = EscPosPrinterCommands.QRCODE_CACHE.get(key);
+            if (image != null) {
+                return image;
+            }
+        }
+
+        ByteMatrix byteMatrix;
 
-            QRCode code = Encoder.encode(data, ErrorCorrectionLevel.L, hints);
+        try {
+            QRCode code = Encoder.encode(data, zxingErrorCorrectionLevel, EscPosPrinterCommands.QRCODE_HINTS);
             byteMatrix = code.getMatrix();
 
         } catch (WriterException e) {
@@ -237,51 +443,17 @@ public class EscPosPrinterCommands {
             throw new EscPosBarcodeException("Unable to encode QR code");
         }
 
-        if (byteMatrix == null) {
-            return EscPosPrinterCommands.initGSv0Command(0, 0);
+        EscPosQRCodeImage image = new EscPosQRCodeImage(
+            data,
+            byteMatrix,
+            Math.round((float) size / (float) (byteMatrix.getWidth() + quietZone * 2)),
+            quietZone,
+            errorCorrectionLevel
+        );
+        synchronized (EscPosPrinterCommands.QRCODE_CACHE) {
+            EscPosPrinterCommands.QRCODE_CACHE.put(key, image);
         }
-
-        int
-            width = byteMatrix.getWidth(),
-            height = byteMatrix.getHeight(),
-            coefficient = Math.round((float) size / (float) width),
-            imageWidth = width * coefficient,
-            imageHeight = height * coefficient,
-            bytesByLine = (int) Math.ceil(((float) imageWidth) / 8f),
-            i = 8;
-
-        if (coefficient < 1) {
-            return EscPosPrinterCommands.initGSv0Command(0, 0);
-        }
-
-        byte[] imageBytes = EscPosPrinterCommands.initGSv0Command(bytesByLine, imageHeight);
-
-        for (int y = 0; y < height; y++) {
-            byte[] lineBytes = new byte[bytesByLine];
-            int x = -1, multipleX = coefficient;
-            boolean isBlack = false;
-            for (int j = 0; j < bytesByLine; j++) {
-                int b = 0;
-                for (int k = 0; k < 8; k++) {
-                    if (multipleX == coefficient) {
-                        isBlack = ++x < width && byteMatrix.get(x, y) == 1;
-                        multipleX = 0;
-                    }
-                    if (isBlack) {
-                        b |= 1 << (7 - k);
-                    }
-                    ++multipleX;
-                }
-                lineBytes[j] = (byte) b;
-            }
-
-            for (int multipleY = 0; multipleY < coefficient; ++multipleY) {
-                System.arraycopy(lineBytes, 0, imageBytes, i, lineBytes.length);
-                i += lineBytes.length;
-            }
-        }
-
-        return imageBytes;
+        return image;
     }
 
     /**
@@ -297,11 +469,11 @@ public class EscPosPrinterCommands {
      * Create new instance of EscPosPrinterCommands.
      *
      * @param printerConnection an instance of a class which implement DeviceConnection
-     * @param charsetEncoding   Set the charset encoding.
+     * @param charsetEncoding   Set the charset encoding. If null, the default code page of the printer profile is used.
      */
     public EscPosPrinterCommands(DeviceConnection printerConnection, EscPosCharsetEncoding charsetEncoding) {
         this.printerConnection = printerConnection;
-        this.charsetEncoding = charsetEncoding != null ? charsetEncoding : new EscPosCharsetEncoding("windows-1252", 6);
+        this.charsetEncoding = charsetEncoding;
     }
 
     /**
@@ -327,12 +499,14 @@ public class EscPosPrinterCommands {
             return this;
         }
         this.printerConnection.write(EscPosPrinterCommands.RESET_PRINTER);
+        this.currentTextStyle = null;
+        this.currentAlign = EscPosPrinterCommands.TEXT_ALIGN_LEFT;
         return this;
     }
 
     /**
      * Set the alignment of text and barcodes.
-     * Don't works with image.
+     * Works with images only if the printer profile says so (see EscPosPrinterProfile.setRasterJustificationSupported).
      *
      * @param align Set the alignment of text and barcodes. Use EscPosPrinterCommands.TEXT_ALIGN_... constants
      * @return Fluent interface
@@ -342,6 +516,7 @@ public class EscPosPrinterCommands {
             return this;
         }
         this.printerConnection.write(align);
+        this.currentAlign = align;
         return this;
     }
 
@@ -421,13 +596,6 @@ public class EscPosPrinterCommands {
     }
 
 
-    private byte[] currentTextSize = new byte[0];
-    private byte[] currentTextColor = new byte[0];
-    private byte[] currentTextReverseColor = new byte[0];
-    private byte[] currentTextBold = new byte[0];
-    private byte[] currentTextUnderline = new byte[0];
-    private byte[] currentTextDoubleStrike = new byte[0];
-
     /**
      * Print text with the connected printer.
      *
@@ -441,63 +609,58 @@ public class EscPosPrinterCommands {
      * @return Fluent interface
      */
     public EscPosPrinterCommands printText(String text, byte[] textSize, byte[] textColor, byte[] textReverseColor, byte[] textBold, byte[] textUnderline, byte[] textDoubleStrike) throws EscPosEncodingException {
+        return this.printStyledText(text, EscPosTextStyle.get(textSize, textColor, textReverseColor, textBold, textUnderline, textDoubleStrike));
+    }
+
+
+    private EscPosTextStyle currentTextStyle = null;
+
+    /**
+     * Print text with the connected printer.
+     *
+     * @param text      Text to be printed
+     * @param textStyle Style of the text
+     * @return Fluent interface
+     */
+    public EscPosPrinterCommands printStyledText(String text, EscPosTextStyle textStyle) throws EscPosEncodingException {
         if (!this.printerConnection.isConnected()) {
             return this;
         }
 
-        if (textSize == null) {
-            textSize = EscPosPrinterCommands.TEXT_SIZE_NORMAL;
-        }
-        if (textColor == null) {
-            textColor = EscPosPrinterCommands.TEXT_COLOR_BLACK;
-        }
-        if (textReverseColor == null) {
-            textReverseColor = EscPosPrinterCommands.TEXT_COLOR_REVERSE_OFF;
-        }
-        if (textBold == null) {
-            textBold = EscPosPrinterCommands.TEXT_WEIGHT_NORMAL;
-        }
-        if (textUnderline == null) {
-            textUnderline = EscPosPrinterCommands.TEXT_UNDERLINE_OFF;
-        }
-        if (textDoubleStrike == null) {
-            textDoubleStrike = EscPosPrinterCommands.TEXT_DOUBLE_STRIKE_OFF;
-        }
-
         try {
-            byte[] textBytes = text.getBytes(this.charsetEncoding.getName());
-            this.printerConnection.write(this.charsetEncoding.getCommand());
+            EscPosCharsetEncoding charsetEncoding = this.getCharsetEncoding();
+            byte[] textBytes = text.getBytes(charsetEncoding.getName());
+            this.printerConnection.write(charsetEncoding.getCommand());
             //this.printerConnection.write(EscPosPrinterCommands.TEXT_FONT_A);
 
+            EscPosTextStyle currentTextStyle = this.currentTextStyle;
 
-            if (!Arrays.equals(this.currentTextSize, textSize)) {
-                this.printerConnection.write(textSize);
-                this.currentTextSize = textSize;
-            }
+            if (currentTextStyle != textStyle) {
+                if (currentTextStyle == null || currentTextStyle.getTextSize() != textStyle.getTextSize()) {
+                    this.printerConnection.write(textStyle.getTextSize());
+                }
 
-            if (!Arrays.equals(this.currentTextDoubleStrike, textDoubleStrike)) {
-                this.printerConnection.write(textDoubleStrike);
-                this.currentTextDoubleStrike = textDoubleStrike;
-            }
+                if (currentTextStyle == null || currentTextStyle.getTextDoubleStrike() != textStyle.getTextDoubleStrike()) {
+                    this.printerConnection.write(textStyle.getTextDoubleStrike());
+                }
 
-            if (!Arrays.equals(this.currentTextUnderline, textUnderline)) {
-                this.printerConnection.write(textUnderline);
-                this.currentTextUnderline = textUnderline;
-            }
+                if (currentTextStyle == null || currentTextStyle.getTextUnderline() != textStyle.getTextUnderline()) {
+                    this.printerConnection.write(textStyle.getTextUnderline());
+                }
 
-            if (!Arrays.equals(this.currentTextBold, textBold)) {
-                this.printerConnection.write(textBold);
-                this.currentTextBold = textBold;
-            }
+                if (currentTextStyle == null || currentTextStyle.getTextBold() != textStyle.getTextBold()) {
+                    this.printerConnection.write(textStyle.getTextBold());
+                }
 
-            if (!Arrays.equals(this.currentTextColor, textColor)) {
-                this.printerConnection.write(textColor);
-                this.currentTextColor = textColor;
-            }
+                if (currentTextStyle == null || currentTextStyle.getTextColor() != textStyle.getTextColor()) {
+                    this.printerConnection.write(textStyle.getTextColor());
+                }
 
-            if (!Arrays.equals(this.currentTextReverseColor, textReverseColor)) {
-                this.printerConnection.write(textReverseColor);
-                this.currentTextReverseColor = textReverseColor;
+                if (currentTextStyle == null || currentTextStyle.getTextReverseColor() != textStyle.getTextReverseColor()) {
+                    this.printerConnection.write(textStyle.getTextReverseColor());
+                }
+
+                this.currentTextStyle = textStyle;
             }
 
             this.printerConnection.write(textBytes);
@@ -537,6 +700,7 @@ public class EscPosPrinterCommands {
             this.printerConnection.write(EscPosPrinterCommands.TEXT_WEIGHT_NORMAL);
             this.printerConnection.write(EscPosPrinterCommands.TEXT_UNDERLINE_OFF);
             this.printerConnection.write(EscPosPrinterCommands.TEXT_DOUBLE_STRIKE_OFF);
+            this.currentTextStyle = null;
             this.printerConnection.write((":::: Charset n°" + charsetId + " : ").getBytes());
             this.printerConnection.write(new byte[]{
                 (byte) 0x00, (byte) 0x01, (byte) 0x02, (byte) 0x03, (byte) 0x04, (byte) 0x05, (byte) 0x06, (byte) 0x07, (byte) 0x08, (byte) 0x09, (byte) 0x0A, (byte) 0x0B, (byte) 0x0C, (byte) 0x0D, (byte) 0x0E, (byte) 0x0F,
@@ -576,6 +740,89 @@ public class EscPosPrinterCommands {
         return this;
     }
 
+    /**
+     * Set the capabilities of the connected printer. The profile also paces the connection with the input buffer size
+     * and the transfer speed of the printer.
+     *
+     * @param profile Printer profile
+     * @return Fluent interface
+     */
+    public EscPosPrinterCommands useProfile(EscPosPrinterProfile profile) {
+        this.profile = profile != null ? profile : new EscPosPrinterProfile();
+        if (this.printerConnection != null) {
+            this.printerConnection.usePacing(this.profile.getTransferSpeed(), this.profile.getInputBufferSize());
+        }
+        return this;
+    }
+
+    /**
+     * Identify the connected printer with the "GS I" commands and use the bundled profile of its model. Nothing changes
+     * if the printer does not answer or its model is unknown.
+     *
+     * @param identifier Identifier that keeps the identification of each printer address
+     * @return Fluent interface
+     */
+    public EscPosPrinterCommands useIdentifiedProfile(EscPosPrinterIdentifier identifier) throws EscPosConnectionException {
+        EscPosPrinterProfile profile = identifier.identify(this.printerConnection).getProfile();
+        if (profile != null) {
+            this.useProfile(profile);
+        }
+        return this;
+    }
+
+    public EscPosPrinterProfile getProfile() {
+        return this.profile;
+    }
+
+    /**
+     * Check if images are printed with the "ESC *" command.
+     *
+     * @return true if "ESC *" is used, false if "GS v 0" is used
+     */
+    public boolean isUsingEscAsteriskCommand() {
+        return this.useEscAsteriskCommand;
+    }
+
+    /**
+     * Set the resolution of the printer, used to compute the time of the paper feeds.
+     *
+     * @param printerDpi DPI of the printer (Default : 203)
+     * @return Fluent interface
+     */
+    public EscPosPrinterCommands usePrinterDpi(int printerDpi) {
+        if (printerDpi <= 0) {
+            throw new IllegalArgumentException("Printer DPI must be positive.");
+        }
+        this.printerDpi = printerDpi;
+        return this;
+    }
+
+    /**
+     * Set the number of rows of the raster commands an image is split into. Small bands fit in the input buffer of
+     * small printers, large bands need less commands.
+     *
+     * @param nbrRows Number of rows of a band, from 1 to 65535
+     * @return Fluent interface
+     */
+    public EscPosPrinterCommands useImageBandHeight(int nbrRows) {
+        if (nbrRows < 1 || nbrRows > 65535) {
+            throw new IllegalArgumentException("Image band height must be between 1 and 65535.");
+        }
+        this.imageBandHeight = nbrRows;
+        return this;
+    }
+
+    /**
+     * Read the next band of an image on a thread pool while the current band is sent to the printer.
+     *
+     * @param executorService Thread pool used to read the bands, null to read them on the calling thread
+     * @return Fluent interface
+     */
+    public EscPosPrinterCommands useParallelImageConversion(ExecutorService executorService) {
+        this.imageExecutorService = executorService;
+        return this;
+    }
+
     /**
      * Print image with the connected printer.
      *
@@ -583,20 +830,422 @@ public class EscPosPrinterCommands {
      * @return Fluent interface
      */
     public EscPosPrinterCommands printImage(byte[] image) throws EscPosConnectionException {
+        return this.printImage(new EscPosRasterImage(image));
+    }
+
+    /**
+     * Print image with the connected printer.
+     *
+     * @param image Image to be printed
+     * @return Fluent interface
+     */
+    public EscPosPrinterCommands printImage(IEscPosRasterImage image) throws EscPosConnectionException {
+        return this.printImage(image, 0);
+    }
+
+    /**
+     * Print image with the connected printer. The image is split in bands of rows, each band is sent as its own raster
+     * command, so the image is never fully loaded in memory and has no height limit. If a thread pool is set with
+     * useParallelImageConversion, the next band is read while the current one is sent.
+     * <p>
+     * Images are printed with "ESC *" if useEscAsteriskCommand is enabled, with "GS ( L" if the printer profile
+     * supports it (with multiple tones for IEscPosMultiToneImage if the printer can print them) and with "GS v 0"
+     * otherwise.
+     * <p>
+     * Blank rows are not sent, the paper is fed instead with "ESC J". The white bytes on the right of the rows are not
+     * sent either, and the white bytes on the left are replaced by a "GS L" left margin if the printer profile
+     * supports it. White bytes are always sent if the image is justified by a center or right "ESC a" alignment.
+     *
+     * @param image      Image to be printed
+     * @param marginLeft Distance in dots between the left of the printing area and the image. It is set with "GS L" if
+     *                   the printer profile supports it, otherwise marginLeft / 8 white bytes are added to the rows.
+     * @return Fluent interface
+     */
+    public EscPosPrinterCommands printImage(final IEscPosRasterImage image, int marginLeft) throws EscPosConnectionException {
         if (!this.printerConnection.isConnected()) {
             return this;
         }
 
-        byte[][] bytesToPrint = this.useEscAsteriskCommand ? EscPosPrinterCommands.convertGSv0ToEscAsterisk(image) : new byte[][]{image};
+        final int nbrWhiteBytes = this.profile.isLeftMarginSupported() ? 0 : Math.max(0, marginLeft) / 8;
+        final int bytesByLine = image.getBytesByLine() + nbrWhiteBytes;
+        int height = image.getHeight();
+
+        if (bytesByLine == 0 || height == 0) {
+            return this;
+        }
 
-        for (byte[] bytes : bytesToPrint) {
-            this.printerConnection.write(bytes);
+        final int imageCommand, headerLength, nbrPlanes;
+        int nbrRowsByBand;
+
+        if (this.useEscAsteriskCommand) {
+            imageCommand = EscPosPrinterCommands.IMAGE_COMMAND_ESC_ASTERISK;
+            headerLength = 0;
+            nbrPlanes = 1;
+            nbrRowsByBand = 24;
+        } else if (this.profile.isGraphicsCommandSupported()) {
+            imageCommand = EscPosPrinterCommands.IMAGE_COMMAND_GS_L;
+            headerLength = 15;
+            nbrPlanes = image instanceof IEscPosMultiToneImage && this.profile.getNbrGraphicsTones() >= 1 << ((IEscPosMultiToneImage) image).getNbrPlanes() ?
+                ((IEscPosMultiToneImage) image).getNbrPlanes() : 1;
+            // The data of a "GS ( L" command is limited to 65535 - 10 bytes
+            nbrRowsByBand = Math.min(this.imageBandHeight, 65525 / bytesByLine);
+        } else {
+            imageCommand = EscPosPrinterCommands.IMAGE_COMMAND_GS_V_0;
+            headerLength = 8;
+            nbrPlanes = 1;
+            nbrRowsByBand = this.imageBandHeight;
+        }
+        nbrRowsByBand = Math.max(1, Math.min(nbrRowsByBand, height));
+
+        // A band contains each plane : header followed by the rows
+        final int planeLength = headerLength + nbrRowsByBand * bytesByLine;
+        byte[] band = new byte[nbrPlanes * planeLength],
+            nextBand = this.imageExecutorService != null ? new byte[band.length] : band,
+            stripe = imageCommand == EscPosPrinterCommands.IMAGE_COMMAND_ESC_ASTERISK ? new byte[EscPosPrinterCommands.getEscAsteriskStripeLength(bytesByLine)] : null;
+        Future<Void> nextBandReading = null;
+
+        if (imageCommand == EscPosPrinterCommands.IMAGE_COMMAND_ESC_ASTERISK) {
+            this.printerConnection.write(EscPosPrinterCommands.LINE_SPACING_24);
+            this.printerConnection.send();
+        }
+        this.imageFeedRows = 0;
+        this.imageMarginLeft = this.profile.isLeftMarginSupported() ? Math.max(0, marginLeft) : 0;
+        this.imageLeftMargin = 0;
+
+        try {
+            EscPosPrinterCommands.readImageBand(image, nbrPlanes, 0, Math.min(nbrRowsByBand, height), band, planeLength, headerLength, nbrWhiteBytes);
+
+            for (int row = 0; row < height; row += nbrRowsByBand) {
+                final int nextRow = row + nbrRowsByBand, nbrNextRows = Math.min(nbrRowsByBand, height - nextRow);
+
+                if (this.imageExecutorService != null && nbrNextRows > 0) {
+                    final byte[] nextBandBuffer = nextBand;
+                    nextBandReading = this.imageExecutorService.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            EscPosPrinterCommands.readImageBand(image, nbrPlanes, nextRow, nbrNextRows, nextBandBuffer, planeLength, headerLength, nbrWhiteBytes);
+                            return null;
+                        }
+                    });
+                }
+
+                this.sendImageBand(imageCommand, band, nbrPlanes, planeLength, headerLength, Math.min(nbrRowsByBand, height - row), bytesByLine, stripe);
+
+                if (nextBandReading != null) {
+                    nextBandReading.get();
+                    nextBandReading = null;
+                    byte[] sentBand = band;
+                    band = nextBand;
+                    nextBand = sentBand;
+                } else if (nbrNextRows > 0) {
+                    EscPosPrinterCommands.readImageBand(image, nbrPlanes, nextRow, nbrNextRows, band, planeLength, headerLength, nbrWhiteBytes);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EscPosConnectionException("Image printing has been interrupted.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new EscPosConnectionException(String.valueOf(cause));
+        } finally {
+            if (nextBandReading != null) {
+                nextBandReading.cancel(true);
+            }
+        }
+
+        this.writeImageFeed();
+        this.writeImageLeftMargin(0);
+        this.printerConnection.send();
+
+        if (imageCommand == EscPosPrinterCommands.IMAGE_COMMAND_ESC_ASTERISK) {
+            this.printerConnection.write(EscPosPrinterCommands.LINE_SPACING_30);
             this.printerConnection.send();
         }
+        return this;
+    }
+
+    /**
+     * Print an image already converted to "ESC *" commands.
+     *
+     * @param stripes Bytes of the "ESC *" commands (Ex: result of EscPosPrinterCommands.rasterImageToEscAsterisk)
+     * @return Fluent interface
+     */
+    public EscPosPrinterCommands printEscAsteriskImage(byte[] stripes) throws EscPosConnectionException {
+        if (!this.printerConnection.isConnected() || stripes.length < 6) {
+            return this;
+        }
+
+        int stripeLength = ((stripes[3] & 0xFF) + (stripes[4] & 0xFF) * 256) * 3 + 6;
 
+        this.printerConnection.write(EscPosPrinterCommands.LINE_SPACING_24);
+        this.printerConnection.send();
+        this.imageFeedRows = 0;
+        for (int offset = 0; offset < stripes.length; offset += stripeLength) {
+            int length = Math.min(stripeLength, stripes.length - offset);
+            if (EscPosPrinterCommands.isBlank(stripes, offset + 5, length - 6)) {
+                this.imageFeedRows += 24;
+                continue;
+            }
+            this.writeImageFeed();
+            this.printerConnection.write(stripes, offset, length);
+            this.printerConnection.send();
+        }
+        this.writeImageFeed();
+        this.printerConnection.write(EscPosPrinterCommands.LINE_SPACING_30);
+        this.printerConnection.send();
         return this;
     }
 
+    /**
+     * Read a band of rows of an image, for each plane.
+     *
+     * @param image        Image to be read
+     * @param nbrPlanes    Number of planes to be read, 1 to read the black and white rows
+     * @param firstRow     Index of the first row of the band
+     * @param nbrRows      Number of rows of the band
+     * @param band         Array that receive the planes
+     * @param planeLength   Number of bytes of a plane in band
+     * @param headerLength  Number of bytes left before the rows of each plane
+     * @param nbrWhiteBytes Number of white bytes added on the left of each row
+     */
+    private static void readImageBand(IEscPosRasterImage image, int nbrPlanes, int firstRow, int nbrRows, byte[] band, int planeLength, int headerLength, int nbrWhiteBytes) {
+        if (nbrWhiteBytes == 0) {
+            EscPosPrinterCommands.readImageRows(image, nbrPlanes, firstRow, nbrRows, band, planeLength, headerLength);
+            return;
+        }
+
+        int imageBytesByLine = image.getBytesByLine(), bytesByLine = imageBytesByLine + nbrWhiteBytes;
+        for (int row = 0; row < nbrRows; ++row) {
+            int offset = headerLength + row * bytesByLine;
+            for (int plane = 0; plane < nbrPlanes; ++plane) {
+                Arrays.fill(band, plane * planeLength + offset, plane * planeLength + offset + nbrWhiteBytes, (byte) 0);
+            }
+            EscPosPrinterCommands.readImageRows(image, nbrPlanes, firstRow + row, 1, band, planeLength, offset + nbrWhiteBytes);
+        }
+    }
+
+    private static void readImageRows(IEscPosRasterImage image, int nbrPlanes, int firstRow, int nbrRows, byte[] band, int planeLength, int offset) {
+        if (nbrPlanes == 1) {
+            image.readRows(firstRow, nbrRows, band, offset);
+            return;
+        }
+        for (int plane = 0; plane < nbrPlanes; ++plane) {
+            ((IEscPosMultiToneImage) image).readPlaneRows(plane, firstRow, nbrRows, band, plane * planeLength + offset);
+        }
+    }
+
+    /**
+     * Send a band of rows of an image.
+     *
+     * @param imageCommand Command used to print the image, IMAGE_COMMAND_... constants
+     * @param band         Planes of the band, each one is the header followed by the rows
+     * @param nbrPlanes    Number of planes in band
+     * @param planeLength  Number of bytes of a plane in band
+     * @param headerLength Number of bytes before the rows of each plane
+     * @param nbrRows      Number of rows of the band
+     * @param bytesByLine  Number of bytes of a row
+     * @param stripe       Array that receive the "ESC *" command in "ESC *" mode
+     */
+    private void sendImageBand(int imageCommand, byte[] band, int nbrPlanes, int planeLength, int headerLength, int nbrRows, int bytesByLine, byte[] stripe) throws EscPosConnectionException {
+        if (imageCommand == EscPosPrinterCommands.IMAGE_COMMAND_ESC_ASTERISK) {
+            if (EscPosPrinterCommands.isBlank(band, 0, nbrRows * bytesByLine)) {
+                // A blank stripe is replaced by a paper feed of the same height as its line
+                this.imageFeedRows += 24;
+                return;
+            }
+            EscPosPrinterCommands.writeEscAsteriskStripe(band, 0, nbrRows, bytesByLine, stripe, 0);
+            this.writeImageFeed();
+            this.writeImageLeftMargin(this.imageMarginLeft);
+            this.printerConnection.write(stripe);
+            this.printerConnection.send();
+            return;
+        }
+
+        // A run of blank rows inside the band is fed only if it is longer than a command that restarts the image
+        int
+            commandLength = imageCommand == EscPosPrinterCommands.IMAGE_COMMAND_GS_L ? nbrPlanes * 15 + EscPosPrinterCommands.GRAPHICS_PRINT.length : 8,
+            minNbrBlankRows = (commandLength + 3) / (nbrPlanes * bytesByLine) + 1,
+            row = 0;
+
+        while (row < nbrRows) {
+            int nbrBlankRows = EscPosPrinterCommands.countBlankRows(band, nbrPlanes, planeLength, headerLength, bytesByLine, row, nbrRows);
+            this.imageFeedRows += nbrBlankRows;
+            row += nbrBlankRows;
+            if (row == nbrRows) {
+                break;
+            }
+
+            int endRow = row + 1;
+            while (endRow < nbrRows) {
+                nbrBlankRows = EscPosPrinterCommands.countBlankRows(band, nbrPlanes, planeLength, headerLength, bytesByLine, endRow, nbrRows);
+                if (nbrBlankRows == 0) {
+                    ++endRow;
+                } else if (nbrBlankRows >= minNbrBlankRows || endRow + nbrBlankRows == nbrRows) {
+                    break;
+                } else {
+                    endRow += nbrBlankRows;
+                }
+            }
+
+            this.sendRasterRows(imageCommand, band, nbrPlanes, planeLength, headerLength, bytesByLine, row, endRow);
+            row = endRow;
+        }
+    }
+
+    /**
+     * Send consecutive rows of a band with "GS v 0" or "GS ( L", without the white bytes on their sides. The rows are
+     * moved in band to be sent at once, after a header written in the bytes of the previous rows.
+     *
+     * @param imageCommand Command used to print the image, IMAGE_COMMAND_GS_V_0 or IMAGE_COMMAND_GS_L
+     * @param band         Planes of the band, each one is the header followed by the rows
+     * @param nbrPlanes    Number of planes in band
+     * @param planeLength  Number of bytes of a plane in band
+     * @param headerLength Number of bytes before the rows of each plane
+     * @param bytesByLine  Number of bytes of a row
+     * @param firstRow     Index of the first row to be sent
+     * @param endRow       Index of the row after the last row to be sent
+     */
+    private void sendRasterRows(int imageCommand, byte[] band, int nbrPlanes, int planeLength, int headerLength, int bytesByLine, int firstRow, int endRow) throws EscPosConnectionException {
+        int firstByte = bytesByLine, endByte = 0, nbrRows = endRow - firstRow;
+
+        for (int plane = 0; plane < nbrPlanes; ++plane) {
+            for (int row = firstRow, rowOffset = plane * planeLength + headerLength + firstRow * bytesByLine; row < endRow; ++row, rowOffset += bytesByLine) {
+                int i = 0;
+                while (i < firstByte && band[rowOffset + i] == 0) {
+                    ++i;
+                }
+                firstByte = i;
+                i = bytesByLine;
+                while (i > endByte && band[rowOffset + i - 1] == 0) {
+                    --i;
+                }
+                endByte = i;
+            }
+        }
+
+        if (this.profile.isRasterJustificationSupported() && !Arrays.equals(this.currentAlign, EscPosPrinterCommands.TEXT_ALIGN_LEFT)) {
+            // The printer place the rows from their width : removing white bytes would move the image
+            firstByte = 0;
+            endByte = bytesByLine;
+        } else if (!this.profile.isLeftMarginSupported()) {
+            firstByte = 0;
+        }
+
+        int width = endByte - firstByte;
+        this.writeImageFeed();
+        this.writeImageLeftMargin(this.imageMarginLeft + firstByte * 8);
+
+        for (int plane = 0; plane < nbrPlanes; ++plane) {
+            int offset = plane * planeLength + headerLength + firstRow * bytesByLine;
+            if (width != bytesByLine) {
+                for (int row = 0; row < nbrRows; ++row) {
+                    System.arraycopy(band, offset + row * bytesByLine + firstByte, band, offset + row * width, width);
+                }
+            }
+
+            offset -= headerLength;
+            if (imageCommand == EscPosPrinterCommands.IMAGE_COMMAND_GS_L) {
+                EscPosPrinterCommands.writeGSLHeader(band, offset, width, nbrRows, nbrPlanes > 1, plane);
+            } else {
+                EscPosPrinterCommands.writeGSv0Header(band, offset, width, nbrRows);
+            }
+            this.printerConnection.write(band, offset, headerLength + nbrRows * width);
+        }
+
+        if (imageCommand == EscPosPrinterCommands.IMAGE_COMMAND_GS_L) {
+            this.printerConnection.write(EscPosPrinterCommands.GRAPHICS_PRINT);
+        }
+        this.printerConnection.send();
+    }
+
+    /**
+     * Count the consecutive blank rows of a band, in all its planes.
+     *
+     * @return Number of blank rows from firstRow
+     */
+    private static int countBlankRows(byte[] band, int nbrPlanes, int planeLength, int headerLength, int bytesByLine, int firstRow, int nbrRows) {
+        int row = firstRow;
+        for (; row < nbrRows; ++row) {
+            for (int plane = 0; plane < nbrPlanes; ++plane) {
+                if (!EscPosPrinterCommands.isBlank(band, plane * planeLength + headerLength + row * bytesByLine, bytesByLine)) {
+                    return row - firstRow;
+                }
+            }
+        }
+        return row - firstRow;
+    }
+
+    private static boolean isBlank(byte[] bytes, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            if (bytes[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Feed the paper of the blank rows of the image that have not been sent.
+     */
+    private void writeImageFeed() {
+        while (this.imageFeedRows > 0) {
+            int dots = Math.min(255, this.imageFeedRows);
+            this.printerConnection.write(new byte[]{0x1B, 0x4A, (byte) dots});
+            this.imageFeedRows -= dots;
+        }
+    }
+
+    /**
+     * Set the left margin of the image rows with "GS L", if it is not already set.
+     *
+     * @param dots Left margin in dots
+     */
+    private void writeImageLeftMargin(int dots) {
+        if (dots == this.imageLeftMargin) {
+            return;
+        }
+        this.printerConnection.write(new byte[]{0x1D, 0x4C, (byte) (dots % 256), (byte) (dots / 256)});
+        this.imageLeftMargin = dots;
+    }
+
+    /**
+     * Write the header of a "GS ( L" command that stores a raster graphics in the print buffer (function 112).
+     *
+     * @param bytes       Array that receive the 15 bytes of the header
+     * @param offset      Index in bytes of the first byte of the header
+     * @param bytesByLine Number of bytes of a row
+     * @param nbrRows     Number of rows of the graphics
+     * @param multiTone   true for a plane of a multiple tone graphics, false for a black and white graphics
+     * @param plane       Index of the plane, 0 for the first color
+     */
+    private static void writeGSLHeader(byte[] bytes, int offset, int bytesByLine, int nbrRows, boolean multiTone, int plane) {
+        int
+            dotsByLine = bytesByLine * 8,
+            parametersLength = 10 + bytesByLine * nbrRows;
+
+        bytes[offset] = 0x1D;
+        bytes[offset + 1] = 0x28;
+        bytes[offset + 2] = 0x4C;
+        bytes[offset + 3] = (byte) (parametersLength % 256);
+        bytes[offset + 4] = (byte) (parametersLength / 256);
+        bytes[offset + 5] = 0x30;
+        bytes[offset + 6] = 0x70;
+        bytes[offset + 7] = (byte) (multiTone ? 0x34 : 0x30);
+        bytes[offset + 8] = 0x01;
+        bytes[offset + 9] = 0x01;
+        bytes[offset + 10] = (byte) (0x31 + plane);
+        bytes[offset + 11] = (byte) (dotsByLine % 256);
+        bytes[offset + 12] = (byte) (dotsByLine / 256);
+        bytes[offset + 13] = (byte) (nbrRows % 256);
+        bytes[offset + 14] = (byte) (nbrRows / 256);
+    }
+
     /**
      * Print a barcode with the connected printer.
      *
@@ -624,6 +1273,50 @@ public class EscPosPrinterCommands {
         return this;
     }
 
+    /**
+     * Print a barcode with the connected printer. If the printer profile says the printer cannot print this barcode
+     * type, the barcode is printed as an image, with its text printed above or below.
+     *
+     * @param barcode Instance of Class that implement Barcode
+     * @return Fluent interface
+     */
+    public EscPosPrinterCommands printBarcodeOrImage(Barcode barcode) throws EscPosEncodingException, EscPosConnectionException {
+        if (!this.printerConnection.isConnected()) {
+            return this;
+        }
+
+        if (this.profile.isBarcodeTypeSupported(barcode.getBarcodeType())) {
+            return this.printBarcode(barcode);
+        }
+        return this.printBarcodeImage(barcode);
+    }
+
+    /**
+     * Print a barcode as an image, aligned with the current "ESC a" alignment.
+     */
+    private EscPosPrinterCommands printBarcodeImage(Barcode barcode) throws EscPosEncodingException, EscPosConnectionException {
+        EscPosModuleImage image = barcode.getRasterImage();
+        int marginLeft = 0;
+
+        if (!this.profile.isRasterJustificationSupported() || this.useEscAsteriskCommand) {
+            int freeWidth = Math.max(0, barcode.getPrinterWidthPx() - image.getBytesByLine() * 8);
+            if (Arrays.equals(this.currentAlign, EscPosPrinterCommands.TEXT_ALIGN_CENTER)) {
+                marginLeft = freeWidth / 2;
+            } else if (Arrays.equals(this.currentAlign, EscPosPrinterCommands.TEXT_ALIGN_RIGHT)) {
+                marginLeft = freeWidth;
+            }
+        }
+
+        if (barcode.getTextPosition() == EscPosPrinterCommands.BARCODE_TEXT_POSITION_ABOVE) {
+            this.printText(barcode.getHumanReadableText()).newLine();
+        }
+        this.printImage(image, marginLeft);
+        if (barcode.getTextPosition() == EscPosPrinterCommands.BARCODE_TEXT_POSITION_BELOW) {
+            this.printText(barcode.getHumanReadableText());
+        }
+        return this;
+    }
+
 
     /**
      * Print a QR code with the connected printer.
@@ -634,6 +1327,19 @@ public class EscPosPrinterCommands {
      * @return Fluent interface
      */
     public EscPosPrinterCommands printQRCode(int qrCodeType, String text, int size) throws EscPosEncodingException {
+        return this.printQRCode(qrCodeType, text, size, EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_L);
+    }
+
+    /**
+     * Print a QR code with the connected printer.
+     *
+     * @param qrCodeType           Set the barcode type. Use EscPosPrinterCommands.QRCODE_... constants
+     * @param text                 String that contains QR code data
+     * @param size                 dot size of QR code pixel
+     * @param errorCorrectionLevel Error correction level. Use EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_... constants
+     * @return Fluent interface
+     */
+    public EscPosPrinterCommands printQRCode(int qrCodeType, String text, int size, int errorCorrectionLevel) throws EscPosEncodingException {
         if (!this.printerConnection.isConnected()) {
             return this;
         }
@@ -660,7 +1366,7 @@ public class EscPosPrinterCommands {
 
             this.printerConnection.write(new byte[]{0x1D, 0x28, 0x6B, 0x04, 0x00, 0x31, 0x41, (byte) qrCodeType, 0x00});
             this.printerConnection.write(new byte[]{0x1D, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x43, (byte) size});
-            this.printerConnection.write(new byte[]{0x1D, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x45, 0x30});
+            this.printerConnection.write(new byte[]{0x1D, 0x28, 0x6B, 0x03, 0x00, 0x31, 0x45, (byte) errorCorrectionLevel});
 
             byte[] qrCodeCommand = new byte[textBytes.length + 8];
             System.arraycopy(new byte[]{0x1D, 0x28, 0x6B, (byte) pL, (byte) pH, 0x31, 0x50, 0x30}, 0, qrCodeCommand, 0, 8);
@@ -674,6 +1380,56 @@ public class EscPosPrinterCommands {
         return this;
     }
 
+    /**
+     * Print a 2D code with the "GS ( k" commands of the connected printer : the symbol is set, its data is stored in
+     * the printer, then printed.
+     *
+     * @param barcode Instance of Class that extend Barcode2D
+     * @return Fluent interface
+     */
+    public EscPosPrinterCommands printBarcode2D(Barcode2D barcode) throws EscPosEncodingException {
+        if (!this.printerConnection.isConnected()) {
+            return this;
+        }
+
+        byte[] dataBytes;
+        try {
+            dataBytes = barcode.getData().getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            e.printStackTrace();
+            throw new EscPosEncodingException(e.getMessage());
+        }
+
+        int symbolType = barcode.getSymbolType();
+        for (byte[] setting : barcode.getCommandSettings()) {
+            this.writeGSkFunction(symbolType, setting);
+        }
+
+        byte[] storeFunction = new byte[dataBytes.length + 2];
+        storeFunction[0] = 0x50;
+        storeFunction[1] = 0x30;
+        System.arraycopy(dataBytes, 0, storeFunction, 2, dataBytes.length);
+        this.writeGSkFunction(symbolType, storeFunction);
+        this.writeGSkFunction(symbolType, new byte[]{0x51, 0x30});
+        return this;
+    }
+
+    /**
+     * Write a "GS ( k" function : the function code followed by its parameters.
+     */
+    private void writeGSkFunction(int symbolType, byte[] function) {
+        int commandLength = function.length + 1;
+        byte[] command = new byte[commandLength + 5];
+        command[0] = 0x1D;
+        command[1] = 0x28;
+        command[2] = 0x6B;
+        command[3] = (byte) (commandLength % 256);
+        command[4] = (byte) (commandLength / 256);
+        command[5] = (byte) symbolType;
+        System.arraycopy(function, 0, command, 6, function.length);
+        this.printerConnection.write(command);
+    }
+
     /**
      * Forces the transition to a new line with the connected printer.
      *
@@ -699,6 +1455,7 @@ public class EscPosPrinterCommands {
 
         if (align != null) {
             this.printerConnection.write(align);
+            this.currentAlign = align;
         }
         return this;
     }
@@ -716,7 +1473,7 @@ public class EscPosPrinterCommands {
 
         if (dots > 0) {
             this.printerConnection.write(new byte[]{0x1B, 0x4A, (byte) dots});
-            this.printerConnection.send(dots);
+            this.printerConnection.send(this.profile.getFeedTime(dots, this.printerDpi));
         }
 
         return this;
@@ -733,7 +1490,7 @@ public class EscPosPrinterCommands {
         }
 
         this.printerConnection.write(new byte[]{0x1D, 0x56, 0x01});
-        this.printerConnection.send(100);
+        this.printerConnection.send(this.profile.getCutTime());
         return this;
     }
 
@@ -753,9 +1510,16 @@ public class EscPosPrinterCommands {
     }
 
     /**
+     * Get the charset encoding of the texts : the one given to the constructor, or the default code page of the
+     * printer profile, or EscPosPrinterCommands.DEFAULT_CHARSET_ENCODING.
+     *
      * @return Charset encoding
      */
     public EscPosCharsetEncoding getCharsetEncoding() {
-        return this.charsetEncoding;
+        if (this.charsetEncoding != null) {
+            return this.charsetEncoding;
+        }
+        EscPosCharsetEncoding charsetEncoding = this.profile.getDefaultCharsetEncoding();
+        return charsetEncoding != null ? charsetEncoding : EscPosPrinterCommands.DEFAULT_CHARSET_ENCODING;
     }
 }
@@ -0,0 +1,98 @@
+package com.dantsu.escposprinter;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Model, firmware and type of a printer, as sent back by the printer to the "GS I" commands.
+ */
+public class EscPosPrinterIdentification {
+
+    private final String address;
+    private final String modelName;
+    private final String firmwareVersion;
+    private final int typeId;
+
+    /**
+     * Create new instance of EscPosPrinterIdentification.
+     *
+     * @param address         Address of the printer, null if unknown
+     * @param modelName       Model name sent back to "GS I 67", null if the printer did not answer
+     * @param firmwareVersion Firmware version sent back to "GS I 65", null if the printer did not answer
+     * @param typeId          Type ID sent back to "GS I 2", -1 if the printer did not answer
+     */
+    public EscPosPrinterIdentification(String address, String modelName, String firmwareVersion, int typeId) {
+        this.address = address;
+        this.modelName = modelName;
+        this.firmwareVersion = firmwareVersion;
+        this.typeId = typeId;
+    }
+
+    /**
+     * Read an identification written by toJson.
+     *
+     * @param json JSON description of the identification
+     * @return A new instance of EscPosPrinterIdentification
+     */
+    public static EscPosPrinterIdentification fromJson(JSONObject json) throws JSONException {
+        return new EscPosPrinterIdentification(
+            json.has("address") ? json.getString("address") : null,
+            json.has("modelName") ? json.getString("modelName") : null,
+            json.has("firmwareVersion") ? json.getString("firmwareVersion") : null,
+            json.optInt("typeId", -1)
+        );
+    }
+
+    /**
+     * Write the identification in JSON.
+     *
+     * @return JSON description of the identification
+     */
+    public JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("address", this.address);
+        json.put("modelName", this.modelName);
+        json.put("firmwareVersion", this.firmwareVersion);
+        json.put("typeId", this.typeId);
+        return json;
+    }
+
+    public String getAddress() {
+        return this.address;
+    }
+
+    public String getModelName() {
+        return this.modelName;
+    }
+
+    public String getFirmwareVersion() {
+        return this.firmwareVersion;
+    }
+
+    /**
+     * Get the type ID of the printer. Bit 1 is set when an autocutter is installed, the other bits depend on the printer.
+     *
+     * @return Type ID, -1 if the printer did not answer
+     */
+    public int getTypeId() {
+        return this.typeId;
+    }
+
+    /**
+     * Check if the printer sent back its model name.
+     *
+     * @return boolean
+     */
+    public boolean isIdentified() {
+        return this.modelName != null;
+    }
+
+    /**
+     * Get the profile of the printer model from the bundled profiles database.
+     *
+     * @return A new instance of EscPosPrinterProfile, or null if the printer is not identified or its model is unknown
+     */
+    public EscPosPrinterProfile getProfile() {
+        return this.modelName != null ? EscPosPrinterProfile.forModelName(this.modelName) : null;
+    }
+}
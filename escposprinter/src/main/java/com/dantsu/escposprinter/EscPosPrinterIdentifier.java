@@ -0,0 +1,264 @@
+package com.dantsu.escposprinter;
+
+import com.dantsu.escposprinter.connection.DeviceConnection;
+import com.dantsu.escposprinter.exceptions.EscPosConnectionException;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+
+/**
+ * Identify the connected printers with the "GS I" commands, and keep the result for each device address. A printer
+ * is queried once, the next connections to the same address get its identification without any exchange.
+ * <p>
+ * Identifications are kept in memory. If a directory is given, they are also written in it, so they remain available
+ * after the application restarts.
+ */
+public class EscPosPrinterIdentifier {
+
+    /**
+     * Default maximum time to wait for each answer of the printer, in milliseconds.
+     */
+    public static final int DEFAULT_RESPONSE_TIMEOUT = 1000;
+
+    private static final String FILE_EXTENSION = ".json";
+
+    private static final byte GS_I_TYPE_ID = 0x02;
+    private static final byte GS_I_FIRMWARE_VERSION = 0x41;
+    private static final byte GS_I_MODEL_NAME = 0x43;
+
+    private final HashMap<String, EscPosPrinterIdentification> identifications = new HashMap<String, EscPosPrinterIdentification>();
+    private final File directory;
+    private int responseTimeout = EscPosPrinterIdentifier.DEFAULT_RESPONSE_TIMEOUT;
+
+    /**
+     * Create new instance of EscPosPrinterIdentifier that keep the identifications in memory only.
+     */
+    public EscPosPrinterIdentifier() {
+        this(null);
+    }
+
+    /**
+     * Create new instance of EscPosPrinterIdentifier that keep the identifications in memory and in a directory.
+     *
+     * @param directory Directory where the identifications are written (Ex: new File(context.getFilesDir(), "escpos-printers")), null to keep them in memory only
+     */
+    public EscPosPrinterIdentifier(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Set the maximum time to wait for each answer of the printer.
+     *
+     * @param responseTimeout Time in milliseconds (Default : EscPosPrinterIdentifier.DEFAULT_RESPONSE_TIMEOUT)
+     * @return Fluent interface
+     */
+    public EscPosPrinterIdentifier setResponseTimeout(int responseTimeout) {
+        if (responseTimeout < 0) {
+            throw new IllegalArgumentException("Response timeout can't be negative.");
+        }
+        this.responseTimeout = responseTimeout;
+        return this;
+    }
+
+    /**
+     * Identify the printer of a connection. The printer is only queried if its address was never identified before.
+     * Printers that can't send data back (Ex: USB) are not identified. A printer that did not answer is not queried
+     * again until the application restarts.
+     *
+     * @param printerConnection Connected printer
+     * @return The identification of the printer
+     */
+    public EscPosPrinterIdentification identify(DeviceConnection printerConnection) throws EscPosConnectionException {
+        String address = printerConnection.getAddress();
+        if (address != null) {
+            EscPosPrinterIdentification identification = this.get(address);
+            if (identification != null) {
+                return identification;
+            }
+        }
+
+        if (!printerConnection.isConnected() || !printerConnection.isReadable()) {
+            return new EscPosPrinterIdentification(address, null, null, -1);
+        }
+
+        EscPosPrinterIdentification identification = this.query(printerConnection);
+        if (address != null) {
+            this.put(identification);
+        }
+        return identification;
+    }
+
+    /**
+     * Query the model name, the firmware version and the type ID of the printer, without using the kept
+     * identifications. The firmware version and the type ID are only queried if the printer sends its model name.
+     *
+     * @param printerConnection Connected printer that can send data back
+     * @return The identification of the printer
+     */
+    public EscPosPrinterIdentification query(DeviceConnection printerConnection) throws EscPosConnectionException {
+        printerConnection.clearReceivedData();
+
+        String modelName = this.queryText(printerConnection, EscPosPrinterIdentifier.GS_I_MODEL_NAME);
+        if (modelName == null) {
+            return new EscPosPrinterIdentification(printerConnection.getAddress(), null, null, -1);
+        }
+
+        String firmwareVersion = this.queryText(printerConnection, EscPosPrinterIdentifier.GS_I_FIRMWARE_VERSION);
+
+        printerConnection.write(new byte[]{0x1D, 0x49, EscPosPrinterIdentifier.GS_I_TYPE_ID});
+        printerConnection.send();
+        int typeId = printerConnection.read(this.responseTimeout);
+
+        return new EscPosPrinterIdentification(printerConnection.getAddress(), modelName, firmwareVersion, typeId);
+    }
+
+    /**
+     * Send a "GS I" command whose answer is a text : a 0x5F header, the text, then a NUL byte.
+     */
+    private String queryText(DeviceConnection printerConnection, byte function) throws EscPosConnectionException {
+        printerConnection.write(new byte[]{0x1D, 0x49, function});
+        printerConnection.send();
+
+        int b;
+        do {
+            b = printerConnection.read(this.responseTimeout);
+            if (b == -1) {
+                return null;
+            }
+        } while (b != 0x5F);
+
+        StringBuilder text = new StringBuilder();
+        while ((b = printerConnection.read(this.responseTimeout)) != 0x00) {
+            if (b == -1) {
+                return null;
+            }
+            text.append((char) b);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Get the identification of an address, from the memory or from the directory.
+     *
+     * @param address Address of the printer (see DeviceConnection.getAddress)
+     * @return The identification, null if the address was never identified
+     */
+    public EscPosPrinterIdentification get(String address) {
+        synchronized (this.identifications) {
+            EscPosPrinterIdentification identification = this.identifications.get(address);
+            if (identification != null || this.directory == null) {
+                return identification;
+            }
+        }
+
+        EscPosPrinterIdentification identification = this.readFile(this.getFile(address));
+        if (identification == null || !address.equals(identification.getAddress())) {
+            return null;
+        }
+        synchronized (this.identifications) {
+            this.identifications.put(address, identification);
+        }
+        return identification;
+    }
+
+    /**
+     * Keep the identification of a printer. Only the printers that sent back their model name are written in the
+     * directory, the others are kept in memory.
+     *
+     * @param identification Identification with an address
+     * @return Fluent interface
+     */
+    public EscPosPrinterIdentifier put(EscPosPrinterIdentification identification) {
+        synchronized (this.identifications) {
+            this.identifications.put(identification.getAddress(), identification);
+        }
+        if (this.directory != null && identification.isIdentified()) {
+            this.writeFile(this.getFile(identification.getAddress()), identification);
+        }
+        return this;
+    }
+
+    /**
+     * Forget the identification of an address : the printer will be queried at the next identify call.
+     *
+     * @param address Address of the printer (see DeviceConnection.getAddress)
+     * @return Fluent interface
+     */
+    public EscPosPrinterIdentifier remove(String address) {
+        synchronized (this.identifications) {
+            this.identifications.remove(address);
+        }
+        if (this.directory != null) {
+            this.getFile(address).delete();
+        }
+        return this;
+    }
+
+    private File getFile(String address) {
+        return new File(this.directory, address.replaceAll("[^A-Za-z0-9.-]", "_") + EscPosPrinterIdentifier.FILE_EXTENSION);
+    }
+
+    /**
+     * Read a file written by writeFile, null if it does not exist or is invalid.
+     */
+    private EscPosPrinterIdentification readFile(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            ByteArrayOutputStream json = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                json.write(buffer, 0, length);
+            }
+            return EscPosPrinterIdentification.fromJson(new JSONObject(json.toString("UTF-8")));
+        } catch (IOException | JSONException e) {
+            file.delete();
+            return null;
+        } finally {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    // Ignored, the file is already read
+                }
+            }
+        }
+    }
+
+    private void writeFile(File file, EscPosPrinterIdentification identification) {
+        synchronized (this.directory) {
+            if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+                return;
+            }
+            OutputStream outputStream = null;
+            try {
+                outputStream = new FileOutputStream(file);
+                outputStream.write(identification.toJson().toString().getBytes("UTF-8"));
+            } catch (IOException | JSONException e) {
+                e.printStackTrace();
+                file.delete();
+            } finally {
+                if (outputStream != null) {
+                    try {
+                        outputStream.close();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+}
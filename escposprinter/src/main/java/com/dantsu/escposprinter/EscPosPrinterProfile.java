@@ -0,0 +1,578 @@
+package com.dantsu.escposprinter;
+
+import com.dantsu.escposprinter.connection.DeviceConnection;
+import com.dantsu.escposprinter.textparser.PrinterTextParser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+
+/**
+ * Capabilities of a printer model. Optional commands are only used when the profile says they are available, otherwise
+ * the library falls back to the commands supported by all ESC/POS printers.
+ */
+public class EscPosPrinterProfile {
+
+    /**
+     * Name of the bundled JSON resource that describes the known printer models.
+     */
+    public static final String PROFILES_RESOURCE = "printer_profiles.json";
+
+    private static JSONObject bundledProfiles = null;
+
+    /**
+     * Get the profile of a printer model from the bundled profiles database.
+     *
+     * @param model Model identifier (Ex: "epson-tm-t20ii"), see EscPosPrinterProfile.getBundledModels()
+     * @return A new instance of EscPosPrinterProfile, or null if the model is unknown
+     */
+    public static EscPosPrinterProfile forModel(String model) {
+        JSONObject profile = EscPosPrinterProfile.getBundledProfiles().optJSONObject(model);
+        if (profile == null) {
+            return null;
+        }
+        try {
+            return EscPosPrinterProfile.fromJson(profile);
+        } catch (JSONException e) {
+            throw new IllegalStateException("Invalid bundled printer profile : " + model);
+        }
+    }
+
+    /**
+     * Get the profile of a printer model from the bundled profiles database, found by the model name the printer
+     * sends back (see EscPosPrinterIdentifier).
+     *
+     * @param modelName Model name (Ex: "TM-T20II"), case insensitive
+     * @return A new instance of EscPosPrinterProfile, or null if the model is unknown
+     */
+    public static EscPosPrinterProfile forModelName(String modelName) {
+        for (String model : EscPosPrinterProfile.getBundledModels()) {
+            JSONObject profile = EscPosPrinterProfile.getBundledProfiles().optJSONObject(model);
+            if (profile != null && profile.optString("name", "").equalsIgnoreCase(modelName)) {
+                return EscPosPrinterProfile.forModel(model);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the identifiers of the printer models of the bundled profiles database.
+     *
+     * @return Model identifiers
+     */
+    public static String[] getBundledModels() {
+        ArrayList<String> models = new ArrayList<String>();
+        Iterator<String> keys = EscPosPrinterProfile.getBundledProfiles().keys();
+        while (keys.hasNext()) {
+            models.add(keys.next());
+        }
+        return models.toArray(new String[0]);
+    }
+
+    private static synchronized JSONObject getBundledProfiles() {
+        if (EscPosPrinterProfile.bundledProfiles == null) {
+            InputStream inputStream = EscPosPrinterProfile.class.getResourceAsStream(EscPosPrinterProfile.PROFILES_RESOURCE);
+            if (inputStream == null) {
+                throw new IllegalStateException("Missing resource : " + EscPosPrinterProfile.PROFILES_RESOURCE);
+            }
+            try {
+                ByteArrayOutputStream json = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int length;
+                while ((length = inputStream.read(buffer)) != -1) {
+                    json.write(buffer, 0, length);
+                }
+                EscPosPrinterProfile.bundledProfiles = new JSONObject(json.toString("UTF-8"));
+            } catch (IOException | JSONException e) {
+                e.printStackTrace();
+                throw new IllegalStateException("Unable to read " + EscPosPrinterProfile.PROFILES_RESOURCE);
+            } finally {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return EscPosPrinterProfile.bundledProfiles;
+    }
+
+    /**
+     * Create a profile from its JSON description. Read the README.md for more information about the JSON format.
+     *
+     * @param json JSON description of the printer model
+     * @return A new instance of EscPosPrinterProfile
+     */
+    public static EscPosPrinterProfile fromJson(String json) throws JSONException {
+        return EscPosPrinterProfile.fromJson(new JSONObject(json));
+    }
+
+    /**
+     * Create a profile from its JSON description. Read the README.md for more information about the JSON format.
+     *
+     * @param json JSON description of the printer model
+     * @return A new instance of EscPosPrinterProfile
+     */
+    public static EscPosPrinterProfile fromJson(JSONObject json) throws JSONException {
+        EscPosPrinterProfile profile = new EscPosPrinterProfile();
+        profile
+            .setName(json.optString("name", profile.name))
+            .setInputBufferSize(json.optInt("inputBufferSize", profile.inputBufferSize))
+            .setTransferSpeed(json.optInt("transferSpeed", profile.transferSpeed))
+            .setPrintSpeed(json.optInt("printSpeed", profile.printSpeed))
+            .setCutTime(json.optInt("cutTime", profile.cutTime));
+
+        JSONObject commands = json.optJSONObject("commands");
+        if (commands != null) {
+            profile
+                .setGraphicsCommandSupported(commands.optBoolean("graphics", false))
+                .setNbrGraphicsTones(commands.optInt("graphicsTones", 2))
+                .setLeftMarginSupported(commands.optBoolean("leftMargin", false))
+                .setRasterJustificationSupported(commands.optBoolean("rasterJustification", false))
+                .setQRCodeCommandSupported(commands.optBoolean("qrCode", false))
+                .setPDF417CommandSupported(commands.optBoolean("pdf417", false))
+                .setDataMatrixCommandSupported(commands.optBoolean("dataMatrix", false))
+                .setAztecCommandSupported(commands.optBoolean("aztec", false));
+        }
+
+        JSONArray unsupportedBarcodes = json.optJSONArray("unsupportedBarcodes");
+        if (unsupportedBarcodes != null) {
+            for (int i = 0; i < unsupportedBarcodes.length(); ++i) {
+                profile.setBarcodeTypeSupported(EscPosPrinterProfile.getBarcodeType(unsupportedBarcodes.getString(i)), false);
+            }
+        }
+
+        JSONObject codePages = json.optJSONObject("codePages");
+        if (codePages != null) {
+            Iterator<String> charsetNames = codePages.keys();
+            while (charsetNames.hasNext()) {
+                String charsetName = charsetNames.next();
+                profile.setCodePage(charsetName, codePages.getInt(charsetName));
+            }
+        }
+        if (json.has("defaultCodePage")) {
+            profile.setDefaultCodePage(json.getString("defaultCodePage"));
+        }
+        return profile;
+    }
+
+    private static int getBarcodeType(String barcodeType) throws JSONException {
+        switch (barcodeType) {
+            case PrinterTextParser.ATTR_BARCODE_TYPE_UPCA:
+                return EscPosPrinterCommands.BARCODE_TYPE_UPCA;
+            case PrinterTextParser.ATTR_BARCODE_TYPE_UPCE:
+                return EscPosPrinterCommands.BARCODE_TYPE_UPCE;
+            case PrinterTextParser.ATTR_BARCODE_TYPE_EAN13:
+                return EscPosPrinterCommands.BARCODE_TYPE_EAN13;
+            case PrinterTextParser.ATTR_BARCODE_TYPE_EAN8:
+                return EscPosPrinterCommands.BARCODE_TYPE_EAN8;
+            case PrinterTextParser.ATTR_BARCODE_TYPE_39:
+                return EscPosPrinterCommands.BARCODE_TYPE_39;
+            case PrinterTextParser.ATTR_BARCODE_TYPE_ITF:
+                return EscPosPrinterCommands.BARCODE_TYPE_ITF;
+            case PrinterTextParser.ATTR_BARCODE_TYPE_CODABAR:
+                return EscPosPrinterCommands.BARCODE_TYPE_CODABAR;
+            case PrinterTextParser.ATTR_BARCODE_TYPE_93:
+                return EscPosPrinterCommands.BARCODE_TYPE_93;
+            case PrinterTextParser.ATTR_BARCODE_TYPE_128:
+                return EscPosPrinterCommands.BARCODE_TYPE_128;
+            default:
+                throw new JSONException("Invalid barcode type : " + barcodeType);
+        }
+    }
+
+    private String name = "";
+    private int inputBufferSize = 0;
+    private int transferSpeed = DeviceConnection.DEFAULT_TRANSFER_SPEED;
+    private int printSpeed = 0;
+    private int cutTime = 100;
+    private final HashMap<String, EscPosCharsetEncoding> codePages = new HashMap<String, EscPosCharsetEncoding>();
+    private EscPosCharsetEncoding defaultCharsetEncoding = null;
+
+    private boolean graphicsCommandSupported = false;
+    private int nbrGraphicsTones = 2;
+    private boolean leftMarginSupported = false;
+    private boolean rasterJustificationSupported = false;
+    private boolean qrCodeCommandSupported = false;
+    private boolean pdf417CommandSupported = false;
+    private boolean dataMatrixCommandSupported = false;
+    private boolean aztecCommandSupported = false;
+    private final HashSet<Integer> unsupportedBarcodeTypes = new HashSet<Integer>();
+
+    /**
+     * Set the model name of the printer.
+     *
+     * @param name Model name (Ex: "TM-T20II")
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setName(String name) {
+        this.name = name != null ? name : "";
+        return this;
+    }
+
+    /**
+     * Get the model name of the printer.
+     *
+     * @return Model name, empty if unknown
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Set the size of the input buffer of the printer. The connection only waits for the data that does not fit in
+     * this buffer.
+     *
+     * @param inputBufferSize Size in bytes, 0 if unknown
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setInputBufferSize(int inputBufferSize) {
+        if (inputBufferSize < 0) {
+            throw new IllegalArgumentException("Input buffer size can't be negative.");
+        }
+        this.inputBufferSize = inputBufferSize;
+        return this;
+    }
+
+    /**
+     * Get the size of the input buffer of the printer.
+     *
+     * @return Size in bytes, 0 if unknown
+     */
+    public int getInputBufferSize() {
+        return this.inputBufferSize;
+    }
+
+    /**
+     * Set how fast the printer processes the received data.
+     *
+     * @param transferSpeed Number of bytes per second (Default : DeviceConnection.DEFAULT_TRANSFER_SPEED)
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setTransferSpeed(int transferSpeed) {
+        if (transferSpeed <= 0) {
+            throw new IllegalArgumentException("Transfer speed must be positive.");
+        }
+        this.transferSpeed = transferSpeed;
+        return this;
+    }
+
+    /**
+     * Get how fast the printer processes the received data.
+     *
+     * @return Number of bytes per second
+     */
+    public int getTransferSpeed() {
+        return this.transferSpeed;
+    }
+
+    /**
+     * Set the print speed of the printer, used to wait for the end of the paper feeds.
+     *
+     * @param printSpeed Print speed in millimeters per second, 0 if unknown
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setPrintSpeed(int printSpeed) {
+        if (printSpeed < 0) {
+            throw new IllegalArgumentException("Print speed can't be negative.");
+        }
+        this.printSpeed = printSpeed;
+        return this;
+    }
+
+    /**
+     * Get the print speed of the printer.
+     *
+     * @return Print speed in millimeters per second, 0 if unknown
+     */
+    public int getPrintSpeed() {
+        return this.printSpeed;
+    }
+
+    /**
+     * Get the time the printer takes to feed the paper.
+     *
+     * @param dots       Distance to feed in dots
+     * @param printerDpi DPI of the printer
+     * @return Time in milliseconds : the distance at the print speed, or 1 millisecond per dot if the speed is unknown
+     */
+    public int getFeedTime(int dots, int printerDpi) {
+        if (this.printSpeed == 0) {
+            return dots;
+        }
+        return (int) Math.ceil(dots * 25400f / (printerDpi * this.printSpeed));
+    }
+
+    /**
+     * Set the time the printer takes to cut the paper.
+     *
+     * @param cutTime Time in milliseconds (Default : 100)
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setCutTime(int cutTime) {
+        if (cutTime < 0) {
+            throw new IllegalArgumentException("Cut time can't be negative.");
+        }
+        this.cutTime = cutTime;
+        return this;
+    }
+
+    /**
+     * Get the time the printer takes to cut the paper.
+     *
+     * @return Time in milliseconds
+     */
+    public int getCutTime() {
+        return this.cutTime;
+    }
+
+    /**
+     * Declare a code page of the printer.
+     *
+     * @param charsetName     Name of the charset encoding (Ex: windows-1252)
+     * @param escPosCharsetId Id of the code page for the "ESC t" command (Ex: 16)
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setCodePage(String charsetName, int escPosCharsetId) {
+        this.codePages.put(charsetName, new EscPosCharsetEncoding(charsetName, escPosCharsetId));
+        return this;
+    }
+
+    /**
+     * Get the charset encoding of a code page of the printer.
+     *
+     * @param charsetName Name of the charset encoding (Ex: windows-1252)
+     * @return EscPosCharsetEncoding instance, or null if the printer does not have this code page
+     */
+    public EscPosCharsetEncoding getCharsetEncoding(String charsetName) {
+        return this.codePages.get(charsetName);
+    }
+
+    /**
+     * Set the code page used when no charset encoding is given to EscPosPrinterCommands.
+     *
+     * @param charsetName Name of a charset encoding declared with setCodePage
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setDefaultCodePage(String charsetName) {
+        EscPosCharsetEncoding charsetEncoding = this.codePages.get(charsetName);
+        if (charsetEncoding == null) {
+            throw new IllegalArgumentException("Unknown code page : " + charsetName);
+        }
+        this.defaultCharsetEncoding = charsetEncoding;
+        return this;
+    }
+
+    /**
+     * Get the charset encoding used when no charset encoding is given to EscPosPrinterCommands.
+     *
+     * @return EscPosCharsetEncoding instance, or null if the profile has no default code page
+     */
+    public EscPosCharsetEncoding getDefaultCharsetEncoding() {
+        return this.defaultCharsetEncoding;
+    }
+
+    /**
+     * Set if the printer supports the "GS ( L" graphics commands.
+     *
+     * @param supported true to print images with "GS ( L", false to use "GS v 0"
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setGraphicsCommandSupported(boolean supported) {
+        this.graphicsCommandSupported = supported;
+        return this;
+    }
+
+    /**
+     * Check if the printer supports the "GS ( L" graphics commands.
+     *
+     * @return boolean
+     */
+    public boolean isGraphicsCommandSupported() {
+        return this.graphicsCommandSupported;
+    }
+
+    /**
+     * Set the number of tones the printer can print with the "GS ( L" multiple tone graphics.
+     *
+     * @param nbrTones 2 for black and white only, 4 for 4-level grayscale
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setNbrGraphicsTones(int nbrTones) {
+        if (nbrTones != 2 && nbrTones != 4) {
+            throw new IllegalArgumentException("Number of graphics tones must be 2 or 4.");
+        }
+        this.nbrGraphicsTones = nbrTones;
+        return this;
+    }
+
+    /**
+     * Get the number of tones the printer can print with the "GS ( L" multiple tone graphics.
+     *
+     * @return 2 or 4
+     */
+    public int getNbrGraphicsTones() {
+        return this.nbrGraphicsTones;
+    }
+
+    /**
+     * Set if the printer supports the "GS L" left margin command, with a margin in dots. Images are then printed without
+     * their white columns on the left.
+     *
+     * @param supported true to move images with "GS L", false to send their white columns
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setLeftMarginSupported(boolean supported) {
+        this.leftMarginSupported = supported;
+        return this;
+    }
+
+    /**
+     * Check if the printer supports the "GS L" left margin command.
+     *
+     * @return boolean
+     */
+    public boolean isLeftMarginSupported() {
+        return this.leftMarginSupported;
+    }
+
+    /**
+     * Set if the "ESC a" justification applies to the raster images ("GS v 0" and "GS ( L") of the printer. Centered
+     * and right aligned images are then justified by the printer instead of being shifted with white bytes.
+     *
+     * @param supported true to align images with "ESC a", false to shift them with white bytes or "GS L"
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setRasterJustificationSupported(boolean supported) {
+        this.rasterJustificationSupported = supported;
+        return this;
+    }
+
+    /**
+     * Check if the "ESC a" justification applies to the raster images of the printer.
+     *
+     * @return boolean
+     */
+    public boolean isRasterJustificationSupported() {
+        return this.rasterJustificationSupported;
+    }
+
+    /**
+     * Set if the printer supports the "GS ( k" QR code commands. The &lt;qrcode&gt; tags are then printed by the
+     * printer from their data instead of being sent as images.
+     *
+     * @param supported true to print QR codes with "GS ( k", false to print them as images
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setQRCodeCommandSupported(boolean supported) {
+        this.qrCodeCommandSupported = supported;
+        return this;
+    }
+
+    /**
+     * Check if the printer supports the "GS ( k" QR code commands.
+     *
+     * @return boolean
+     */
+    public boolean isQRCodeCommandSupported() {
+        return this.qrCodeCommandSupported;
+    }
+
+    /**
+     * Set if the printer supports the "GS ( k" PDF417 commands. The &lt;pdf417&gt; tags are then printed by the
+     * printer from their data instead of being sent as images.
+     *
+     * @param supported true to print PDF417 codes with "GS ( k", false to print them as images
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setPDF417CommandSupported(boolean supported) {
+        this.pdf417CommandSupported = supported;
+        return this;
+    }
+
+    /**
+     * Check if the printer supports the "GS ( k" PDF417 commands.
+     *
+     * @return boolean
+     */
+    public boolean isPDF417CommandSupported() {
+        return this.pdf417CommandSupported;
+    }
+
+    /**
+     * Set if the printer supports the "GS ( k" DataMatrix commands. The &lt;datamatrix&gt; tags are then printed by the
+     * printer from their data instead of being sent as images.
+     *
+     * @param supported true to print DataMatrix codes with "GS ( k", false to print them as images
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setDataMatrixCommandSupported(boolean supported) {
+        this.dataMatrixCommandSupported = supported;
+        return this;
+    }
+
+    /**
+     * Check if the printer supports the "GS ( k" DataMatrix commands.
+     *
+     * @return boolean
+     */
+    public boolean isDataMatrixCommandSupported() {
+        return this.dataMatrixCommandSupported;
+    }
+
+    /**
+     * Set if the printer supports the "GS ( k" Aztec commands. The &lt;aztec&gt; tags are then printed by the
+     * printer from their data instead of being sent as images.
+     *
+     * @param supported true to print Aztec codes with "GS ( k", false to print them as images
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setAztecCommandSupported(boolean supported) {
+        this.aztecCommandSupported = supported;
+        return this;
+    }
+
+    /**
+     * Check if the printer supports the "GS ( k" Aztec commands.
+     *
+     * @return boolean
+     */
+    public boolean isAztecCommandSupported() {
+        return this.aztecCommandSupported;
+    }
+
+    /**
+     * Set if the printer can print a barcode type with the "GS k" command. All types are supported by default, the
+     * barcodes of the unsupported types are printed as images.
+     *
+     * @param barcodeType Barcode type. Use EscPosPrinterCommands.BARCODE_TYPE_... constants
+     * @param supported   true to print the barcodes with "GS k", false to print them as images
+     * @return Fluent interface
+     */
+    public EscPosPrinterProfile setBarcodeTypeSupported(int barcodeType, boolean supported) {
+        if (supported) {
+            this.unsupportedBarcodeTypes.remove(barcodeType);
+        } else {
+            this.unsupportedBarcodeTypes.add(barcodeType);
+        }
+        return this;
+    }
+
+    /**
+     * Check if the printer can print a barcode type with the "GS k" command.
+     *
+     * @param barcodeType Barcode type. Use EscPosPrinterCommands.BARCODE_TYPE_... constants
+     * @return boolean
+     */
+    public boolean isBarcodeTypeSupported(int barcodeType) {
+        return !this.unsupportedBarcodeTypes.contains(barcodeType);
+    }
+}
@@ -3,6 +3,14 @@ package com.dantsu.escposprinter;
 
 import android.graphics.Bitmap;
 
+import com.dantsu.escposprinter.dither.DitherAlgorithm;
+import com.dantsu.escposprinter.dither.DitherBayer;
+import com.dantsu.escposprinter.dither.DitherClassic;
+import com.dantsu.escposprinter.dither.DitherMultiToneImage;
+import com.dantsu.escposprinter.dither.DitherRasterImage;
+
+import java.util.concurrent.ExecutorService;
+
 public abstract class EscPosPrinterSize {
 
     public static final float INCH_TO_MM = 25.4f;
@@ -12,6 +20,8 @@ public abstract class EscPosPrinterSize {
     protected int printerNbrCharactersPerLine;
     protected int printerWidthPx;
     protected int printerCharSizeWidthPx;
+    protected ExecutorService imageExecutorService = null;
+    protected EscPosImageCache imageCache = null;
 
     protected EscPosPrinterSize(int printerDpi, float printerWidthMM, int printerNbrCharactersPerLine) {
         this.printerDpi = printerDpi;
@@ -78,6 +88,28 @@ public abstract class EscPosPrinterSize {
     }
 
 
+    /**
+     * Resize an image to fit the printer width. Images are printed by bands of rows, so the height is not limited.
+     *
+     * @param bitmap Instance of Bitmap
+     * @return The Bitmap if the size is correct, an area average resized view of the Bitmap otherwise
+     */
+    private IEscPosArgbImage fitBitmapSize(Bitmap bitmap) {
+        return this.fitImageSize(new EscPosBitmapImage(bitmap));
+    }
+
+    private IEscPosArgbImage fitImageSize(IEscPosArgbImage image) {
+        int bitmapWidth = image.getWidth(),
+                bitmapHeight = image.getHeight(),
+                maxWidth = this.printerWidthPx;
+
+        if (bitmapWidth > maxWidth) {
+            bitmapHeight = Math.max(1, Math.round(((float) bitmapHeight) * ((float) maxWidth) / ((float) bitmapWidth)));
+            image = new EscPosScaledImage(image, maxWidth, bitmapHeight);
+        }
+        return image;
+    }
+
     /**
      * Convert Bitmap object to ESC/POS image.
      *
@@ -86,27 +118,53 @@ public abstract class EscPosPrinterSize {
      * @return Bytes contain the image in ESC/POS command
      */
     public byte[] bitmapToBytes(Bitmap bitmap, boolean gradient) {
-        boolean isSizeEdit = false;
-        int bitmapWidth = bitmap.getWidth(),
-                bitmapHeight = bitmap.getHeight(),
-                maxWidth = this.printerWidthPx,
-                maxHeight = 2048;
+        return this.bitmapToBytes(bitmap, new DitherClassic(gradient));
+    }
 
-        if (bitmapWidth > maxWidth) {
-            bitmapHeight = Math.round(((float) bitmapHeight) * ((float) maxWidth) / ((float) bitmapWidth));
-            bitmapWidth = maxWidth;
-            isSizeEdit = true;
-        }
-        if (bitmapHeight > maxHeight) {
-            bitmapWidth = Math.round(((float) bitmapWidth) * ((float) maxHeight) / ((float) bitmapHeight));
-            bitmapHeight = maxHeight;
-            isSizeEdit = true;
+    /**
+     * Convert Bitmap object to ESC/POS image.
+     *
+     * @param bitmap Instance of Bitmap
+     * @param ditherAlgorithm Algorithm used to convert the colors to black and white dots (Ex: new DitherFloydSteinberg())
+     * @return Bytes contain the image in ESC/POS command
+     */
+    public byte[] bitmapToBytes(Bitmap bitmap, DitherAlgorithm ditherAlgorithm) {
+        IEscPosArgbImage bitmapImage = new EscPosBitmapImage(bitmap), image = this.fitImageSize(bitmapImage);
+        if (this.imageCache == null) {
+            return EscPosPrinterCommands.bitmapToBytes(image, ditherAlgorithm, this.imageExecutorService);
         }
 
-        if (isSizeEdit) {
-            bitmap = Bitmap.createScaledBitmap(bitmap, bitmapWidth, bitmapHeight, true);
+        String key = EscPosImageCache.computeKey(bitmapImage, image.getWidth(), image.getHeight(), ditherAlgorithm);
+        byte[] imageBytes = this.imageCache.get(key);
+        if (imageBytes == null) {
+            imageBytes = EscPosPrinterCommands.bitmapToBytes(image, ditherAlgorithm, this.imageExecutorService);
+            this.imageCache.put(key, imageBytes);
         }
+        return imageBytes;
+    }
+
+    /**
+     * Prepare a Bitmap to be dithered band by band while it is printed, instead of being converted at once. Only one
+     * band of dots is kept in memory. Register the result in EscPosImageRegistry to print it.
+     *
+     * @param bitmap Instance of Bitmap
+     * @param ditherAlgorithm Algorithm used to convert the colors to black and white dots (Ex: new DitherFloydSteinberg())
+     * @return Image read row by row while it is printed
+     */
+    public IEscPosRasterImage bitmapToRasterImage(Bitmap bitmap, DitherAlgorithm ditherAlgorithm) {
+        return new DitherRasterImage(this.fitBitmapSize(bitmap), ditherAlgorithm);
+    }
 
-        return EscPosPrinterCommands.bitmapToBytes(bitmap, gradient);
+    /**
+     * Prepare a Bitmap to be printed with 4 tones of gray, dithered band by band while it is printed. Printers without
+     * multiple tone graphics (see EscPosPrinterProfile) print it in black and white. Register the result in
+     * EscPosImageRegistry to print it.
+     *
+     * @param bitmap Instance of Bitmap
+     * @param ditherBayer Ordered dithering used to choose the tones (Ex: new DitherBayer())
+     * @return Image read row by row while it is printed
+     */
+    public IEscPosMultiToneImage bitmapToMultiToneImage(Bitmap bitmap, DitherBayer ditherBayer) {
+        return new DitherMultiToneImage(this.fitBitmapSize(bitmap), ditherBayer);
     }
 }
@@ -0,0 +1,89 @@
+package com.dantsu.escposprinter;
+
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+
+/**
+ * QR code printed as a raster image, with the data and the settings needed to print it with the "GS ( k" commands.
+ */
+public class EscPosQRCodeImage extends EscPosModuleImage {
+
+    private String data;
+    private int nbrModules;
+    private int errorCorrectionLevel;
+
+    /**
+     * Create new instance of EscPosQRCodeImage.
+     *
+     * @param data       Data encoded in the QR code
+     * @param matrix     Modules of the QR code
+     * @param moduleSize Number of dots of the side of a module
+     */
+    public EscPosQRCodeImage(String data, ByteMatrix matrix, int moduleSize) {
+        this(data, matrix, moduleSize, 0, EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_L);
+    }
+
+    /**
+     * Create new instance of EscPosQRCodeImage.
+     *
+     * @param data                 Data encoded in the QR code
+     * @param matrix               Modules of the QR code
+     * @param moduleSize           Number of dots of the side of a module
+     * @param quietZone            Number of white modules around the QR code
+     * @param errorCorrectionLevel Error correction level used to encode the QR code. Use EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_... constants
+     */
+    public EscPosQRCodeImage(String data, ByteMatrix matrix, int moduleSize, int quietZone, int errorCorrectionLevel) {
+        super(EscPosQRCodeImage.toBitMatrix(matrix), moduleSize, moduleSize, quietZone);
+        this.data = data;
+        this.nbrModules = matrix.getWidth();
+        this.errorCorrectionLevel = errorCorrectionLevel;
+    }
+
+    public String getData() {
+        return this.data;
+    }
+
+    /**
+     * Get the number of dots of the side of a module.
+     *
+     * @return int
+     */
+    public int getModuleSize() {
+        return this.getModuleWidth();
+    }
+
+    /**
+     * Get the number of modules of the side of the QR code, without the quiet zone.
+     *
+     * @return int
+     */
+    public int getNbrModules() {
+        return this.nbrModules;
+    }
+
+    /**
+     * Get the error correction level used to encode the QR code.
+     *
+     * @return EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_... constant
+     */
+    public int getErrorCorrectionLevel() {
+        return this.errorCorrectionLevel;
+    }
+
+    /**
+     * Convert the modules of a QR code to a BitMatrix.
+     */
+    private static BitMatrix toBitMatrix(ByteMatrix matrix) {
+        int width = matrix.getWidth(), height = matrix.getHeight();
+        byte[][] modules = matrix.getArray();
+        BitMatrix bitMatrix = new BitMatrix(width, height);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                if (modules[y][x] == 1) {
+                    bitMatrix.set(x, y);
+                }
+            }
+        }
+        return bitMatrix;
+    }
+}
@@ -0,0 +1,50 @@
+package com.dantsu.escposprinter;
+
+/**
+ * Image already converted to a "GS v 0" command, read row by row.
+ */
+public class EscPosRasterImage implements IEscPosRasterImage {
+
+    private byte[] image;
+    private int bytesByLine;
+    private int height;
+
+    /**
+     * Create new instance of EscPosRasterImage. The array is not copied and must not be modified after.
+     *
+     * @param image Bytes contain the image in ESC/POS command (Ex: result of EscPosPrinterSize.bitmapToBytes)
+     */
+    public EscPosRasterImage(byte[] image) {
+        if (image == null || image.length < 8) {
+            throw new IllegalArgumentException("Invalid image : missing GS v 0 header.");
+        }
+
+        this.bytesByLine = (image[4] & 0xFF) + (image[5] & 0xFF) * 256;
+        this.height = (image[6] & 0xFF) + (image[7] & 0xFF) * 256;
+
+        long expectedLength = 8L + (long) this.bytesByLine * this.height;
+        if (image.length < expectedLength) {
+            throw new IllegalArgumentException("Invalid image : " + expectedLength + " bytes expected.");
+        }
+        this.image = image;
+    }
+
+    @Override
+    public int getBytesByLine() {
+        return this.bytesByLine;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    @Override
+    public void readRows(int firstRow, int nbrRows, byte[] buffer, int offset) {
+        System.arraycopy(this.image, 8 + firstRow * this.bytesByLine, buffer, offset, nbrRows * this.bytesByLine);
+    }
+
+    public byte[] getBytes() {
+        return this.image;
+    }
+}
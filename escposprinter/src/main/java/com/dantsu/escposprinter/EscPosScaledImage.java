@@ -0,0 +1,111 @@
+package com.dantsu.escposprinter;
+
+/**
+ * Image resized with an area average : each pixel is the mean of the source pixels it covers, weighted by the covered
+ * area. Rows are computed when they are read, from the source rows they cover, so the resized image is never stored.
+ * <p>
+ * Colors are averaged with their alpha (premultiplied), so transparent pixels do not darken their neighbours.
+ */
+public class EscPosScaledImage implements IEscPosArgbImage {
+
+    private IEscPosArgbImage source;
+    private int width;
+    private int height;
+    private int[] firstColumns;
+    private int[] endColumns;
+
+    /**
+     * Create new instance of EscPosScaledImage.
+     *
+     * @param source Image to be resized
+     * @param width  Width of the resized image in pixels
+     * @param height Height of the resized image in pixels
+     */
+    public EscPosScaledImage(IEscPosArgbImage source, int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Invalid image size : " + width + "x" + height + ".");
+        }
+        this.source = source;
+        this.width = width;
+        this.height = height;
+
+        // Pixel x covers the source columns [x * sourceWidth / width, (x + 1) * sourceWidth / width)
+        int sourceWidth = source.getWidth();
+        this.firstColumns = new int[width];
+        this.endColumns = new int[width];
+        for (int x = 0; x < width; ++x) {
+            this.firstColumns[x] = (int) ((long) x * sourceWidth / width);
+            this.endColumns[x] = (int) (((long) (x + 1) * sourceWidth + width - 1) / width);
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Compute a row of the resized image. This method can be called from several threads at the same time.
+     */
+    @Override
+    public void getRow(int y, int[] row) {
+        int
+            sourceWidth = this.source.getWidth(),
+            sourceHeight = this.source.getHeight(),
+            firstSourceRow = (int) ((long) y * sourceHeight / this.height),
+            endSourceRow = (int) (((long) (y + 1) * sourceHeight + this.height - 1) / this.height);
+        int[] sourceRow = new int[sourceWidth];
+        // Sums of alpha and of premultiplied red, green and blue, 4 items by pixel
+        long[] sums = new long[this.width * 4];
+
+        // Positions are counted in 1 / (width * height) of source pixel, so all the weights are integers
+        long rowStart = (long) y * sourceHeight, rowEnd = rowStart + sourceHeight;
+
+        for (int sourceY = firstSourceRow; sourceY < endSourceRow; ++sourceY) {
+            long rowWeight = Math.min(rowEnd, (long) (sourceY + 1) * this.height) - Math.max(rowStart, (long) sourceY * this.height);
+            this.source.getRow(sourceY, sourceRow);
+
+            for (int x = 0, i = 0; x < this.width; ++x, i += 4) {
+                long columnStart = (long) x * sourceWidth, columnEnd = columnStart + sourceWidth;
+                long alphaSum = 0, redSum = 0, greenSum = 0, blueSum = 0;
+
+                for (int sourceX = this.firstColumns[x]; sourceX < this.endColumns[x]; ++sourceX) {
+                    int
+                        color = sourceRow[sourceX],
+                        weightedAlpha = (color >>> 24) * (int) (Math.min(columnEnd, (long) (sourceX + 1) * this.width) - Math.max(columnStart, (long) sourceX * this.width));
+                    alphaSum += weightedAlpha;
+                    redSum += ((color >> 16) & 0xFF) * weightedAlpha;
+                    greenSum += ((color >> 8) & 0xFF) * weightedAlpha;
+                    blueSum += (color & 0xFF) * weightedAlpha;
+                }
+
+                sums[i] += alphaSum * rowWeight;
+                sums[i + 1] += redSum * rowWeight;
+                sums[i + 2] += greenSum * rowWeight;
+                sums[i + 3] += blueSum * rowWeight;
+            }
+        }
+
+        long area = (long) sourceWidth * sourceHeight;
+        for (int x = 0, i = 0; x < this.width; ++x, i += 4) {
+            long alphaSum = sums[i];
+            if (alphaSum == 0) {
+                row[x] = 0x00FFFFFF;
+                continue;
+            }
+            row[x] = (int) ((alphaSum + area / 2) / area) << 24 |
+                (int) ((sums[i + 1] + alphaSum / 2) / alphaSum) << 16 |
+                (int) ((sums[i + 2] + alphaSum / 2) / alphaSum) << 8 |
+                (int) ((sums[i + 3] + alphaSum / 2) / alphaSum);
+        }
+    }
+
+    public IEscPosArgbImage getSource() {
+        return this.source;
+    }
+}
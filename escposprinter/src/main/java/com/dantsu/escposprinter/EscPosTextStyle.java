@@ -0,0 +1,158 @@
+package com.dantsu.escposprinter;
+
+/**
+ * Immutable text style (size, color, reverse color, weight, underline and double strike).
+ * <p>
+ * Instances are interned : two equal styles are always the same instance and can be compared with ==.
+ */
+public final class EscPosTextStyle {
+
+    private static final EscPosTextStyle[][] textStyles = new EscPosTextStyle[256][];
+
+    /**
+     * Get the text style instance of these style values.
+     *
+     * @param textSize         Last byte of the EscPosPrinterCommands.TEXT_SIZE_... command
+     * @param textColor        Last byte of the EscPosPrinterCommands.TEXT_COLOR_... command
+     * @param textReverseColor Last byte of the EscPosPrinterCommands.TEXT_COLOR_REVERSE_... command
+     * @param textBold         Last byte of the EscPosPrinterCommands.TEXT_WEIGHT_... command
+     * @param textUnderline    Last byte of the EscPosPrinterCommands.TEXT_UNDERLINE_... command
+     * @param textDoubleStrike Last byte of the EscPosPrinterCommands.TEXT_DOUBLE_STRIKE_... command
+     * @return Shared instance of EscPosTextStyle
+     */
+    public static EscPosTextStyle get(int textSize, int textColor, int textReverseColor, int textBold, int textUnderline, int textDoubleStrike) {
+        textSize &= 0xFF;
+        int index = (textColor & 1) | (textReverseColor & 1) << 1 | (textBold & 1) << 2 | (textDoubleStrike & 1) << 3 | (textUnderline & 3) << 4;
+
+        synchronized (EscPosTextStyle.textStyles) {
+            EscPosTextStyle[] textStylesPage = EscPosTextStyle.textStyles[textSize];
+            if (textStylesPage == null) {
+                textStylesPage = new EscPosTextStyle[64];
+                EscPosTextStyle.textStyles[textSize] = textStylesPage;
+            }
+            EscPosTextStyle textStyle = textStylesPage[index];
+            if (textStyle == null) {
+                textStyle = new EscPosTextStyle(textSize, index);
+                textStylesPage[index] = textStyle;
+            }
+            return textStyle;
+        }
+    }
+
+    /**
+     * Get the text style instance of these style commands.
+     *
+     * @param textSize         Set the text size. Use EscPosPrinterCommands.TEXT_SIZE_... constants
+     * @param textColor        Set the text color. Use EscPosPrinterCommands.TEXT_COLOR_... constants
+     * @param textReverseColor Set the background and text color. Use EscPosPrinterCommands.TEXT_COLOR_REVERSE_... constants
+     * @param textBold         Set the text weight. Use EscPosPrinterCommands.TEXT_WEIGHT_... constants
+     * @param textUnderline    Set the underlining of the text. Use EscPosPrinterCommands.TEXT_UNDERLINE_... constants
+     * @param textDoubleStrike Set the double strike of the text. Use EscPosPrinterCommands.TEXT_DOUBLE_STRIKE_... constants
+     * @return Shared instance of EscPosTextStyle
+     */
+    public static EscPosTextStyle get(byte[] textSize, byte[] textColor, byte[] textReverseColor, byte[] textBold, byte[] textUnderline, byte[] textDoubleStrike) {
+        return EscPosTextStyle.get(
+            EscPosTextStyle.getCommandValue(textSize),
+            EscPosTextStyle.getCommandValue(textColor),
+            EscPosTextStyle.getCommandValue(textReverseColor),
+            EscPosTextStyle.getCommandValue(textBold),
+            EscPosTextStyle.getCommandValue(textUnderline),
+            EscPosTextStyle.getCommandValue(textDoubleStrike)
+        );
+    }
+
+    /**
+     * Get the parameter byte of a style command, 0 if command is null.
+     *
+     * @param command Style command (Ex: EscPosPrinterCommands.TEXT_WEIGHT_BOLD)
+     * @return int
+     */
+    public static int getCommandValue(byte[] command) {
+        if (command == null || command.length < 3) {
+            return 0;
+        }
+        return command[2] & 0xFF;
+    }
+
+    private static byte[] getCommand(byte[][] commands, byte firstByte, byte secondByte, int value) {
+        for (byte[] command : commands) {
+            if ((command[2] & 0xFF) == value) {
+                return command;
+            }
+        }
+        return new byte[]{firstByte, secondByte, (byte) value};
+    }
+
+
+    private final int textSize;
+    private final int index;
+    private final byte[] textSizeCommand;
+    private final byte[] textColorCommand;
+    private final byte[] textReverseColorCommand;
+    private final byte[] textBoldCommand;
+    private final byte[] textUnderlineCommand;
+    private final byte[] textDoubleStrikeCommand;
+
+    private EscPosTextStyle(int textSize, int index) {
+        this.textSize = textSize;
+        this.index = index;
+        this.textSizeCommand = EscPosTextStyle.getCommand(
+            new byte[][]{
+                EscPosPrinterCommands.TEXT_SIZE_NORMAL, EscPosPrinterCommands.TEXT_SIZE_DOUBLE_HEIGHT, EscPosPrinterCommands.TEXT_SIZE_DOUBLE_WIDTH,
+                EscPosPrinterCommands.TEXT_SIZE_BIG, EscPosPrinterCommands.TEXT_SIZE_BIG_2, EscPosPrinterCommands.TEXT_SIZE_BIG_3,
+                EscPosPrinterCommands.TEXT_SIZE_BIG_4, EscPosPrinterCommands.TEXT_SIZE_BIG_5, EscPosPrinterCommands.TEXT_SIZE_BIG_6
+            },
+            (byte) 0x1D, (byte) 0x21, textSize
+        );
+        this.textColorCommand = (index & 1) == 0 ? EscPosPrinterCommands.TEXT_COLOR_BLACK : EscPosPrinterCommands.TEXT_COLOR_RED;
+        this.textReverseColorCommand = (index & 2) == 0 ? EscPosPrinterCommands.TEXT_COLOR_REVERSE_OFF : EscPosPrinterCommands.TEXT_COLOR_REVERSE_ON;
+        this.textBoldCommand = (index & 4) == 0 ? EscPosPrinterCommands.TEXT_WEIGHT_NORMAL : EscPosPrinterCommands.TEXT_WEIGHT_BOLD;
+        this.textDoubleStrikeCommand = (index & 8) == 0 ? EscPosPrinterCommands.TEXT_DOUBLE_STRIKE_OFF : EscPosPrinterCommands.TEXT_DOUBLE_STRIKE_ON;
+        this.textUnderlineCommand = EscPosTextStyle.getCommand(
+            new byte[][]{EscPosPrinterCommands.TEXT_UNDERLINE_OFF, EscPosPrinterCommands.TEXT_UNDERLINE_ON, EscPosPrinterCommands.TEXT_UNDERLINE_LARGE},
+            (byte) 0x1B, (byte) 0x2D, (index >> 4) & 3
+        );
+    }
+
+    /**
+     * Get the packed value of the style, two styles with the same packed value are the same instance.
+     *
+     * @return int
+     */
+    public int getPackedValue() {
+        return this.textSize << 6 | this.index;
+    }
+
+    /**
+     * Get the number of columns used by one character printed with this style.
+     *
+     * @return int
+     */
+    public int getWidthMultiplier() {
+        return EscPosCharsetWidth.getTextSizeWidthMultiplier(this.textSizeCommand);
+    }
+
+    public byte[] getTextSize() {
+        return this.textSizeCommand;
+    }
+
+    public byte[] getTextColor() {
+        return this.textColorCommand;
+    }
+
+    public byte[] getTextReverseColor() {
+        return this.textReverseColorCommand;
+    }
+
+    public byte[] getTextBold() {
+        return this.textBoldCommand;
+    }
+
+    public byte[] getTextUnderline() {
+        return this.textUnderlineCommand;
+    }
+
+    public byte[] getTextDoubleStrike() {
+        return this.textDoubleStrikeCommand;
+    }
+}
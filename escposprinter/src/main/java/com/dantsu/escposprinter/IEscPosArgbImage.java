@@ -0,0 +1,29 @@
+package com.dantsu.escposprinter;
+
+/**
+ * Image read row by row as ARGB pixels (0xAARRGGBB, like android.graphics.Bitmap.getPixel).
+ */
+public interface IEscPosArgbImage {
+
+    /**
+     * Get the image width in pixels.
+     *
+     * @return int
+     */
+    int getWidth();
+
+    /**
+     * Get the image height in pixels.
+     *
+     * @return int
+     */
+    int getHeight();
+
+    /**
+     * Copy the pixels of a row.
+     *
+     * @param y   Index of the row
+     * @param row Array of at least getWidth() items that receive the ARGB pixels of the row
+     */
+    void getRow(int y, int[] row);
+}
@@ -0,0 +1,28 @@
+package com.dantsu.escposprinter;
+
+/**
+ * Image with several tones of gray, stored in bit planes. The tone of a dot is the binary number made of its bits in
+ * each plane, the first plane holds the most significant bit : with 2 planes, 0 is white and 3 is black.
+ * <p>
+ * readRows returns a black and white version of the image, printed by printers without multiple tone graphics.
+ */
+public interface IEscPosMultiToneImage extends IEscPosRasterImage {
+
+    /**
+     * Get the number of bit planes, the image has 2 ^ planes tones.
+     *
+     * @return int
+     */
+    int getNbrPlanes();
+
+    /**
+     * Copy consecutive rows of a bit plane of the image.
+     *
+     * @param plane    Index of the plane, 0 is the most significant bit
+     * @param firstRow Index of the first row to be copied
+     * @param nbrRows  Number of rows to be copied
+     * @param buffer   Array that receive the rows, one after the other
+     * @param offset   Index in buffer of the first byte of the first row
+     */
+    void readPlaneRows(int plane, int firstRow, int nbrRows, byte[] buffer, int offset);
+}
@@ -0,0 +1,32 @@
+package com.dantsu.escposprinter;
+
+/**
+ * Monochrome image read row by row while it is printed. A row is a line of bytesByLine bytes, the most significant bit
+ * of each byte is the leftmost dot and a set bit is a black dot (same layout as the data of the "GS v 0" command).
+ */
+public interface IEscPosRasterImage {
+
+    /**
+     * Get the number of bytes of a row.
+     *
+     * @return int
+     */
+    int getBytesByLine();
+
+    /**
+     * Get the number of rows.
+     *
+     * @return int
+     */
+    int getHeight();
+
+    /**
+     * Copy consecutive rows of the image.
+     *
+     * @param firstRow Index of the first row to be copied
+     * @param nbrRows  Number of rows to be copied
+     * @param buffer   Array that receive the rows, one after the other
+     * @param offset   Index in buffer of the first byte of the first row
+     */
+    void readRows(int firstRow, int nbrRows, byte[] buffer, int offset);
+}
@@ -1,7 +1,10 @@
 package com.dantsu.escposprinter.barcode;
 
+import com.dantsu.escposprinter.EscPosModuleImage;
 import com.dantsu.escposprinter.EscPosPrinterSize;
 import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
+import com.google.zxing.common.BitMatrix;
 
 public abstract class Barcode {
 
@@ -10,12 +13,14 @@ public abstract class Barcode {
     protected int colWidth;
     protected int height;
     protected int textPosition;
+    protected int printerWidthPx;
 
     Barcode(EscPosPrinterSize printerSize, int barcodeType, String code, float widthMM, float heightMM, int textPosition) throws EscPosBarcodeException {
         this.barcodeType = barcodeType;
         this.code = code;
         this.height = printerSize.mmToPx(heightMM);
         this.textPosition = textPosition;
+        this.printerWidthPx = printerSize.getPrinterWidthPx();
 
         if(widthMM == 0f) {
             widthMM = printerSize.getPrinterWidthMM() * 0.7f;
@@ -40,6 +45,46 @@ public abstract class Barcode {
 
     public abstract int getColsCount();
 
+    /**
+     * Encode the bars of the barcode with ZXing, for the printers that cannot print this barcode type.
+     *
+     * @return One boolean by module, true for a bar
+     * @throws IllegalArgumentException If ZXing cannot encode the code
+     */
+    protected abstract boolean[] encodeBars();
+
+    /**
+     * Get the barcode as an image : each module is getColWidth() dots wide and getHeight() dots high.
+     *
+     * @return The barcode image, without the human readable text
+     */
+    public EscPosModuleImage getRasterImage() throws EscPosEncodingException {
+        boolean[] bars;
+        try {
+            bars = this.encodeBars();
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            throw new EscPosEncodingException("Unable to encode the barcode : " + e.getMessage());
+        }
+
+        BitMatrix modules = new BitMatrix(bars.length, 1);
+        for (int x = 0; x < bars.length; ++x) {
+            if (bars[x]) {
+                modules.set(x, 0);
+            }
+        }
+        return new EscPosModuleImage(modules, this.colWidth, this.height, 0);
+    }
+
+    /**
+     * Get the text printed with the barcode image when the printer cannot print this barcode type.
+     *
+     * @return String
+     */
+    public String getHumanReadableText() {
+        return this.code;
+    }
+
     public int getBarcodeType() {
         return this.barcodeType;
     }
@@ -60,4 +105,13 @@ public abstract class Barcode {
         return this.colWidth;
     }
 
+    /**
+     * Get the printing width in dots of the printer the barcode was sized for.
+     *
+     * @return int
+     */
+    public int getPrinterWidthPx() {
+        return this.printerWidthPx;
+    }
+
 }
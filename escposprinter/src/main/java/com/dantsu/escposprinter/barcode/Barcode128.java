@@ -4,9 +4,257 @@ import com.dantsu.escposprinter.EscPosPrinterSize;
 import com.dantsu.escposprinter.EscPosPrinterCommands;
 import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
 
+import java.util.Arrays;
+
+/**
+ * Code 128 barcode. The data is encoded with the mix of code sets A, B and C that gives the fewest symbols, then sent
+ * to "GS k" with the "{A", "{B", "{C" and "{S" selections. Data that already starts with "{A", "{B" or "{C" is sent
+ * as is.
+ */
 public class Barcode128 extends Barcode {
+
+    private static final int CODE_SET_A = 0;
+    private static final int CODE_SET_B = 1;
+    private static final int CODE_SET_C = 2;
+    private static final char[] CODE_SET_NAMES = {'A', 'B', 'C'};
+
+    private static final int SYMBOL_FNC_3 = 96;
+    private static final int SYMBOL_FNC_2 = 97;
+    private static final int SYMBOL_SHIFT = 98;
+    private static final int SYMBOL_CODE_C = 99;
+    private static final int SYMBOL_CODE_B = 100;
+    private static final int SYMBOL_CODE_A = 101;
+    private static final int SYMBOL_FNC_1 = 102;
+    private static final int SYMBOL_START_A = 103;
+    private static final int SYMBOL_STOP = 106;
+
+    /**
+     * Widths of the bars and spaces of each symbol, from its value. The stop symbol has a final bar.
+     */
+    private static final int[] PATTERNS = {
+        212222, 222122, 222221, 121223, 121322, 131222, 122213, 122312, 132212, 221213,
+        221312, 231212, 112232, 122132, 122231, 113222, 123122, 123221, 223211, 221132,
+        221231, 213212, 223112, 312131, 311222, 321122, 321221, 312212, 322112, 322211,
+        212123, 212321, 232121, 111323, 131123, 131321, 112313, 132113, 132311, 211313,
+        231113, 231311, 112133, 112331, 132131, 113123, 113321, 133121, 313121, 211331,
+        231131, 213113, 213311, 213131, 311123, 311321, 331121, 312113, 312311, 332111,
+        314111, 221411, 431111, 111224, 111422, 121124, 121421, 141122, 141221, 112214,
+        112412, 122114, 122411, 142112, 142211, 241211, 221114, 413111, 241112, 134111,
+        111242, 121142, 121241, 114212, 124112, 124211, 411212, 421112, 421211, 212141,
+        214121, 412121, 111143, 111341, 131141, 114113, 114311, 411113, 411311, 113141,
+        114131, 311141, 411131, 211412, 211214, 211232, 2331112
+    };
+
+    private static final int INFINITE_COST = Integer.MAX_VALUE / 2;
+
+    /**
+     * Convert the data to the "GS k" Code 128 format, with the code sets that give the fewest symbols.
+     */
+    private static String encodeData(String data) throws EscPosBarcodeException {
+        if (data.length() == 0) {
+            throw new EscPosBarcodeException("Code 128 data can't be empty");
+        }
+        if (data.length() >= 2 && data.charAt(0) == '{' && "ABC".indexOf(data.charAt(1)) != -1) {
+            try {
+                Barcode128.parseSymbols(data, null);
+            } catch (IllegalArgumentException e) {
+                throw new EscPosBarcodeException("Invalid Code 128 data : " + e.getMessage());
+            }
+            return data;
+        }
+
+        int length = data.length();
+        for (int i = 0; i < length; ++i) {
+            if (data.charAt(i) > 127) {
+                throw new EscPosBarcodeException("Invalid Code 128 character : " + data.charAt(i));
+            }
+        }
+
+        // cost[i][codeSet] : fewest symbols that encode data from i when codeSet is selected
+        // nextCodeSet[i][codeSet] : code set of the symbol that encode data at i
+        int[][] cost = new int[length + 1][3], nextCodeSet = new int[length + 1][3];
+
+        for (int i = length - 1; i >= 0; --i) {
+            for (int codeSet = 0; codeSet < 3; ++codeSet) {
+                int bestCost = Barcode128.getSymbolCost(data, i, codeSet, cost), bestCodeSet = codeSet;
+                for (int otherCodeSet = 0; otherCodeSet < 3; ++otherCodeSet) {
+                    int otherCost = 1 + Barcode128.getSymbolCost(data, i, otherCodeSet, cost);
+                    if (otherCodeSet != codeSet && otherCost < bestCost) {
+                        bestCost = otherCost;
+                        bestCodeSet = otherCodeSet;
+                    }
+                }
+                cost[i][codeSet] = bestCost;
+                nextCodeSet[i][codeSet] = bestCodeSet;
+            }
+        }
+
+        int codeSet = Barcode128.CODE_SET_B;
+        for (int startCodeSet : new int[]{Barcode128.CODE_SET_C, Barcode128.CODE_SET_A}) {
+            if (Barcode128.getSymbolCost(data, 0, startCodeSet, cost) < Barcode128.getSymbolCost(data, 0, codeSet, cost)) {
+                codeSet = startCodeSet;
+            }
+        }
+
+        StringBuilder code = new StringBuilder(length * 2 + 2);
+        code.append('{').append(Barcode128.CODE_SET_NAMES[codeSet]);
+
+        int i = 0;
+        while (i < length) {
+            if (i > 0 && nextCodeSet[i][codeSet] != codeSet) {
+                codeSet = nextCodeSet[i][codeSet];
+                code.append('{').append(Barcode128.CODE_SET_NAMES[codeSet]);
+            }
+
+            if (codeSet == Barcode128.CODE_SET_C) {
+                code.append((char) ((data.charAt(i) - '0') * 10 + data.charAt(i + 1) - '0'));
+                i += 2;
+                continue;
+            }
+
+            char c = data.charAt(i++);
+            if (!Barcode128.isInCodeSet(c, codeSet)) {
+                code.append("{S");
+            }
+            code.append(c);
+            if (c == '{') {
+                code.append('{');
+            }
+        }
+        return code.toString();
+    }
+
+    /**
+     * Number of symbols that encode data from i if the next symbol is a data symbol of codeSet.
+     */
+    private static int getSymbolCost(String data, int i, int codeSet, int[][] cost) {
+        if (codeSet == Barcode128.CODE_SET_C) {
+            if (i + 1 < data.length() && Barcode128.isDigit(data.charAt(i)) && Barcode128.isDigit(data.charAt(i + 1))) {
+                return 1 + cost[i + 2][codeSet];
+            }
+            return Barcode128.INFINITE_COST;
+        }
+        // A character missing from code set A is in code set B and conversely : it is printed after a shift symbol
+        return (Barcode128.isInCodeSet(data.charAt(i), codeSet) ? 1 : 2) + cost[i + 1][codeSet];
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isInCodeSet(char c, int codeSet) {
+        return codeSet == Barcode128.CODE_SET_A ? c < 96 : c >= 32 && c < 128;
+    }
+
+    /**
+     * Read the symbols of data in the "GS k" Code 128 format.
+     *
+     * @param code "GS k" Code 128 data, starting with "{A", "{B" or "{C"
+     * @param text If not null, the characters encoded by the symbols are appended to it
+     * @return The values of the symbols, start symbol included, check symbol excluded
+     * @throws IllegalArgumentException If the data is not valid
+     */
+    private static int[] parseSymbols(String code, StringBuilder text) {
+        int codeSet = "ABC".indexOf(code.charAt(1)), length = code.length(), nbrSymbols = 1;
+        int[] symbols = new int[length];
+        symbols[0] = Barcode128.SYMBOL_START_A + codeSet;
+
+        int i = 2;
+        while (i < length) {
+            char c = code.charAt(i++);
+            int characterCodeSet = codeSet;
+
+            if (c == '{') {
+                if (i >= length) {
+                    throw new IllegalArgumentException("incomplete function");
+                }
+                char function = code.charAt(i++);
+
+                if (function == 'S') {
+                    if (codeSet == Barcode128.CODE_SET_C || i >= length) {
+                        throw new IllegalArgumentException("invalid shift");
+                    }
+                    symbols[nbrSymbols++] = Barcode128.SYMBOL_SHIFT;
+                    characterCodeSet = codeSet == Barcode128.CODE_SET_A ? Barcode128.CODE_SET_B : Barcode128.CODE_SET_A;
+                    c = code.charAt(i++);
+                    if (c == '{' && (i >= length || code.charAt(i++) != '{')) {
+                        throw new IllegalArgumentException("\"{\" must be doubled");
+                    }
+                } else if (function != '{') {
+                    symbols[nbrSymbols++] = Barcode128.getFunctionSymbol(function, codeSet);
+                    if ("ABC".indexOf(function) != -1) {
+                        codeSet = "ABC".indexOf(function);
+                    }
+                    continue;
+                }
+            }
+
+            if (characterCodeSet == Barcode128.CODE_SET_C) {
+                if (c > 99) {
+                    throw new IllegalArgumentException("code set C values must be lower than 100");
+                }
+                symbols[nbrSymbols++] = c;
+                if (text != null) {
+                    text.append((char) ('0' + c / 10)).append((char) ('0' + c % 10));
+                }
+                continue;
+            }
+
+            if (!Barcode128.isInCodeSet(c, characterCodeSet)) {
+                throw new IllegalArgumentException("character " + (int) c + " is not in code set " + Barcode128.CODE_SET_NAMES[characterCodeSet]);
+            }
+            symbols[nbrSymbols++] = c < 32 ? c + 64 : c - 32;
+            if (text != null && c >= 32) {
+                text.append(c);
+            }
+        }
+        return Arrays.copyOf(symbols, nbrSymbols);
+    }
+
+    /**
+     * Get the symbol of a "{A", "{B", "{C", "{1", "{2", "{3" or "{4" function in a code set.
+     */
+    private static int getFunctionSymbol(char function, int codeSet) {
+        switch (function) {
+            case 'A':
+                if (codeSet != Barcode128.CODE_SET_A) {
+                    return Barcode128.SYMBOL_CODE_A;
+                }
+                break;
+            case 'B':
+                if (codeSet != Barcode128.CODE_SET_B) {
+                    return Barcode128.SYMBOL_CODE_B;
+                }
+                break;
+            case 'C':
+                if (codeSet != Barcode128.CODE_SET_C) {
+                    return Barcode128.SYMBOL_CODE_C;
+                }
+                break;
+            case '1':
+                return Barcode128.SYMBOL_FNC_1;
+            case '2':
+                if (codeSet != Barcode128.CODE_SET_C) {
+                    return Barcode128.SYMBOL_FNC_2;
+                }
+                break;
+            case '3':
+                if (codeSet != Barcode128.CODE_SET_C) {
+                    return Barcode128.SYMBOL_FNC_3;
+                }
+                break;
+            case '4':
+                // FNC4 has the value of the selection of the current code set
+                if (codeSet != Barcode128.CODE_SET_C) {
+                    return codeSet == Barcode128.CODE_SET_A ? Barcode128.SYMBOL_CODE_A : Barcode128.SYMBOL_CODE_B;
+                }
+                break;
+        }
+        throw new IllegalArgumentException("invalid function {" + function + " in code set " + Barcode128.CODE_SET_NAMES[codeSet]);
+    }
+
     public Barcode128(EscPosPrinterSize printerSize, String code, float widthMM, float heightMM, int textPosition) throws EscPosBarcodeException {
-        super(printerSize, EscPosPrinterCommands.BARCODE_TYPE_128, code, widthMM, heightMM, textPosition);
+        super(printerSize, EscPosPrinterCommands.BARCODE_TYPE_128, Barcode128.encodeData(code), widthMM, heightMM, textPosition);
     }
 
     @Override
@@ -16,6 +264,46 @@ public class Barcode128 extends Barcode {
 
     @Override
     public int getColsCount() {
-        return (this.getCodeLength() + 5) * 11;
+        // 11 modules by symbol, check symbol included, and 13 modules for the stop symbol
+        return (Barcode128.parseSymbols(this.code, null).length + 1) * 11 + 13;
+    }
+
+    @Override
+    protected boolean[] encodeBars() {
+        int[] symbols = Barcode128.parseSymbols(this.code, null);
+        int checkSymbol = symbols[0];
+        for (int i = 1; i < symbols.length; ++i) {
+            checkSymbol += i * symbols[i];
+        }
+
+        int[] allSymbols = Arrays.copyOf(symbols, symbols.length + 2);
+        allSymbols[symbols.length] = checkSymbol % 103;
+        allSymbols[symbols.length + 1] = Barcode128.SYMBOL_STOP;
+
+        boolean[] bars = new boolean[this.getColsCount()];
+        int x = 0;
+        for (int symbol : allSymbols) {
+            String widths = String.valueOf(Barcode128.PATTERNS[symbol]);
+            for (int j = 0; j < widths.length(); ++j) {
+                int width = widths.charAt(j) - '0';
+                if (j % 2 == 0) {
+                    Arrays.fill(bars, x, x + width, true);
+                }
+                x += width;
+            }
+        }
+        return bars;
+    }
+
+    /**
+     * Get the characters encoded in the barcode, without the code set selections and the function symbols.
+     *
+     * @return String
+     */
+    @Override
+    public String getHumanReadableText() {
+        StringBuilder text = new StringBuilder();
+        Barcode128.parseSymbols(this.code, text);
+        return text.toString();
     }
 }
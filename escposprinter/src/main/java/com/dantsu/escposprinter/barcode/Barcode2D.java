@@ -0,0 +1,102 @@
+package com.dantsu.escposprinter.barcode;
+
+import com.dantsu.escposprinter.EscPosModuleImage;
+import com.dantsu.escposprinter.EscPosPrinterProfile;
+import com.dantsu.escposprinter.EscPosPrinterSize;
+import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.google.zxing.common.BitMatrix;
+
+/**
+ * 2D code printed with the "GS ( k" commands of the printer when its profile supports them, only the data is then sent.
+ * Otherwise, the modules encoded by ZXing are printed as an image (see getRasterImage).
+ */
+public abstract class Barcode2D {
+
+    protected int symbolType;
+    protected String data;
+    protected BitMatrix modules;
+    protected int moduleWidth;
+    protected int moduleHeight;
+    protected int quietZone;
+
+    /**
+     * @param printerSize      Size of the printer
+     * @param symbolType       Symbol type of the "GS ( k" commands. Use EscPosPrinterCommands.BARCODE_2D_... constants
+     * @param data             Data encoded in the 2D code
+     * @param modules          Modules of the 2D code encoded by ZXing, a set bit is a black module
+     * @param moduleHeightRate Height of a module divided by its width
+     * @param widthMM          Width of the 2D code in millimeters, quiet zone excluded
+     * @param quietZone        Number of white modules around the 2D code
+     */
+    Barcode2D(EscPosPrinterSize printerSize, int symbolType, String data, BitMatrix modules, int moduleHeightRate, float widthMM, int quietZone) throws EscPosBarcodeException {
+        if (quietZone < 0) {
+            throw new EscPosBarcodeException("Invalid 2D code quiet zone");
+        }
+
+        this.symbolType = symbolType;
+        this.data = data;
+        this.modules = modules;
+        this.quietZone = quietZone;
+
+        int
+            nbrCols = modules.getWidth() + quietZone * 2,
+            wantedPxWidth = widthMM > printerSize.getPrinterWidthMM() ? printerSize.getPrinterWidthPx() : printerSize.mmToPx(widthMM),
+            moduleWidth = Math.max(1, Math.round((float) wantedPxWidth / (float) modules.getWidth()));
+
+        if (moduleWidth * nbrCols > printerSize.getPrinterWidthPx()) {
+            moduleWidth = printerSize.getPrinterWidthPx() / nbrCols;
+        }
+
+        if (moduleWidth == 0) {
+            throw new EscPosBarcodeException("2D code is too large for the paper size.");
+        }
+
+        this.moduleWidth = moduleWidth;
+        this.moduleHeight = moduleWidth * moduleHeightRate;
+    }
+
+    /**
+     * Check if the printer can print this 2D code with the "GS ( k" commands.
+     *
+     * @param profile Profile of the printer
+     * @return boolean
+     */
+    public abstract boolean isCommandSupported(EscPosPrinterProfile profile);
+
+    /**
+     * Get the "GS ( k" functions that set the symbol before its data is stored. Each array contains the function code
+     * followed by its parameters.
+     *
+     * @return The functions
+     */
+    public abstract byte[][] getCommandSettings();
+
+    /**
+     * Get the 2D code as an image, for the printers that cannot print it with the "GS ( k" commands.
+     *
+     * @return The 2D code image, quiet zone included
+     */
+    public EscPosModuleImage getRasterImage() {
+        return new EscPosModuleImage(this.modules, this.moduleWidth, this.moduleHeight, this.quietZone);
+    }
+
+    public int getSymbolType() {
+        return this.symbolType;
+    }
+
+    public String getData() {
+        return this.data;
+    }
+
+    public int getModuleWidth() {
+        return this.moduleWidth;
+    }
+
+    public int getModuleHeight() {
+        return this.moduleHeight;
+    }
+
+    public int getQuietZone() {
+        return this.quietZone;
+    }
+}
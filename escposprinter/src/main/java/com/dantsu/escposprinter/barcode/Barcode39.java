@@ -3,6 +3,7 @@ package com.dantsu.escposprinter.barcode;
 import com.dantsu.escposprinter.EscPosPrinterSize;
 import com.dantsu.escposprinter.EscPosPrinterCommands;
 import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.google.zxing.oned.Code39Writer;
 
 public class Barcode39 extends Barcode {
     public Barcode39(EscPosPrinterSize printerSize, String code, float widthMM, float heightMM, int textPosition) throws EscPosBarcodeException {
@@ -18,4 +19,9 @@ public class Barcode39 extends Barcode {
     public int getColsCount() {
         return (this.getCodeLength() + 4) * 16;
     }
+
+    @Override
+    protected boolean[] encodeBars() {
+        return new Code39Writer().encode(this.code);
+    }
 }
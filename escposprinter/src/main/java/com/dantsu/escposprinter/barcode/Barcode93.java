@@ -0,0 +1,40 @@
+package com.dantsu.escposprinter.barcode;
+
+import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.EscPosPrinterSize;
+import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.google.zxing.oned.Code93Writer;
+
+public class Barcode93 extends Barcode {
+
+    private static final String CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ-. $/+%";
+
+    public Barcode93(EscPosPrinterSize printerSize, String code, float widthMM, float heightMM, int textPosition) throws EscPosBarcodeException {
+        super(printerSize, EscPosPrinterCommands.BARCODE_TYPE_93, code, widthMM, heightMM, textPosition);
+        this.checkCode();
+    }
+
+    @Override
+    public int getCodeLength() {
+        return this.code.length();
+    }
+
+    @Override
+    public int getColsCount() {
+        // Start, stop and 2 check characters of 9 modules, then the termination bar
+        return (this.getCodeLength() + 4) * 9 + 1;
+    }
+
+    @Override
+    protected boolean[] encodeBars() {
+        return new Code93Writer().encode(this.code);
+    }
+
+    private void checkCode() throws EscPosBarcodeException {
+        for (int i = 0; i < this.getCodeLength(); i++) {
+            if (Barcode93.CHARS.indexOf(this.code.charAt(i)) == -1) {
+                throw new EscPosBarcodeException("Invalid Code 93 character : " + this.code.charAt(i));
+            }
+        }
+    }
+}
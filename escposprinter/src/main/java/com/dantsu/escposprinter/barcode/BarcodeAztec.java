@@ -0,0 +1,63 @@
+package com.dantsu.escposprinter.barcode;
+
+import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.EscPosPrinterProfile;
+import com.dantsu.escposprinter.EscPosPrinterSize;
+import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.google.zxing.aztec.encoder.AztecCode;
+import com.google.zxing.aztec.encoder.Encoder;
+
+import java.io.UnsupportedEncodingException;
+
+public class BarcodeAztec extends Barcode2D {
+
+    /**
+     * Minimum percentage of the symbol used by error correction.
+     */
+    private static final int ERROR_CORRECTION_PERCENT = 33;
+
+    private static AztecCode encode(String data) throws EscPosBarcodeException {
+        try {
+            return Encoder.encode(data.getBytes("UTF-8"), BarcodeAztec.ERROR_CORRECTION_PERCENT, 0);
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            e.printStackTrace();
+            throw new EscPosBarcodeException("Unable to encode Aztec code");
+        }
+    }
+
+    private boolean compact;
+    private int nbrLayers;
+
+    public BarcodeAztec(EscPosPrinterSize printerSize, String data, float widthMM, int quietZone) throws EscPosBarcodeException {
+        this(printerSize, data, BarcodeAztec.encode(data), widthMM, quietZone);
+    }
+
+    private BarcodeAztec(EscPosPrinterSize printerSize, String data, AztecCode code, float widthMM, int quietZone) throws EscPosBarcodeException {
+        super(printerSize, EscPosPrinterCommands.BARCODE_2D_AZTEC, data, code.getMatrix(), 1, widthMM, quietZone);
+        this.compact = code.isCompact();
+        this.nbrLayers = code.getLayers();
+    }
+
+    public boolean isCompact() {
+        return this.compact;
+    }
+
+    public int getNbrLayers() {
+        return this.nbrLayers;
+    }
+
+    @Override
+    public boolean isCommandSupported(EscPosPrinterProfile profile) {
+        return profile.isAztecCommandSupported() && this.moduleWidth >= 2 && this.moduleWidth <= 16;
+    }
+
+    @Override
+    public byte[][] getCommandSettings() {
+        // The printer builds the same symbol as ZXing : same mode, layers and error correction
+        return new byte[][]{
+            {0x32, (byte) (this.compact ? 1 : 0), (byte) this.nbrLayers},
+            {0x33, (byte) this.moduleWidth},
+            {0x34, (byte) BarcodeAztec.ERROR_CORRECTION_PERCENT}
+        };
+    }
+}
@@ -0,0 +1,62 @@
+package com.dantsu.escposprinter.barcode;
+
+import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.EscPosPrinterSize;
+import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.google.zxing.oned.CodaBarWriter;
+
+public class BarcodeCodabar extends Barcode {
+
+    private static final String START_STOP_CHARS = "ABCD";
+    private static final String NARROW_CHARS = "0123456789-$";
+    private static final String WIDE_CHARS = ":/.+";
+
+    /**
+     * Add the "A" start and stop characters if the code has none, the "GS k" command requires them.
+     */
+    private static String addStartStopChars(String code) {
+        code = code.toUpperCase();
+        if (
+            code.length() >= 2 &&
+            BarcodeCodabar.START_STOP_CHARS.indexOf(code.charAt(0)) != -1 &&
+            BarcodeCodabar.START_STOP_CHARS.indexOf(code.charAt(code.length() - 1)) != -1
+        ) {
+            return code;
+        }
+        return "A" + code + "A";
+    }
+
+    public BarcodeCodabar(EscPosPrinterSize printerSize, String code, float widthMM, float heightMM, int textPosition) throws EscPosBarcodeException {
+        super(printerSize, EscPosPrinterCommands.BARCODE_TYPE_CODABAR, BarcodeCodabar.addStartStopChars(code), widthMM, heightMM, textPosition);
+        this.checkCode();
+    }
+
+    @Override
+    public int getCodeLength() {
+        return this.code.length();
+    }
+
+    @Override
+    public int getColsCount() {
+        // Start and stop characters are 10 modules, the others 9 or 10 modules, separated by a narrow space
+        int colsCount = 20 + this.getCodeLength() - 1;
+        for (int i = 1; i < this.getCodeLength() - 1; i++) {
+            colsCount += BarcodeCodabar.WIDE_CHARS.indexOf(this.code.charAt(i)) != -1 ? 10 : 9;
+        }
+        return colsCount;
+    }
+
+    @Override
+    protected boolean[] encodeBars() {
+        return new CodaBarWriter().encode(this.code);
+    }
+
+    private void checkCode() throws EscPosBarcodeException {
+        for (int i = 1; i < this.getCodeLength() - 1; i++) {
+            char c = this.code.charAt(i);
+            if (BarcodeCodabar.NARROW_CHARS.indexOf(c) == -1 && BarcodeCodabar.WIDE_CHARS.indexOf(c) == -1) {
+                throw new EscPosBarcodeException("Invalid Codabar character : " + c);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.dantsu.escposprinter.barcode;
+
+import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.EscPosPrinterProfile;
+import com.dantsu.escposprinter.EscPosPrinterSize;
+import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.datamatrix.DataMatrixWriter;
+import com.google.zxing.datamatrix.encoder.SymbolShapeHint;
+
+import java.util.EnumMap;
+
+public class BarcodeDataMatrix extends Barcode2D {
+
+    private static BitMatrix encode(String data) throws EscPosBarcodeException {
+        EnumMap<EncodeHintType, Object> hints = new EnumMap<EncodeHintType, Object>(EncodeHintType.class);
+        hints.put(EncodeHintType.DATA_MATRIX_SHAPE, SymbolShapeHint.FORCE_SQUARE);
+        try {
+            // With a size of 0, ZXing draws each module with one pixel
+            return new DataMatrixWriter().encode(data, BarcodeFormat.DATA_MATRIX, 0, 0, hints);
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            throw new EscPosBarcodeException("Unable to encode DataMatrix code");
+        }
+    }
+
+    public BarcodeDataMatrix(EscPosPrinterSize printerSize, String data, float widthMM, int quietZone) throws EscPosBarcodeException {
+        super(printerSize, EscPosPrinterCommands.BARCODE_2D_DATAMATRIX, data, BarcodeDataMatrix.encode(data), 1, widthMM, quietZone);
+    }
+
+    /**
+     * Get the number of modules of the side of the DataMatrix code.
+     *
+     * @return int
+     */
+    public int getNbrModules() {
+        return this.modules.getWidth();
+    }
+
+    @Override
+    public boolean isCommandSupported(EscPosPrinterProfile profile) {
+        return profile.isDataMatrixCommandSupported() && this.moduleWidth >= 2 && this.moduleWidth <= 16;
+    }
+
+    @Override
+    public byte[][] getCommandSettings() {
+        // Square symbol with the same number of modules as ZXing
+        return new byte[][]{
+            {0x32, 0x00, (byte) this.getNbrModules(), (byte) this.getNbrModules()},
+            {0x33, (byte) this.moduleWidth}
+        };
+    }
+}
@@ -3,6 +3,7 @@ package com.dantsu.escposprinter.barcode;
 import com.dantsu.escposprinter.EscPosPrinterCommands;
 import com.dantsu.escposprinter.EscPosPrinterSize;
 import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.google.zxing.oned.EAN13Writer;
 
 public class BarcodeEAN13 extends BarcodeNumber {
 
@@ -14,4 +15,9 @@ public class BarcodeEAN13 extends BarcodeNumber {
     public int getCodeLength() {
         return 13;
     }
+
+    @Override
+    protected boolean[] encodeBars() {
+        return new EAN13Writer().encode(this.code);
+    }
 }
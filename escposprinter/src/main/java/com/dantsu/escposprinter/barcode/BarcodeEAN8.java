@@ -3,6 +3,7 @@ package com.dantsu.escposprinter.barcode;
 import com.dantsu.escposprinter.EscPosPrinterCommands;
 import com.dantsu.escposprinter.EscPosPrinterSize;
 import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.google.zxing.oned.EAN8Writer;
 
 public class BarcodeEAN8 extends BarcodeNumber {
     public BarcodeEAN8(EscPosPrinterSize printerSize, String code, float widthMM, float heightMM, int textPosition) throws EscPosBarcodeException {
@@ -13,4 +14,9 @@ public class BarcodeEAN8 extends BarcodeNumber {
     public int getCodeLength() {
         return 8;
     }
+
+    @Override
+    protected boolean[] encodeBars() {
+        return new EAN8Writer().encode(this.code);
+    }
 }
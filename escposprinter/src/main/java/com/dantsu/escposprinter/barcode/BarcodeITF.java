@@ -0,0 +1,44 @@
+package com.dantsu.escposprinter.barcode;
+
+import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.EscPosPrinterSize;
+import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.google.zxing.oned.ITFWriter;
+
+public class BarcodeITF extends Barcode {
+
+    public BarcodeITF(EscPosPrinterSize printerSize, String code, float widthMM, float heightMM, int textPosition) throws EscPosBarcodeException {
+        super(printerSize, EscPosPrinterCommands.BARCODE_TYPE_ITF, code, widthMM, heightMM, textPosition);
+        this.checkCode();
+    }
+
+    @Override
+    public int getCodeLength() {
+        return this.code.length();
+    }
+
+    @Override
+    public int getColsCount() {
+        // Each digit has 2 wide and 3 narrow elements, wide elements are 3 modules
+        return this.getCodeLength() * 9 + 9;
+    }
+
+    @Override
+    protected boolean[] encodeBars() {
+        return new ITFWriter().encode(this.code);
+    }
+
+    private void checkCode() throws EscPosBarcodeException {
+        int codeLength = this.getCodeLength();
+
+        if (codeLength == 0 || codeLength % 2 != 0) {
+            throw new EscPosBarcodeException("ITF code must contain an even number of digits.");
+        }
+
+        for (int i = 0; i < codeLength; i++) {
+            if (this.code.charAt(i) < '0' || this.code.charAt(i) > '9') {
+                throw new EscPosBarcodeException("Invalid barcode number");
+            }
+        }
+    }
+}
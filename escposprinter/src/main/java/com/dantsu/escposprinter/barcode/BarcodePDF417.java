@@ -0,0 +1,81 @@
+package com.dantsu.escposprinter.barcode;
+
+import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.EscPosPrinterProfile;
+import com.dantsu.escposprinter.EscPosPrinterSize;
+import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.pdf417.encoder.PDF417;
+
+public class BarcodePDF417 extends Barcode2D {
+
+    /**
+     * Error correction level of the PDF417 codes, from 0 to 8.
+     */
+    private static final int ERROR_CORRECTION_LEVEL = 2;
+
+    /**
+     * Height of a row of modules divided by the width of a module.
+     */
+    private static final int ROW_HEIGHT_RATE = 3;
+
+    private static BitMatrix encode(String data) throws EscPosBarcodeException {
+        byte[][] matrix;
+        try {
+            PDF417 encoder = new PDF417();
+            encoder.generateBarcodeLogic(data, BarcodePDF417.ERROR_CORRECTION_LEVEL);
+            matrix = encoder.getBarcodeMatrix().getMatrix();
+        } catch (WriterException e) {
+            e.printStackTrace();
+            throw new EscPosBarcodeException("Unable to encode PDF417 code");
+        }
+
+        // ZXing keeps the rows from the bottom to the top
+        BitMatrix modules = new BitMatrix(matrix[0].length, matrix.length);
+        for (int y = 0; y < matrix.length; ++y) {
+            byte[] rowModules = matrix[matrix.length - 1 - y];
+            for (int x = 0; x < rowModules.length; ++x) {
+                if (rowModules[x] == 1) {
+                    modules.set(x, y);
+                }
+            }
+        }
+        return modules;
+    }
+
+    public BarcodePDF417(EscPosPrinterSize printerSize, String data, float widthMM, int quietZone) throws EscPosBarcodeException {
+        super(printerSize, EscPosPrinterCommands.BARCODE_2D_PDF417, data, BarcodePDF417.encode(data), BarcodePDF417.ROW_HEIGHT_RATE, widthMM, quietZone);
+    }
+
+    /**
+     * Get the number of data columns, start, stop and row indicator columns excluded.
+     *
+     * @return int
+     */
+    public int getNbrColumns() {
+        return (this.modules.getWidth() - 69) / 17;
+    }
+
+    public int getNbrRows() {
+        return this.modules.getHeight();
+    }
+
+    @Override
+    public boolean isCommandSupported(EscPosPrinterProfile profile) {
+        return profile.isPDF417CommandSupported() && this.moduleWidth >= 2 && this.moduleWidth <= 8;
+    }
+
+    @Override
+    public byte[][] getCommandSettings() {
+        // The printer builds the same symbol as ZXing : same columns, rows and error correction level
+        return new byte[][]{
+            {0x41, (byte) this.getNbrColumns()},
+            {0x42, (byte) this.getNbrRows()},
+            {0x43, (byte) this.moduleWidth},
+            {0x44, (byte) BarcodePDF417.ROW_HEIGHT_RATE},
+            {0x45, 0x30, (byte) (0x30 + BarcodePDF417.ERROR_CORRECTION_LEVEL)},
+            {0x46, 0x00}
+        };
+    }
+}
@@ -3,6 +3,7 @@ package com.dantsu.escposprinter.barcode;
 import com.dantsu.escposprinter.EscPosPrinterCommands;
 import com.dantsu.escposprinter.EscPosPrinterSize;
 import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.google.zxing.oned.EAN13Writer;
 
 public class BarcodeUPCA extends BarcodeNumber {
 
@@ -14,4 +15,10 @@ public class BarcodeUPCA extends BarcodeNumber {
     public int getCodeLength() {
         return 12;
     }
+
+    @Override
+    protected boolean[] encodeBars() {
+        // A UPC-A code is an EAN-13 code starting with 0
+        return new EAN13Writer().encode("0" + this.code);
+    }
 }
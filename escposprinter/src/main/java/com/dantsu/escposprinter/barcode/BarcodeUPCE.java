@@ -3,6 +3,7 @@ package com.dantsu.escposprinter.barcode;
 import com.dantsu.escposprinter.EscPosPrinterCommands;
 import com.dantsu.escposprinter.EscPosPrinterSize;
 import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.google.zxing.oned.UPCEWriter;
 
 public class BarcodeUPCE extends Barcode {
 
@@ -37,4 +38,10 @@ public class BarcodeUPCE extends Barcode {
             throw new EscPosBarcodeException("Invalid barcode number");
         }
     }
+
+    @Override
+    protected boolean[] encodeBars() {
+        // Number system 0, the check digit is computed by ZXing
+        return new UPCEWriter().encode("0" + this.code);
+    }
 }
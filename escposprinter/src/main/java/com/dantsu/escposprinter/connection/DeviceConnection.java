@@ -3,20 +3,130 @@ package com.dantsu.escposprinter.connection;
 import com.dantsu.escposprinter.exceptions.EscPosConnectionException;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 public abstract class DeviceConnection {
+    /**
+     * Number of bytes processed by the printer per second when its speed is unknown.
+     */
+    public static final int DEFAULT_TRANSFER_SPEED = 16000;
+
     protected OutputStream outputStream;
+    protected InputStream inputStream;
     protected byte[] data;
+    protected int transferSpeed = DeviceConnection.DEFAULT_TRANSFER_SPEED;
+    protected int inputBufferSize = 0;
+    private long bufferedBytes = 0;
+    private long bufferedBytesTime = 0;
 
     public DeviceConnection() {
         this.outputStream = null;
+        this.inputStream = null;
         this.data = new byte[0];
     }
 
     public abstract DeviceConnection connect() throws EscPosConnectionException;
     public abstract DeviceConnection disconnect();
 
+    /**
+     * Set how fast the printer processes the received data. After each send, the connection waits until the data
+     * that does not fit in the input buffer of the printer is processed.
+     *
+     * @param transferSpeed   Number of bytes processed by the printer per second
+     * @param inputBufferSize Size of the input buffer of the printer in bytes, 0 to wait for all the sent data
+     * @return Fluent interface
+     */
+    public DeviceConnection usePacing(int transferSpeed, int inputBufferSize) {
+        if (transferSpeed <= 0 || inputBufferSize < 0) {
+            throw new IllegalArgumentException("Transfer speed must be positive and input buffer size can't be negative.");
+        }
+        this.transferSpeed = transferSpeed;
+        this.inputBufferSize = inputBufferSize;
+        this.bufferedBytes = 0;
+        return this;
+    }
+
+    /**
+     * Get the time to wait after sending data so that the input buffer of the printer does not overflow. The printer
+     * is assumed to empty its buffer at the transfer speed since the previous send, and to stop emptying it while it
+     * executes slow commands (Ex: paper cut). These commands only cause a wait when the buffer is full.
+     *
+     * @param nbrBytes       Number of sent bytes
+     * @param processingTime Time the printer needs to execute the sent commands besides reading them, in milliseconds
+     * @return Waiting time in milliseconds
+     */
+    protected int getWaitingTime(int nbrBytes, int processingTime) {
+        long now = System.nanoTime();
+        long processedBytes = Math.max(0, now - this.bufferedBytesTime) / 1000000L * this.transferSpeed / 1000L;
+        long bufferedBytes = Math.max(0, this.bufferedBytes - processedBytes) + nbrBytes + (long) processingTime * this.transferSpeed / 1000L;
+        int waitingTime = (int) (Math.max(0, bufferedBytes - this.inputBufferSize) * 1000L / this.transferSpeed);
+        this.bufferedBytes = Math.min(bufferedBytes, this.inputBufferSize);
+        this.bufferedBytesTime = now + waitingTime * 1000000L;
+        return waitingTime;
+    }
+
+    /**
+     * Get the address of the device, used to recognize a device already identified.
+     *
+     * @return Address of the device, null if the connection has no address
+     */
+    public String getAddress() {
+        return null;
+    }
+
+    /**
+     * Check if the device can send data back, see read().
+     *
+     * @return true if the InputStream is open
+     */
+    public boolean isReadable() {
+        return this.inputStream != null;
+    }
+
+    /**
+     * Discard the data received from the device and not read yet.
+     */
+    public void clearReceivedData() throws EscPosConnectionException {
+        if (!this.isReadable()) {
+            throw new EscPosConnectionException("Unable to read data from device.");
+        }
+        try {
+            while (this.inputStream.available() > 0) {
+                this.inputStream.skip(this.inputStream.available());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new EscPosConnectionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Read a byte sent by the device.
+     *
+     * @param timeout Maximum time to wait for the byte in milliseconds
+     * @return The byte, from 0 to 255, or -1 if the device did not send anything in time
+     */
+    public int read(int timeout) throws EscPosConnectionException {
+        if (!this.isReadable()) {
+            throw new EscPosConnectionException("Unable to read data from device.");
+        }
+        try {
+            // Bluetooth streams can't time out : wait until a byte is available instead of blocking on read()
+            long endTime = System.currentTimeMillis() + timeout;
+            while (this.inputStream.available() == 0) {
+                if (System.currentTimeMillis() >= endTime) {
+                    return -1;
+                }
+                Thread.sleep(5);
+            }
+            return this.inputStream.read();
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            throw new EscPosConnectionException(e.getMessage());
+        }
+    }
+
     /**
      * Check if OutputStream is open.
      *
@@ -30,9 +140,20 @@ public abstract class DeviceConnection {
      * Add data to send.
      */
     public void write(byte[] bytes) {
-        byte[] data = new byte[bytes.length + this.data.length];
+        this.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Add a part of a byte array to the data to send.
+     *
+     * @param bytes  Array that contains the data
+     * @param offset Index of the first byte to send
+     * @param length Number of bytes to send
+     */
+    public void write(byte[] bytes, int offset, int length) {
+        byte[] data = new byte[length + this.data.length];
         System.arraycopy(this.data, 0, data, 0, this.data.length);
-        System.arraycopy(bytes, 0, data, this.data.length, bytes.length);
+        System.arraycopy(bytes, offset, data, this.data.length, length);
         this.data = data;
     }
 
@@ -45,6 +166,8 @@ public abstract class DeviceConnection {
     }
     /**
      * Send data to the device.
+     *
+     * @param addWaitingTime Time the printer needs to execute the sent commands besides reading them, in milliseconds
      */
     public void send(int addWaitingTime) throws EscPosConnectionException {
         if(!this.isConnected()) {
@@ -53,7 +176,7 @@ public abstract class DeviceConnection {
         try {
             this.outputStream.write(this.data);
             this.outputStream.flush();
-            int waitingTime = addWaitingTime + this.data.length / 16;
+            int waitingTime = this.getWaitingTime(this.data.length, addWaitingTime);
             this.data = new byte[0];
             if(waitingTime > 0) {
                 Thread.sleep(waitingTime);
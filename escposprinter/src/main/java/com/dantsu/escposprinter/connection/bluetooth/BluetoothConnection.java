@@ -39,6 +39,16 @@ public class BluetoothConnection extends DeviceConnection {
         return this.device;
     }
 
+    /**
+     * Get the MAC address of the bluetooth device.
+     *
+     * @return MAC address of the device, null if there is no device
+     */
+    @Override
+    public String getAddress() {
+        return this.device != null ? this.device.getAddress() : null;
+    }
+
     /**
      * Check if OutputStream is open.
      *
@@ -71,6 +81,7 @@ public class BluetoothConnection extends DeviceConnection {
             bluetoothAdapter.cancelDiscovery();
             this.socket.connect();
             this.outputStream = this.socket.getOutputStream();
+            this.inputStream = this.socket.getInputStream();
             this.data = new byte[0];
         } catch (IOException e) {
             e.printStackTrace();
@@ -100,6 +111,7 @@ public class BluetoothConnection extends DeviceConnection {
      */
     public BluetoothConnection disconnect() {
         this.data = new byte[0];
+        this.inputStream = null;
         if (this.outputStream != null) {
             try {
                 this.outputStream.close();
@@ -42,6 +42,16 @@ public class TcpConnection extends DeviceConnection {
         this.timeout = timeout;
     }
 
+    /**
+     * Get the address of the TCP device.
+     *
+     * @return IP address and port of the device (Ex: 192.168.1.160:9300)
+     */
+    @Override
+    public String getAddress() {
+        return this.address + ":" + this.port;
+    }
+
     /**
      * Check if the TCP device is connected by socket.
      *
@@ -62,6 +72,7 @@ public class TcpConnection extends DeviceConnection {
             this.socket = new Socket();
             this.socket.connect(new InetSocketAddress(InetAddress.getByName(this.address), this.port), this.timeout);
             this.outputStream = this.socket.getOutputStream();
+            this.inputStream = this.socket.getInputStream();
             this.data = new byte[0];
         } catch (IOException e) {
             e.printStackTrace();
@@ -76,6 +87,7 @@ public class TcpConnection extends DeviceConnection {
      */
     public TcpConnection disconnect() {
         this.data = new byte[0];
+        this.inputStream = null;
         if (this.outputStream != null) {
             try {
                 this.outputStream.close();
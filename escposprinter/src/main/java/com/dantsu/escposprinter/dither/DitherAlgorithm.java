@@ -0,0 +1,261 @@
+package com.dantsu.escposprinter.dither;
+
+import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.IEscPosArgbImage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Conversion of an ARGB image to the black and white dots of a thermal printer.
+ * <p>
+ * Pixels are converted to a gray level from 0 (black) to 255 (white) : integer luma of the color, blended on a white
+ * background with the alpha channel, then corrected by a gamma and contrast lookup table.
+ * <p>
+ * Images are converted in bands of BAND_HEIGHT rows, which can be converted in parallel. The bands do not depend on the
+ * number of threads, so an image is always converted to the same dots.
+ */
+public abstract class DitherAlgorithm {
+
+    public static final int BAND_HEIGHT = 128;
+
+    /**
+     * Number of rows dithered above a band by error diffusion algorithms to rebuild the errors coming from the previous band.
+     */
+    protected static final int BAND_SEAM_ROWS = 8;
+
+    private float gamma = 1f;
+    private float contrast = 1f;
+    private int[] grayLevels = DitherAlgorithm.buildGrayLevels(1f, 1f);
+
+    private static int[] buildGrayLevels(float gamma, float contrast) {
+        int[] grayLevels = new int[256];
+        for (int i = 0; i < 256; ++i) {
+            double value = (Math.pow(i / 255.0, gamma) - 0.5) * contrast + 0.5;
+            grayLevels[i] = (int) Math.round(Math.max(0.0, Math.min(1.0, value)) * 255.0);
+        }
+        return grayLevels;
+    }
+
+    /**
+     * Set the gamma correction applied before dithering. Values above 1 darken the midtones, values below 1 lighten them.
+     *
+     * @param gamma Gamma correction, 1 to keep the image unchanged
+     * @return Fluent interface
+     */
+    public DitherAlgorithm setGamma(float gamma) {
+        return this.setGammaContrast(gamma, this.contrast);
+    }
+
+    /**
+     * Set the contrast applied before dithering.
+     *
+     * @param contrast Contrast multiplier around the middle gray, 1 to keep the image unchanged
+     * @return Fluent interface
+     */
+    public DitherAlgorithm setContrast(float contrast) {
+        return this.setGammaContrast(this.gamma, contrast);
+    }
+
+    /**
+     * Set the gamma correction and the contrast applied before dithering.
+     *
+     * @param gamma    Gamma correction, 1 to keep the image unchanged
+     * @param contrast Contrast multiplier around the middle gray, 1 to keep the image unchanged
+     * @return Fluent interface
+     */
+    public DitherAlgorithm setGammaContrast(float gamma, float contrast) {
+        if (gamma <= 0f || contrast < 0f) {
+            throw new IllegalArgumentException("Gamma must be positive and contrast must not be negative.");
+        }
+        this.gamma = gamma;
+        this.contrast = contrast;
+        this.grayLevels = DitherAlgorithm.buildGrayLevels(gamma, contrast);
+        return this;
+    }
+
+    public float getGamma() {
+        return this.gamma;
+    }
+
+    public float getContrast() {
+        return this.contrast;
+    }
+
+    /**
+     * Get a text that identify the algorithm and its settings, used to find the images already converted in an
+     * EscPosImageCache. Algorithms with their own settings must add them to the key.
+     *
+     * @return String
+     */
+    public String getCacheKey() {
+        return this.getClass().getName() + ":" + this.gamma + ":" + this.contrast;
+    }
+
+    /**
+     * Convert an image to a byte array compatible with ESC/POS printer.
+     *
+     * @param image Image to be converted
+     * @return Bytes contain the image in ESC/POS command
+     */
+    public byte[] convert(IEscPosArgbImage image) {
+        return this.convert(image, null);
+    }
+
+    /**
+     * Convert an image to a byte array compatible with ESC/POS printer, the bands of the image are converted in parallel.
+     *
+     * @param image           Image to be converted
+     * @param executorService Thread pool used to convert the bands, null to convert on the calling thread
+     * @return Bytes contain the image in ESC/POS command
+     */
+    public byte[] convert(IEscPosArgbImage image, ExecutorService executorService) {
+        int bytesByLine = (image.getWidth() + 7) / 8;
+        byte[] imageBytes = EscPosPrinterCommands.initGSv0Command(bytesByLine, image.getHeight());
+        this.prepare(image, executorService).ditherBands(image, imageBytes, 8, bytesByLine, executorService);
+        return imageBytes;
+    }
+
+    /**
+     * Analyse the whole image before its bands are dithered. Algorithms that depend on global statistics of the image
+     * return an algorithm configured for it.
+     *
+     * @param image           Image to be converted
+     * @param executorService Thread pool used to analyse the image, null to analyse on the calling thread
+     * @return The algorithm that dither the bands of this image
+     */
+    protected DitherAlgorithm prepare(IEscPosArgbImage image, ExecutorService executorService) {
+        return this;
+    }
+
+    /**
+     * Dither all the bands of an image. Each band is written in its own slice of imageBytes.
+     *
+     * @param image           Image to be converted
+     * @param imageBytes      Array that receive the dots, bits must be cleared
+     * @param offset          Index in imageBytes of the first byte of the first row
+     * @param bytesByLine     Number of bytes of a row in imageBytes
+     * @param executorService Thread pool used to dither the bands, null to dither on the calling thread
+     */
+    protected void ditherBands(final IEscPosArgbImage image, final byte[] imageBytes, final int offset, final int bytesByLine, ExecutorService executorService) {
+        int height = image.getHeight();
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+        for (int y = 0; y < height; y += DitherAlgorithm.BAND_HEIGHT) {
+            final int
+                firstRow = y,
+                endRow = Math.min(height, y + DitherAlgorithm.BAND_HEIGHT);
+
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    DitherAlgorithm.this.dither(image, firstRow, endRow, imageBytes, offset + firstRow * bytesByLine, bytesByLine);
+                    return null;
+                }
+            });
+        }
+
+        DitherAlgorithm.invokeAll(executorService, tasks);
+    }
+
+    /**
+     * Run tasks on a thread pool and wait for them. The first task is run on the calling thread.
+     *
+     * @param executorService Thread pool used to run the tasks, null to run them on the calling thread
+     * @param tasks           Tasks to be run
+     */
+    protected static void invokeAll(ExecutorService executorService, List<Callable<Void>> tasks) {
+        int
+            nbrTasks = tasks.size(),
+            nbrInlineTasks = executorService == null ? nbrTasks : Math.min(1, nbrTasks);
+        ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>(nbrTasks);
+
+        try {
+            for (int i = nbrInlineTasks; i < nbrTasks; ++i) {
+                futures.add(executorService.submit(tasks.get(i)));
+            }
+            for (int i = 0; i < nbrInlineTasks; ++i) {
+                tasks.get(i).call();
+            }
+
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Image conversion has been interrupted.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(String.valueOf(cause));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(String.valueOf(e));
+        } finally {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Convert rows of an image to black and white dots. This method can be called from several threads at the same time
+     * with different rows.
+     *
+     * @param image       Image to be converted
+     * @param firstRow    Index of the first row to be converted
+     * @param endRow      Index after the last row to be converted
+     * @param imageBytes  Array that receive the dots, bits must be cleared
+     * @param offset      Index in imageBytes of the first byte of firstRow
+     * @param bytesByLine Number of bytes of a row in imageBytes
+     */
+    protected abstract void dither(IEscPosArgbImage image, int firstRow, int endRow, byte[] imageBytes, int offset, int bytesByLine);
+
+    /**
+     * Read a row of the image and convert it to gray levels.
+     *
+     * @param image    Image to be read
+     * @param y        Index of the row
+     * @param argbRow  Array of image width items used to read the pixels
+     * @param grayRow  Array of image width items that receive the gray levels (0 : black, 255 : white)
+     */
+    protected void readGrayRow(IEscPosArgbImage image, int y, int[] argbRow, int[] grayRow) {
+        image.getRow(y, argbRow);
+
+        int[] grayLevels = this.grayLevels;
+        for (int x = 0, width = image.getWidth(); x < width; ++x) {
+            int
+                color = argbRow[x],
+                alpha = color >>> 24,
+                luma = (((color >> 16) & 0xFF) * 77 + ((color >> 8) & 0xFF) * 150 + (color & 0xFF) * 29 + 128) >> 8;
+
+            if (alpha != 0xFF) {
+                // luma + (255 - luma) * (255 - alpha) / 255, the division is done with shifts
+                int v = (255 - luma) * alpha + 128;
+                luma = 255 - ((v + (v >> 8)) >> 8);
+            }
+            grayRow[x] = grayLevels[luma];
+        }
+    }
+
+    /**
+     * Set a dot of a row to black.
+     *
+     * @param imageBytes Array of the image dots
+     * @param rowOffset  Index in imageBytes of the first byte of the row
+     * @param x          Index of the dot in the row
+     */
+    protected static void setBlackDot(byte[] imageBytes, int rowOffset, int x) {
+        imageBytes[rowOffset + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+    }
+}
@@ -0,0 +1,52 @@
+package com.dantsu.escposprinter.dither;
+
+import com.dantsu.escposprinter.IEscPosArgbImage;
+
+/**
+ * Atkinson error diffusion : only 6/8 of the error is spread, which keeps highlights and shadows clean and gives a
+ * higher contrast than Floyd-Steinberg. Good for logos and product images.
+ */
+public class DitherAtkinson extends DitherAlgorithm {
+
+    @Override
+    protected void dither(IEscPosArgbImage image, int firstRow, int endRow, byte[] imageBytes, int offset, int bytesByLine) {
+        int width = image.getWidth();
+        int[] argbRow = new int[width], grayRow = new int[width];
+        // Errors are stored in eighths with two extra items on each side, index = x + 2
+        int[] errors = new int[width + 4], nextErrors = new int[width + 4], nextNextErrors = new int[width + 4];
+
+        // The rows above the band are dithered again, without printing them, to get the errors they spread in the band
+        for (int y = Math.max(0, firstRow - DitherAlgorithm.BAND_SEAM_ROWS); y < endRow; ++y) {
+            this.readGrayRow(image, y, argbRow, grayRow);
+            int rowOffset = y >= firstRow ? offset + (y - firstRow) * bytesByLine : -1;
+
+            for (int x = 0; x < width; ++x) {
+                int value = grayRow[x] + ((errors[x + 2] + 4) >> 3), error;
+
+                if (value < 128) {
+                    if (rowOffset != -1) {
+                        DitherAlgorithm.setBlackDot(imageBytes, rowOffset, x);
+                    }
+                    error = value;
+                } else {
+                    error = value - 255;
+                }
+
+                errors[x + 3] += error;
+                errors[x + 4] += error;
+                nextErrors[x + 1] += error;
+                nextErrors[x + 2] += error;
+                nextErrors[x + 3] += error;
+                nextNextErrors[x + 2] += error;
+            }
+
+            int[] tmp = errors;
+            errors = nextErrors;
+            nextErrors = nextNextErrors;
+            nextNextErrors = tmp;
+            for (int i = 0; i < nextNextErrors.length; ++i) {
+                nextNextErrors[i] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.dantsu.escposprinter.dither;
+
+import com.dantsu.escposprinter.IEscPosArgbImage;
+
+/**
+ * Ordered dithering with a Bayer matrix. Each dot is compared to the threshold of its position in the matrix, so rows
+ * are independent and the result has a regular pattern that prints well on thermal paper.
+ */
+public class DitherBayer extends DitherAlgorithm {
+
+    public static final int SIZE_4 = 4;
+    public static final int SIZE_8 = 8;
+
+    private static final int[] BAYER_2 = {0, 2, 3, 1};
+
+    private int size;
+    private int mask;
+    private int[] thresholds;
+
+    public DitherBayer() {
+        this(DitherBayer.SIZE_8);
+    }
+
+    /**
+     * Create new instance of DitherBayer.
+     *
+     * @param size Matrix size. Use DitherBayer.SIZE_... constants
+     */
+    public DitherBayer(int size) {
+        if (size != DitherBayer.SIZE_4 && size != DitherBayer.SIZE_8) {
+            throw new IllegalArgumentException("Bayer matrix size must be 4 or 8.");
+        }
+
+        int nbrLevels = size * size;
+        this.size = size;
+        this.mask = size - 1;
+        this.thresholds = new int[nbrLevels];
+
+        for (int y = 0; y < size; ++y) {
+            for (int x = 0; x < size; ++x) {
+                // Bayer index built from the lowest bits : M(2n)[y][x] = 4 * M(n)[y % n][x % n] + M(2)[y / n][x / n]
+                int index = 0;
+                for (int bit = 1; bit < size; bit <<= 1) {
+                    index = index * 4 + DitherBayer.BAYER_2[((y & bit) != 0 ? 2 : 0) + ((x & bit) != 0 ? 1 : 0)];
+                }
+                this.thresholds[y * size + x] = ((2 * index + 1) * 256) / (2 * nbrLevels);
+            }
+        }
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return super.getCacheKey() + ":" + this.size;
+    }
+
+    @Override
+    protected void dither(IEscPosArgbImage image, int firstRow, int endRow, byte[] imageBytes, int offset, int bytesByLine) {
+        int width = image.getWidth();
+        int[] argbRow = new int[width], grayRow = new int[width];
+
+        for (int y = firstRow; y < endRow; ++y, offset += bytesByLine) {
+            this.readGrayRow(image, y, argbRow, grayRow);
+            int thresholdsRow = (y & this.mask) * this.size;
+            for (int x = 0; x < width; ++x) {
+                if (grayRow[x] < this.thresholds[thresholdsRow + (x & this.mask)]) {
+                    DitherAlgorithm.setBlackDot(imageBytes, offset, x);
+                }
+            }
+        }
+    }
+
+    /**
+     * Dither a row of an image to several tones. The ordered matrix chooses between the two tones nearest to each pixel.
+     *
+     * @param image    Image to be converted
+     * @param y        Index of the row
+     * @param nbrTones Number of tones
+     * @param argbRow  Array of image width items used to read the pixels
+     * @param toneRow  Array of image width items that receive the tones (0 : white, nbrTones - 1 : black)
+     */
+    void ditherToneRow(IEscPosArgbImage image, int y, int nbrTones, int[] argbRow, int[] toneRow) {
+        this.readGrayRow(image, y, argbRow, toneRow);
+
+        int thresholdsRow = (y & this.mask) * this.size;
+        for (int x = 0, width = image.getWidth(); x < width; ++x) {
+            int
+                darkness = (255 - toneRow[x]) * (nbrTones - 1),
+                tone = darkness / 255;
+
+            // Fraction of the way to the next tone, in 1/256
+            if ((darkness - tone * 255) * 256 / 255 >= this.thresholds[thresholdsRow + (x & this.mask)]) {
+                ++tone;
+            }
+            toneRow[x] = tone;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.dantsu.escposprinter.dither;
+
+import com.dantsu.escposprinter.IEscPosArgbImage;
+
+/**
+ * Historical conversion of the library, used by EscPosPrinterCommands.bitmapToBytes(bitmap, gradient).
+ * <p>
+ * In grayscale mode, the sum of the red, green and blue channels is compared to the threshold of an ordered pattern of
+ * 16 levels spread over 6 rows. In black and white mode, a dot is printed if one of the channels is below 160.
+ * The alpha channel, gamma and contrast are ignored.
+ */
+public class DitherClassic extends DitherAlgorithm {
+
+    private boolean gradient;
+
+    /**
+     * Create new instance of DitherClassic.
+     *
+     * @param gradient false : Black and white image, true : Grayscale image
+     */
+    public DitherClassic(boolean gradient) {
+        this.gradient = gradient;
+    }
+
+    public boolean isGradient() {
+        return this.gradient;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return super.getCacheKey() + ":" + this.gradient;
+    }
+
+    @Override
+    protected void dither(IEscPosArgbImage image, int firstRow, int endRow, byte[] imageBytes, int offset, int bytesByLine) {
+        int width = image.getWidth();
+        int[] row = new int[width];
+
+        // A pixel is black when (red + green + blue) < level * 765 / 95, level = greyscaleCoefficient * 6 + greyscaleLine
+        int gradientStep = 6,
+            levelsCount = 15 * gradientStep + gradientStep - 1;
+
+        for (int posY = firstRow; posY < endRow; posY++) {
+            image.getRow(posY, row);
+
+            int i = offset + (posY - firstRow) * bytesByLine,
+                greyscaleCoefficient = (posY % 8) * 2,
+                greyscaleLine = posY % gradientStep;
+            for (int j = 0; j < width; j += 8) {
+                int b = 0,
+                    end = Math.min(8, width - j);
+                for (int k = 0; k < end; k++) {
+                    int color = row[j + k],
+                        red = (color >> 16) & 255,
+                        green = (color >> 8) & 255,
+                        blue = color & 255;
+
+                    if (
+                        (this.gradient && (red + green + blue) * levelsCount < (greyscaleCoefficient * gradientStep + greyscaleLine) * 765) ||
+                            (!this.gradient && (red < 160 || green < 160 || blue < 160))
+                    ) {
+                        b |= 1 << (7 - k);
+                    }
+
+                    greyscaleCoefficient += 5;
+                    if (greyscaleCoefficient > 15) {
+                        greyscaleCoefficient -= 16;
+                    }
+                }
+                imageBytes[i++] = (byte) b;
+            }
+        }
+    }
+}
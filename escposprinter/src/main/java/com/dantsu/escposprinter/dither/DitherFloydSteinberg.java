@@ -0,0 +1,51 @@
+package com.dantsu.escposprinter.dither;
+
+import com.dantsu.escposprinter.IEscPosArgbImage;
+
+/**
+ * Floyd-Steinberg error diffusion, with a serpentine scan to avoid directional artifacts. Best for photos.
+ */
+public class DitherFloydSteinberg extends DitherAlgorithm {
+
+    @Override
+    protected void dither(IEscPosArgbImage image, int firstRow, int endRow, byte[] imageBytes, int offset, int bytesByLine) {
+        int width = image.getWidth();
+        int[] argbRow = new int[width], grayRow = new int[width];
+        // Errors are stored in sixteenths with one extra item on each side, index = x + 1
+        int[] errors = new int[width + 2], nextErrors = new int[width + 2];
+
+        // The rows above the band are dithered again, without printing them, to get the errors they spread in the band
+        for (int y = Math.max(0, firstRow - DitherAlgorithm.BAND_SEAM_ROWS); y < endRow; ++y) {
+            this.readGrayRow(image, y, argbRow, grayRow);
+            int rowOffset = y >= firstRow ? offset + (y - firstRow) * bytesByLine : -1;
+
+            boolean leftToRight = (y & 1) == 0;
+            int x = leftToRight ? 0 : width - 1, step = leftToRight ? 1 : -1;
+
+            for (int i = 0; i < width; ++i, x += step) {
+                int value = grayRow[x] + ((errors[x + 1] + 8) >> 4), error;
+
+                if (value < 128) {
+                    if (rowOffset != -1) {
+                        DitherAlgorithm.setBlackDot(imageBytes, rowOffset, x);
+                    }
+                    error = value;
+                } else {
+                    error = value - 255;
+                }
+
+                errors[x + 1 + step] += error * 7;
+                nextErrors[x + 1 - step] += error * 3;
+                nextErrors[x + 1] += error * 5;
+                nextErrors[x + 1 + step] += error;
+            }
+
+            int[] tmp = errors;
+            errors = nextErrors;
+            nextErrors = tmp;
+            for (int i = 0; i < nextErrors.length; ++i) {
+                nextErrors[i] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.dantsu.escposprinter.dither;
+
+import com.dantsu.escposprinter.IEscPosArgbImage;
+import com.dantsu.escposprinter.IEscPosMultiToneImage;
+
+/**
+ * ARGB image dithered to 4 tones of gray with an ordered Bayer matrix, while it is printed. Printers without multiple
+ * tone graphics print the black and white dithering of the same matrix.
+ */
+public class DitherMultiToneImage implements IEscPosMultiToneImage {
+
+    private static final int NBR_PLANES = 2;
+
+    private IEscPosArgbImage image;
+    private DitherBayer ditherBayer;
+    private int bytesByLine;
+
+    /**
+     * Create new instance of DitherMultiToneImage.
+     *
+     * @param image       Image to be printed, it must not be wider than the printer
+     * @param ditherBayer Ordered dithering used to choose the tones (gamma and contrast are applied)
+     */
+    public DitherMultiToneImage(IEscPosArgbImage image, DitherBayer ditherBayer) {
+        this.image = image;
+        this.ditherBayer = ditherBayer;
+        this.bytesByLine = (image.getWidth() + 7) / 8;
+    }
+
+    @Override
+    public int getBytesByLine() {
+        return this.bytesByLine;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.image.getHeight();
+    }
+
+    @Override
+    public int getNbrPlanes() {
+        return DitherMultiToneImage.NBR_PLANES;
+    }
+
+    @Override
+    public void readRows(int firstRow, int nbrRows, byte[] buffer, int offset) {
+        DitherMultiToneImage.clear(buffer, offset, nbrRows * this.bytesByLine);
+        this.ditherBayer.dither(this.image, firstRow, firstRow + nbrRows, buffer, offset, this.bytesByLine);
+    }
+
+    @Override
+    public void readPlaneRows(int plane, int firstRow, int nbrRows, byte[] buffer, int offset) {
+        int width = this.image.getWidth(),
+            toneBit = 1 << (DitherMultiToneImage.NBR_PLANES - 1 - plane);
+        int[] argbRow = new int[width], toneRow = new int[width];
+
+        DitherMultiToneImage.clear(buffer, offset, nbrRows * this.bytesByLine);
+
+        for (int y = firstRow; y < firstRow + nbrRows; ++y, offset += this.bytesByLine) {
+            this.ditherBayer.ditherToneRow(this.image, y, 1 << DitherMultiToneImage.NBR_PLANES, argbRow, toneRow);
+            for (int x = 0; x < width; ++x) {
+                if ((toneRow[x] & toneBit) != 0) {
+                    DitherAlgorithm.setBlackDot(buffer, offset, x);
+                }
+            }
+        }
+    }
+
+    private static void clear(byte[] buffer, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; ++i) {
+            buffer[i] = 0;
+        }
+    }
+
+    public IEscPosArgbImage getImage() {
+        return this.image;
+    }
+
+    public DitherBayer getDitherBayer() {
+        return this.ditherBayer;
+    }
+}
@@ -0,0 +1,130 @@
+package com.dantsu.escposprinter.dither;
+
+import com.dantsu.escposprinter.IEscPosArgbImage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Automatic threshold computed with the Otsu method : the gray level that best separates the histogram of the image in
+ * two classes. Useful for scanned documents, logos and texts with an uneven background.
+ */
+public class DitherOtsu extends DitherAlgorithm {
+
+    /**
+     * Compute the Otsu threshold of an histogram.
+     *
+     * @param histogram Number of pixels of each gray level (256 items)
+     * @return Gray level, dots with a lower gray level are printed
+     */
+    public static int computeThreshold(int[] histogram) {
+        long total = 0, sum = 0;
+        for (int i = 0; i < 256; ++i) {
+            total += histogram[i];
+            sum += (long) i * histogram[i];
+        }
+
+        long weightBackground = 0, sumBackground = 0;
+        double maxVariance = -1.0;
+        int threshold = 128;
+
+        for (int i = 0; i < 256; ++i) {
+            weightBackground += histogram[i];
+            if (weightBackground == 0) {
+                continue;
+            }
+            long weightForeground = total - weightBackground;
+            if (weightForeground == 0) {
+                break;
+            }
+            sumBackground += (long) i * histogram[i];
+
+            double meanDiff = (double) sumBackground / weightBackground - (double) (sum - sumBackground) / weightForeground;
+            double variance = (double) weightBackground * weightForeground * meanDiff * meanDiff;
+            if (variance > maxVariance) {
+                maxVariance = variance;
+                threshold = i + 1;
+            }
+        }
+        return threshold;
+    }
+
+    /**
+     * Compute the histogram of the gray levels of an image, the bands of the image are read in parallel.
+     *
+     * @param image           Image to be read
+     * @param executorService Thread pool used to read the bands, null to read on the calling thread
+     * @return Number of pixels of each gray level (256 items)
+     */
+    public int[] computeHistogram(final IEscPosArgbImage image, ExecutorService executorService) {
+        final int width = image.getWidth();
+        int height = image.getHeight();
+        final List<int[]> bandHistograms = new ArrayList<int[]>();
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+        for (int bandRow = 0; bandRow < height; bandRow += DitherAlgorithm.BAND_HEIGHT) {
+            final int
+                firstRow = bandRow,
+                endRow = Math.min(height, bandRow + DitherAlgorithm.BAND_HEIGHT);
+            final int[] histogram = new int[256];
+            bandHistograms.add(histogram);
+
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    int[] argbRow = new int[width], grayRow = new int[width];
+                    for (int y = firstRow; y < endRow; ++y) {
+                        DitherOtsu.this.readGrayRow(image, y, argbRow, grayRow);
+                        for (int x = 0; x < width; ++x) {
+                            ++histogram[grayRow[x]];
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        DitherAlgorithm.invokeAll(executorService, tasks);
+
+        int[] histogram = new int[256];
+        for (int[] bandHistogram : bandHistograms) {
+            for (int i = 0; i < 256; ++i) {
+                histogram[i] += bandHistogram[i];
+            }
+        }
+        return histogram;
+    }
+
+    @Override
+    protected DitherAlgorithm prepare(IEscPosArgbImage image, ExecutorService executorService) {
+        // The threshold depends on the whole image, it is computed before the bands are dithered
+        int threshold = DitherOtsu.computeThreshold(this.computeHistogram(image, executorService));
+        return new DitherThreshold(threshold).setGammaContrast(this.getGamma(), this.getContrast());
+    }
+
+    @Override
+    protected void dither(IEscPosArgbImage image, int firstRow, int endRow, byte[] imageBytes, int offset, int bytesByLine) {
+        int width = image.getWidth();
+        int[] argbRow = new int[width], grayRow = new int[width], histogram = new int[256];
+
+        for (int y = firstRow; y < endRow; ++y) {
+            this.readGrayRow(image, y, argbRow, grayRow);
+            for (int x = 0; x < width; ++x) {
+                ++histogram[grayRow[x]];
+            }
+        }
+
+        int threshold = DitherOtsu.computeThreshold(histogram);
+
+        for (int y = firstRow; y < endRow; ++y, offset += bytesByLine) {
+            this.readGrayRow(image, y, argbRow, grayRow);
+            for (int x = 0; x < width; ++x) {
+                if (grayRow[x] < threshold) {
+                    DitherAlgorithm.setBlackDot(imageBytes, offset, x);
+                }
+            }
+        }
+    }
+}
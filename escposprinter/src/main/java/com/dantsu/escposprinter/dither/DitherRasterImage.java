@@ -0,0 +1,78 @@
+package com.dantsu.escposprinter.dither;
+
+import com.dantsu.escposprinter.IEscPosArgbImage;
+import com.dantsu.escposprinter.IEscPosRasterImage;
+
+/**
+ * ARGB image dithered band by band while it is printed. Only one band of dots is kept in memory, so images of any
+ * height can be printed. The dots are the same as the result of DitherAlgorithm.convert.
+ */
+public class DitherRasterImage implements IEscPosRasterImage {
+
+    private IEscPosArgbImage image;
+    private DitherAlgorithm ditherAlgorithm;
+    private DitherAlgorithm preparedDitherAlgorithm = null;
+    private int bytesByLine;
+    private byte[] band = null;
+    private int bandFirstRow = -1;
+
+    /**
+     * Create new instance of DitherRasterImage.
+     *
+     * @param image           Image to be printed, it must not be wider than the printer
+     * @param ditherAlgorithm Algorithm used to convert the colors to black and white dots (Ex: new DitherFloydSteinberg())
+     */
+    public DitherRasterImage(IEscPosArgbImage image, DitherAlgorithm ditherAlgorithm) {
+        this.image = image;
+        this.ditherAlgorithm = ditherAlgorithm;
+        this.bytesByLine = (image.getWidth() + 7) / 8;
+    }
+
+    @Override
+    public int getBytesByLine() {
+        return this.bytesByLine;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.image.getHeight();
+    }
+
+    /**
+     * Copy consecutive rows of the image, the bands that contain them are dithered if needed.
+     */
+    @Override
+    public synchronized void readRows(int firstRow, int nbrRows, byte[] buffer, int offset) {
+        if (this.preparedDitherAlgorithm == null) {
+            this.preparedDitherAlgorithm = this.ditherAlgorithm.prepare(this.image, null);
+            this.band = new byte[Math.min(DitherAlgorithm.BAND_HEIGHT, this.image.getHeight()) * this.bytesByLine];
+        }
+
+        while (nbrRows > 0) {
+            int bandFirstRow = firstRow - firstRow % DitherAlgorithm.BAND_HEIGHT,
+                bandEndRow = Math.min(this.image.getHeight(), bandFirstRow + DitherAlgorithm.BAND_HEIGHT);
+
+            if (bandFirstRow != this.bandFirstRow) {
+                for (int i = 0; i < this.band.length; ++i) {
+                    this.band[i] = 0;
+                }
+                this.preparedDitherAlgorithm.dither(this.image, bandFirstRow, bandEndRow, this.band, 0, this.bytesByLine);
+                this.bandFirstRow = bandFirstRow;
+            }
+
+            int nbrBandRows = Math.min(nbrRows, bandEndRow - firstRow);
+            System.arraycopy(this.band, (firstRow - bandFirstRow) * this.bytesByLine, buffer, offset, nbrBandRows * this.bytesByLine);
+            firstRow += nbrBandRows;
+            nbrRows -= nbrBandRows;
+            offset += nbrBandRows * this.bytesByLine;
+        }
+    }
+
+    public IEscPosArgbImage getImage() {
+        return this.image;
+    }
+
+    public DitherAlgorithm getDitherAlgorithm() {
+        return this.ditherAlgorithm;
+    }
+}
@@ -0,0 +1,48 @@
+package com.dantsu.escposprinter.dither;
+
+import com.dantsu.escposprinter.IEscPosArgbImage;
+
+/**
+ * Fixed threshold : dots darker than the threshold are printed.
+ */
+public class DitherThreshold extends DitherAlgorithm {
+
+    private int threshold;
+
+    public DitherThreshold() {
+        this(128);
+    }
+
+    /**
+     * Create new instance of DitherThreshold.
+     *
+     * @param threshold Gray level from 1 to 255, dots with a lower gray level are printed
+     */
+    public DitherThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    public int getThreshold() {
+        return this.threshold;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return super.getCacheKey() + ":" + this.threshold;
+    }
+
+    @Override
+    protected void dither(IEscPosArgbImage image, int firstRow, int endRow, byte[] imageBytes, int offset, int bytesByLine) {
+        int width = image.getWidth();
+        int[] argbRow = new int[width], grayRow = new int[width];
+
+        for (int y = firstRow; y < endRow; ++y, offset += bytesByLine) {
+            this.readGrayRow(image, y, argbRow, grayRow);
+            for (int x = 0; x < width; ++x) {
+                if (grayRow[x] < this.threshold) {
+                    DitherAlgorithm.setBlackDot(imageBytes, offset, x);
+                }
+            }
+        }
+    }
+}
@@ -1,9 +1,19 @@
 package com.dantsu.escposprinter.textparser;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.dantsu.escposprinter.EscPosPrinter;
 import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.EscPosTextStyle;
 import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
 import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
 import com.dantsu.escposprinter.exceptions.EscPosParserException;
@@ -18,6 +28,11 @@ public class PrinterTextParser {
     public static final String TAGS_IMAGE = "img";
     public static final String TAGS_BARCODE = "barcode";
     public static final String TAGS_QRCODE = "qrcode";
+    public static final String TAGS_PDF417 = "pdf417";
+    public static final String TAGS_DATAMATRIX = "datamatrix";
+    public static final String TAGS_AZTEC = "aztec";
+
+    public static final String ATTR_IMAGE_REF = "ref";
 
     public static final String ATTR_BARCODE_WIDTH = "width";
     public static final String ATTR_BARCODE_HEIGHT = "height";
@@ -28,6 +43,9 @@ public class PrinterTextParser {
     public static final String ATTR_BARCODE_TYPE_UPCE = "upce";
     public static final String ATTR_BARCODE_TYPE_128 = "128";
     public static final String ATTR_BARCODE_TYPE_39 = "39";
+    public static final String ATTR_BARCODE_TYPE_93 = "93";
+    public static final String ATTR_BARCODE_TYPE_ITF = "itf";
+    public static final String ATTR_BARCODE_TYPE_CODABAR = "codabar";
     public static final String ATTR_BARCODE_TEXT_POSITION = "text";
     public static final String ATTR_BARCODE_TEXT_POSITION_NONE = "none";
     public static final String ATTR_BARCODE_TEXT_POSITION_ABOVE = "above";
@@ -60,10 +78,24 @@ public class PrinterTextParser {
     public static final String ATTR_FORMAT_TEXT_FONT_COLOR_BG_RED = "bg-red";
 
     public static final String ATTR_QRCODE_SIZE = "size";
-    
+    public static final String ATTR_QRCODE_ERROR_CORRECTION = "ec";
+    public static final String ATTR_QRCODE_ERROR_CORRECTION_L = "l";
+    public static final String ATTR_QRCODE_ERROR_CORRECTION_M = "m";
+    public static final String ATTR_QRCODE_ERROR_CORRECTION_Q = "q";
+    public static final String ATTR_QRCODE_ERROR_CORRECTION_H = "h";
+    public static final String ATTR_QRCODE_QUIET_ZONE = "margin";
+
+    public static final String ATTR_BARCODE_2D_SIZE = "size";
+    public static final String ATTR_BARCODE_2D_QUIET_ZONE = "margin";
+
     private static String regexAlignTags;
+
+    /**
+     * @deprecated The alignment tags are read by PrinterTextParserLexer (see PrinterTextParserLexer.TOKEN_ALIGN), this regex is not used anymore.
+     */
+    @Deprecated
     public static String getRegexAlignTags() {
-        if(PrinterTextParser.regexAlignTags == null) {
+        if (PrinterTextParser.regexAlignTags == null) {
             StringBuilder regexAlignTags = new StringBuilder();
             for (int i = 0; i < PrinterTextParser.TAGS_ALIGN.length; i++) {
                 regexAlignTags.append("|\\[").append(PrinterTextParser.TAGS_ALIGN[i]).append("\\]");
@@ -72,9 +104,9 @@ public class PrinterTextParser {
         }
         return PrinterTextParser.regexAlignTags;
     }
-    
+
     public static boolean isTagTextFormat(String tagName) {
-        if (tagName.substring(0, 1).equals("/")) {
+        if (tagName.startsWith("/")) {
             tagName = tagName.substring(1);
         }
         
@@ -86,152 +118,592 @@ public class PrinterTextParser {
         return false;
     }
     
+    /**
+     * @deprecated The text format is kept in style stacks, this helper is not used anymore.
+     */
+    @Deprecated
     public static byte[][] arrayByteDropLast(byte[][] arr) {
         if (arr.length == 0) {
             return arr;
         }
-        
+
         byte[][] newArr = new byte[arr.length - 1][];
         System.arraycopy(arr, 0, newArr, 0, newArr.length);
-        
+
         return newArr;
     }
-    
+
+    /**
+     * @deprecated The text format is kept in style stacks, this helper is not used anymore.
+     */
+    @Deprecated
     public static byte[][] arrayBytePush(byte[][] arr, byte[] add) {
         byte[][] newArr = new byte[arr.length + 1][];
         System.arraycopy(arr, 0, newArr, 0, arr.length);
         newArr[arr.length] = add;
         return newArr;
     }
-    
-    
-    
-    
+
+    /**
+     * Stack of the last byte of a style command.
+     */
+    private static class StyleStack {
+        private byte[] values = new byte[8];
+        private int depth = 1;
+
+        private StyleStack(byte[] initialCommand) {
+            this.values[0] = initialCommand[2];
+        }
+
+        private StyleStack(StyleStack styleStack) {
+            this.values = new byte[styleStack.values.length];
+            this.depth = styleStack.depth;
+            System.arraycopy(styleStack.values, 0, this.values, 0, this.depth);
+        }
+
+        private byte getLast() {
+            return this.values[this.depth - 1];
+        }
+
+        private void push(byte[] command) {
+            if (this.depth == this.values.length) {
+                byte[] values = new byte[this.depth * 2];
+                System.arraycopy(this.values, 0, values, 0, this.depth);
+                this.values = values;
+            }
+            this.values[this.depth++] = command[2];
+        }
+
+        private void dropLast() {
+            if (this.depth > 1) {
+                --this.depth;
+            }
+        }
+    }
+
+    /**
+     * Number of lines parsed by each task of a parallel parsing.
+     */
+    private static final int PARALLEL_LINES_PER_TASK = 64;
+
+    private static ExecutorService sharedExecutorService = null;
+
+    /**
+     * Get the thread pool shared by all parallel parsings and image conversions. It has one daemon thread per processor.
+     *
+     * @return ExecutorService instance
+     */
+    public static synchronized ExecutorService getSharedExecutorService() {
+        if (PrinterTextParser.sharedExecutorService == null) {
+            PrinterTextParser.sharedExecutorService = Executors.newFixedThreadPool(
+                Math.max(1, Runtime.getRuntime().availableProcessors()),
+                new ThreadFactory() {
+                    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "EscPosPrinter-" + this.threadNumber.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }
+            );
+        }
+        return PrinterTextParser.sharedExecutorService;
+    }
+
+
     private EscPosPrinter printer;
-    private byte[][] textSize = {EscPosPrinterCommands.TEXT_SIZE_NORMAL};
-    private byte[][] textColor = {EscPosPrinterCommands.TEXT_COLOR_BLACK};
-    private byte[][] textReverseColor = {EscPosPrinterCommands.TEXT_COLOR_REVERSE_OFF};
-    private byte[][] textBold = {EscPosPrinterCommands.TEXT_WEIGHT_NORMAL};
-    private byte[][] textUnderline = {EscPosPrinterCommands.TEXT_UNDERLINE_OFF};
-    private byte[][] textDoubleStrike = {EscPosPrinterCommands.TEXT_DOUBLE_STRIKE_OFF};
+    private StyleStack textSize = new StyleStack(EscPosPrinterCommands.TEXT_SIZE_NORMAL);
+    private StyleStack textColor = new StyleStack(EscPosPrinterCommands.TEXT_COLOR_BLACK);
+    private StyleStack textReverseColor = new StyleStack(EscPosPrinterCommands.TEXT_COLOR_REVERSE_OFF);
+    private StyleStack textBold = new StyleStack(EscPosPrinterCommands.TEXT_WEIGHT_NORMAL);
+    private StyleStack textUnderline = new StyleStack(EscPosPrinterCommands.TEXT_UNDERLINE_OFF);
+    private StyleStack textDoubleStrike = new StyleStack(EscPosPrinterCommands.TEXT_DOUBLE_STRIKE_OFF);
+    private EscPosTextStyle lastTextStyle = null;
     private String text = "";
-    
+    private PrinterTextParserReader textReader = null;
+    private String pendingTextLine = null;
+    private int nbrPendingEmptyLines = 0;
+    private boolean hasParsedLine = false;
+
     public PrinterTextParser(EscPosPrinter printer) {
         this.printer = printer;
     }
-    
+
+    /**
+     * Create a copy of the text format state of a PrinterTextParser.
+     */
+    private PrinterTextParser(PrinterTextParser textParser) {
+        this.printer = textParser.printer;
+        this.textSize = new StyleStack(textParser.textSize);
+        this.textColor = new StyleStack(textParser.textColor);
+        this.textReverseColor = new StyleStack(textParser.textReverseColor);
+        this.textBold = new StyleStack(textParser.textBold);
+        this.textUnderline = new StyleStack(textParser.textUnderline);
+        this.textDoubleStrike = new StyleStack(textParser.textDoubleStrike);
+        this.lastTextStyle = textParser.lastTextStyle;
+        this.text = textParser.text;
+    }
+
     public EscPosPrinter getPrinter() {
         return printer;
     }
-    
+
+    /**
+     * Go back to the default text format, so the parser can be reused for another text.
+     *
+     * @return Fluent interface
+     */
+    public PrinterTextParser resetTextFormat() {
+        this.textSize.depth = 1;
+        this.textColor.depth = 1;
+        this.textReverseColor.depth = 1;
+        this.textBold.depth = 1;
+        this.textUnderline.depth = 1;
+        this.textDoubleStrike.depth = 1;
+        this.lastTextStyle = null;
+        return this;
+    }
+
     public PrinterTextParser setFormattedText(String text) {
         this.text = text;
         return this;
     }
 
+    /**
+     * Set a formatted text that will be read line by line with parseNextLine().
+     *
+     * @param reader Reader of the formatted text
+     * @return Fluent interface
+     */
+    public PrinterTextParser setFormattedText(Reader reader) {
+        this.textReader = new PrinterTextParserReader(reader);
+        this.pendingTextLine = null;
+        this.nbrPendingEmptyLines = 0;
+        this.hasParsedLine = false;
+        return this;
+    }
+
+    /**
+     * Get the current text style, the instance is shared with all texts that have the same style.
+     *
+     * @return EscPosTextStyle instance
+     */
+    public EscPosTextStyle getLastTextStyle() {
+        if (this.lastTextStyle == null) {
+            this.lastTextStyle = EscPosTextStyle.get(
+                this.textSize.getLast(),
+                this.textColor.getLast(),
+                this.textReverseColor.getLast(),
+                this.textBold.getLast(),
+                this.textUnderline.getLast(),
+                this.textDoubleStrike.getLast()
+            );
+        }
+        return this.lastTextStyle;
+    }
+
+    private PrinterTextParser push(StyleStack styleStack, byte[] command) {
+        styleStack.push(command);
+        this.lastTextStyle = null;
+        return this;
+    }
+
+    private PrinterTextParser dropLast(StyleStack styleStack) {
+        styleStack.dropLast();
+        this.lastTextStyle = null;
+        return this;
+    }
+
     public byte[] getLastTextSize() {
-        return this.textSize[this.textSize.length - 1];
+        return this.getLastTextStyle().getTextSize();
     }
 
     public PrinterTextParser addTextSize(byte[] newTextSize) {
-        this.textSize = PrinterTextParser.arrayBytePush(this.textSize, newTextSize);
-        return this;
+        return this.push(this.textSize, newTextSize);
     }
 
     public PrinterTextParser dropLastTextSize() {
-        if (this.textSize.length > 1) {
-            this.textSize = PrinterTextParser.arrayByteDropLast(this.textSize);
-        }
-        return this;
+        return this.dropLast(this.textSize);
     }
 
     public byte[] getLastTextColor() {
-        return this.textColor[this.textColor.length - 1];
+        return this.getLastTextStyle().getTextColor();
     }
 
     public PrinterTextParser addTextColor(byte[] newTextColor) {
-        this.textColor = PrinterTextParser.arrayBytePush(this.textColor, newTextColor);
-        return this;
+        return this.push(this.textColor, newTextColor);
     }
 
     public PrinterTextParser dropLastTextColor() {
-        if (this.textColor.length > 1) {
-            this.textColor = PrinterTextParser.arrayByteDropLast(this.textColor);
-        }
-        return this;
+        return this.dropLast(this.textColor);
     }
 
     public byte[] getLastTextReverseColor() {
-        return this.textReverseColor[this.textReverseColor.length - 1];
+        return this.getLastTextStyle().getTextReverseColor();
     }
 
     public PrinterTextParser addTextReverseColor(byte[] newTextReverseColor) {
-        this.textReverseColor = PrinterTextParser.arrayBytePush(this.textReverseColor, newTextReverseColor);
-        return this;
+        return this.push(this.textReverseColor, newTextReverseColor);
     }
 
     public PrinterTextParser dropLastTextReverseColor() {
-        if (this.textReverseColor.length > 1) {
-            this.textReverseColor = PrinterTextParser.arrayByteDropLast(this.textReverseColor);
-        }
-        return this;
+        return this.dropLast(this.textReverseColor);
     }
-    
+
     public byte[] getLastTextBold() {
-        return this.textBold[this.textBold.length - 1];
+        return this.getLastTextStyle().getTextBold();
     }
-    
+
     public PrinterTextParser addTextBold(byte[] newTextBold) {
-        this.textBold = PrinterTextParser.arrayBytePush(this.textBold, newTextBold);
-        return this;
+        return this.push(this.textBold, newTextBold);
     }
 
     public PrinterTextParser dropTextBold() {
-        if (this.textBold.length > 1) {
-            this.textBold = PrinterTextParser.arrayByteDropLast(this.textBold);
-        }
-        return this;
+        return this.dropLast(this.textBold);
     }
 
     public byte[] getLastTextUnderline() {
-        return this.textUnderline[this.textUnderline.length - 1];
+        return this.getLastTextStyle().getTextUnderline();
     }
 
     public PrinterTextParser addTextUnderline(byte[] newTextUnderline) {
-        this.textUnderline = PrinterTextParser.arrayBytePush(this.textUnderline, newTextUnderline);
-        return this;
+        return this.push(this.textUnderline, newTextUnderline);
     }
 
     public PrinterTextParser dropLastTextUnderline() {
-        if (this.textUnderline.length > 1) {
-            this.textUnderline = PrinterTextParser.arrayByteDropLast(this.textUnderline);
-        }
-        return this;
+        return this.dropLast(this.textUnderline);
     }
 
     public byte[] getLastTextDoubleStrike() {
-        return this.textDoubleStrike[this.textDoubleStrike.length - 1];
+        return this.getLastTextStyle().getTextDoubleStrike();
     }
 
     public PrinterTextParser addTextDoubleStrike(byte[] newTextDoubleStrike) {
-        this.textDoubleStrike = PrinterTextParser.arrayBytePush(this.textDoubleStrike, newTextDoubleStrike);
-        return this;
+        return this.push(this.textDoubleStrike, newTextDoubleStrike);
     }
 
     public PrinterTextParser dropLastTextDoubleStrike() {
-        if (this.textDoubleStrike.length > 1) {
-            this.textDoubleStrike = PrinterTextParser.arrayByteDropLast(this.textDoubleStrike);
+        return this.dropLast(this.textDoubleStrike);
+    }
+
+    /**
+     * Update the text format with a font, b or u tag.
+     *
+     * @param textParserTag Opening or closing text format tag
+     * @return Fluent interface
+     */
+    public PrinterTextParser applyTextFormatTag(PrinterTextParserTag textParserTag) {
+        if (textParserTag.isCloseTag()) {
+            switch (textParserTag.getTagName()) {
+                case PrinterTextParser.TAGS_FORMAT_TEXT_BOLD:
+                    this.dropTextBold();
+                    break;
+                case PrinterTextParser.TAGS_FORMAT_TEXT_UNDERLINE:
+                    this.dropLastTextUnderline();
+                    this.dropLastTextDoubleStrike();
+                    break;
+                case PrinterTextParser.TAGS_FORMAT_TEXT_FONT:
+                    this.dropLastTextSize();
+                    this.dropLastTextColor();
+                    this.dropLastTextReverseColor();
+                    break;
+            }
+            return this;
+        }
+
+        switch (textParserTag.getTagName()) {
+            case PrinterTextParser.TAGS_FORMAT_TEXT_BOLD:
+                this.addTextBold(EscPosPrinterCommands.TEXT_WEIGHT_BOLD);
+                break;
+            case PrinterTextParser.TAGS_FORMAT_TEXT_UNDERLINE:
+                if (textParserTag.hasAttribute(PrinterTextParser.ATTR_FORMAT_TEXT_UNDERLINE_TYPE)) {
+                    switch (textParserTag.getAttribute(PrinterTextParser.ATTR_FORMAT_TEXT_UNDERLINE_TYPE)) {
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_UNDERLINE_TYPE_NORMAL:
+                            this.addTextUnderline(EscPosPrinterCommands.TEXT_UNDERLINE_LARGE);
+                            this.addTextDoubleStrike(this.getLastTextDoubleStrike());
+                            break;
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_UNDERLINE_TYPE_DOUBLE:
+                            this.addTextUnderline(this.getLastTextUnderline());
+                            this.addTextDoubleStrike(EscPosPrinterCommands.TEXT_DOUBLE_STRIKE_ON);
+                            break;
+                    }
+                } else {
+                    this.addTextUnderline(EscPosPrinterCommands.TEXT_UNDERLINE_LARGE);
+                    this.addTextDoubleStrike(this.getLastTextDoubleStrike());
+                }
+                break;
+            case PrinterTextParser.TAGS_FORMAT_TEXT_FONT:
+                if (textParserTag.hasAttribute(PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE)) {
+                    switch (textParserTag.getAttribute(PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE)) {
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_NORMAL:
+                        default:
+                            this.addTextSize(EscPosPrinterCommands.TEXT_SIZE_NORMAL);
+                            break;
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_TALL:
+                            this.addTextSize(EscPosPrinterCommands.TEXT_SIZE_DOUBLE_HEIGHT);
+                            break;
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_WIDE:
+                            this.addTextSize(EscPosPrinterCommands.TEXT_SIZE_DOUBLE_WIDTH);
+                            break;
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_BIG:
+                            this.addTextSize(EscPosPrinterCommands.TEXT_SIZE_BIG);
+                            break;
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_BIG_2:
+                            this.addTextSize(EscPosPrinterCommands.TEXT_SIZE_BIG_2);
+                            break;
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_BIG_3:
+                            this.addTextSize(EscPosPrinterCommands.TEXT_SIZE_BIG_3);
+                            break;
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_BIG_4:
+                            this.addTextSize(EscPosPrinterCommands.TEXT_SIZE_BIG_4);
+                            break;
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_BIG_5:
+                            this.addTextSize(EscPosPrinterCommands.TEXT_SIZE_BIG_5);
+                            break;
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_BIG_6:
+                            this.addTextSize(EscPosPrinterCommands.TEXT_SIZE_BIG_6);
+                            break;
+                    }
+                } else {
+                    this.addTextSize(this.getLastTextSize());
+                }
+
+                if (textParserTag.hasAttribute(PrinterTextParser.ATTR_FORMAT_TEXT_FONT_COLOR)) {
+                    switch (textParserTag.getAttribute(PrinterTextParser.ATTR_FORMAT_TEXT_FONT_COLOR)) {
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_COLOR_BLACK:
+                        default:
+                            this.addTextColor(EscPosPrinterCommands.TEXT_COLOR_BLACK);
+                            this.addTextReverseColor(EscPosPrinterCommands.TEXT_COLOR_REVERSE_OFF);
+                            break;
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_COLOR_BG_BLACK:
+                            this.addTextColor(EscPosPrinterCommands.TEXT_COLOR_BLACK);
+                            this.addTextReverseColor(EscPosPrinterCommands.TEXT_COLOR_REVERSE_ON);
+                            break;
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_COLOR_RED:
+                            this.addTextColor(EscPosPrinterCommands.TEXT_COLOR_RED);
+                            this.addTextReverseColor(EscPosPrinterCommands.TEXT_COLOR_REVERSE_OFF);
+                            break;
+                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_COLOR_BG_RED:
+                            this.addTextColor(EscPosPrinterCommands.TEXT_COLOR_RED);
+                            this.addTextReverseColor(EscPosPrinterCommands.TEXT_COLOR_REVERSE_ON);
+                            break;
+                    }
+                } else {
+                    this.addTextColor(this.getLastTextColor());
+                    this.addTextReverseColor(this.getLastTextReverseColor());
+                }
+                break;
         }
         return this;
     }
-    
+
+    /**
+     * Apply the text format tags of the current line of the lexer without building the line.
+     * Tags of image, barcode and QR code lines are ignored like in PrinterTextParserColumn.
+     */
+    private void applyTextFormatTags(PrinterTextParserLexer lexer) {
+        int tokensCount = lexer.getTokensCount();
+
+        if (PrinterTextParserLine.countColumns(lexer) == 1) {
+            int firstToken = tokensCount > 0 && lexer.getTokenType(0) == PrinterTextParserLexer.TOKEN_ALIGN ? 1 : 0;
+            if (PrinterTextParserColumn.findElementTagTokens(lexer, firstToken, tokensCount) != null) {
+                return;
+            }
+        }
+
+        for (int tokenIndex = 0; tokenIndex < tokensCount; ++tokenIndex) {
+            if (
+                lexer.getTokenType(tokenIndex) == PrinterTextParserLexer.TOKEN_TAG &&
+                    !lexer.isTagSelfClosing(tokenIndex) &&
+                    PrinterTextParser.isTagTextFormat(lexer.getTagName(tokenIndex))
+            ) {
+                this.applyTextFormatTag(lexer.getTag(tokenIndex));
+            }
+        }
+    }
+
     public PrinterTextParserLine[] parse() throws EscPosParserException, EscPosBarcodeException, EscPosEncodingException {
-        String[] stringLines = this.text.split("\n|\r\n");
-        PrinterTextParserLine[] lines = new PrinterTextParserLine[stringLines.length];
-        int i = 0;
-        for (String line : stringLines) {
-            lines[i++] = new PrinterTextParserLine(this, line);
+        if (this.text.length() == 0) {
+            return new PrinterTextParserLine[]{new PrinterTextParserLine(this, "")};
+        }
+
+        PrinterTextParserLexer lexer = new PrinterTextParserLexer(this.text);
+        ArrayList<PrinterTextParserLine> lines = new ArrayList<PrinterTextParserLine>();
+        int nbrEmptyLines = 0;
+
+        while (lexer.nextLine()) {
+            if (lexer.getTokensCount() == 0) {
+                // Trailing empty lines are not printed
+                ++nbrEmptyLines;
+                continue;
+            }
+            for (; nbrEmptyLines > 0; --nbrEmptyLines) {
+                lines.add(new PrinterTextParserLine(this, ""));
+            }
+            lines.add(new PrinterTextParserLine(this, lexer));
+        }
+        return lines.toArray(new PrinterTextParserLine[lines.size()]);
+    }
+
+    /**
+     * Parse the next line of the formatted text set with setFormattedText(Reader). Only the current line is kept in
+     * memory, so texts of any length can be printed.
+     *
+     * @return Parsed line, null if all the lines have been parsed
+     */
+    public PrinterTextParserLine parseNextLine() throws EscPosParserException, EscPosBarcodeException, EscPosEncodingException {
+        if (this.textReader == null) {
+            return null;
+        }
+
+        if (this.nbrPendingEmptyLines == 0 && this.pendingTextLine == null) {
+            String textLine;
+            try {
+                while ((textLine = this.textReader.readLine()) != null && textLine.length() == 0) {
+                    ++this.nbrPendingEmptyLines;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                throw new EscPosParserException(e.getMessage());
+            }
+
+            if (textLine == null) {
+                // Trailing empty lines are not printed, an empty text is printed as one empty line
+                boolean isEmptyText = !this.hasParsedLine && this.nbrPendingEmptyLines == 0;
+                this.textReader = null;
+                this.nbrPendingEmptyLines = 0;
+                return isEmptyText ? new PrinterTextParserLine(this, "") : null;
+            }
+            this.pendingTextLine = textLine;
+        }
+
+        this.hasParsedLine = true;
+
+        if (this.nbrPendingEmptyLines > 0) {
+            --this.nbrPendingEmptyLines;
+            return new PrinterTextParserLine(this, "");
+        }
+
+        String textLine = this.pendingTextLine;
+        this.pendingTextLine = null;
+        return new PrinterTextParserLine(this, textLine);
+    }
+
+    /**
+     * Parse the formatted text, lines are parsed in parallel on an ExecutorService.
+     * <p>
+     * A first sequential pass only reads the text format tags to know the text format at the start of each block of
+     * lines. Then each block is parsed by a task with its own copy of this text format, so the images, barcodes and
+     * QR codes of the different blocks are rendered at the same time. Lines are returned in the order of the text.
+     *
+     * @param executorService Thread pool that parse the blocks of lines, null to parse on the calling thread
+     * @return Parsed lines
+     */
+    public PrinterTextParserLine[] parse(ExecutorService executorService) throws EscPosParserException, EscPosBarcodeException, EscPosEncodingException {
+        if (executorService == null || this.text.length() == 0) {
+            return this.parse();
+        }
+
+        PrinterTextParserLexer lexer = new PrinterTextParserLexer(this.text);
+        ArrayList<PrinterTextParser> blocksTextParser = new ArrayList<PrinterTextParser>();
+        int[] linesBounds = new int[PrinterTextParser.PARALLEL_LINES_PER_TASK * 2];
+        int nbrLines = 0, nbrPrintedLines = 0;
+
+        while (lexer.nextLine()) {
+            if (nbrLines % PrinterTextParser.PARALLEL_LINES_PER_TASK == 0) {
+                blocksTextParser.add(new PrinterTextParser(this));
+            }
+            if (nbrLines * 2 == linesBounds.length) {
+                int[] linesBoundsTmp = new int[linesBounds.length * 2];
+                System.arraycopy(linesBounds, 0, linesBoundsTmp, 0, linesBounds.length);
+                linesBounds = linesBoundsTmp;
+            }
+
+            if (lexer.getTokensCount() == 0) {
+                linesBounds[nbrLines * 2] = -1;
+            } else {
+                linesBounds[nbrLines * 2] = lexer.getLineStart();
+                linesBounds[nbrLines * 2 + 1] = lexer.getLineEnd();
+                this.applyTextFormatTags(lexer);
+                // Trailing empty lines are not printed
+                nbrPrintedLines = nbrLines + 1;
+            }
+            ++nbrLines;
+        }
+
+        final PrinterTextParserLine[] lines = new PrinterTextParserLine[nbrPrintedLines];
+        final int[] finalLinesBounds = linesBounds;
+        int nbrBlocks = (nbrPrintedLines + PrinterTextParser.PARALLEL_LINES_PER_TASK - 1) / PrinterTextParser.PARALLEL_LINES_PER_TASK;
+
+        if (nbrBlocks <= 1) {
+            if (nbrBlocks == 1) {
+                blocksTextParser.get(0).parseLines(lines, finalLinesBounds, 0, nbrPrintedLines);
+            }
+            return lines;
+        }
+
+        ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>(nbrBlocks);
+        for (int i = 0; i < nbrBlocks; ++i) {
+            final PrinterTextParser blockTextParser = blocksTextParser.get(i);
+            final int firstLine = i * PrinterTextParser.PARALLEL_LINES_PER_TASK;
+            final int endLine = Math.min(firstLine + PrinterTextParser.PARALLEL_LINES_PER_TASK, nbrPrintedLines);
+            futures.add(executorService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    blockTextParser.parseLines(lines, finalLinesBounds, firstLine, endLine);
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EscPosParserException("Parsing of the formatted text has been interrupted.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof EscPosParserException) {
+                throw (EscPosParserException) cause;
+            }
+            if (cause instanceof EscPosBarcodeException) {
+                throw (EscPosBarcodeException) cause;
+            }
+            if (cause instanceof EscPosEncodingException) {
+                throw (EscPosEncodingException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new EscPosParserException(String.valueOf(cause));
+        } finally {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
         }
         return lines;
     }
+
+    /**
+     * Parse a block of lines with the text format of this instance.
+     */
+    private void parseLines(PrinterTextParserLine[] lines, int[] linesBounds, int firstLine, int endLine) throws EscPosParserException, EscPosBarcodeException, EscPosEncodingException {
+        for (int i = firstLine; i < endLine; ++i) {
+            int lineStart = linesBounds[i * 2];
+            if (lineStart == -1) {
+                lines[i] = new PrinterTextParserLine(this, "");
+                continue;
+            }
+            PrinterTextParserLexer lexer = new PrinterTextParserLexer(this.text, lineStart, linesBounds[i * 2 + 1]);
+            lexer.nextLine();
+            lines[i] = new PrinterTextParserLine(this, lexer);
+        }
+    }
 }
@@ -7,11 +7,15 @@ import com.dantsu.escposprinter.EscPosPrinterCommands;
 import com.dantsu.escposprinter.barcode.Barcode;
 import com.dantsu.escposprinter.barcode.Barcode128;
 import com.dantsu.escposprinter.barcode.Barcode39;
+import com.dantsu.escposprinter.barcode.Barcode93;
+import com.dantsu.escposprinter.barcode.BarcodeCodabar;
 import com.dantsu.escposprinter.barcode.BarcodeEAN13;
 import com.dantsu.escposprinter.barcode.BarcodeEAN8;
+import com.dantsu.escposprinter.barcode.BarcodeITF;
 import com.dantsu.escposprinter.barcode.BarcodeUPCA;
 import com.dantsu.escposprinter.barcode.BarcodeUPCE;
 import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.dantsu.escposprinter.exceptions.EscPosConnectionException;
 import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
 import com.dantsu.escposprinter.exceptions.EscPosParserException;
 
@@ -118,6 +122,15 @@ public class PrinterTextParserBarcode implements IPrinterTextParserElement {
             case PrinterTextParser.ATTR_BARCODE_TYPE_39:
                 this.barcode = new Barcode39(printer, code, width, height, textPosition);
                 break;
+            case PrinterTextParser.ATTR_BARCODE_TYPE_93:
+                this.barcode = new Barcode93(printer, code, width, height, textPosition);
+                break;
+            case PrinterTextParser.ATTR_BARCODE_TYPE_ITF:
+                this.barcode = new BarcodeITF(printer, code, width, height, textPosition);
+                break;
+            case PrinterTextParser.ATTR_BARCODE_TYPE_CODABAR:
+                this.barcode = new BarcodeCodabar(printer, code, width, height, textPosition);
+                break;
             default:
                 throw new EscPosParserException("Invalid barcode attribute : " + PrinterTextParser.ATTR_BARCODE_TYPE);
         }
@@ -140,10 +153,10 @@ public class PrinterTextParserBarcode implements IPrinterTextParserElement {
      * @return this Fluent method
      */
     @Override
-    public PrinterTextParserBarcode print(EscPosPrinterCommands printerSocket) {
+    public PrinterTextParserBarcode print(EscPosPrinterCommands printerSocket) throws EscPosEncodingException, EscPosConnectionException {
         printerSocket
                 .setAlign(this.align)
-                .printBarcode(this.barcode);
+                .printBarcodeOrImage(this.barcode);
         return this;
     }
 }
@@ -0,0 +1,103 @@
+package com.dantsu.escposprinter.textparser;
+
+import com.dantsu.escposprinter.EscPosPrinter;
+import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.barcode.Barcode2D;
+import com.dantsu.escposprinter.barcode.BarcodeAztec;
+import com.dantsu.escposprinter.barcode.BarcodeDataMatrix;
+import com.dantsu.escposprinter.barcode.BarcodePDF417;
+import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.dantsu.escposprinter.exceptions.EscPosConnectionException;
+import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
+import com.dantsu.escposprinter.exceptions.EscPosParserException;
+
+import java.util.Hashtable;
+
+public class PrinterTextParserBarcode2D extends PrinterTextParserImg {
+
+    private static Barcode2D initConstructor(PrinterTextParserColumn printerTextParserColumn, String tagName,
+                                             Hashtable<String, String> barcodeAttributes, String data) throws EscPosParserException, EscPosBarcodeException {
+        EscPosPrinter printer = printerTextParserColumn.getLine().getTextParser().getPrinter();
+        data = data.trim();
+
+        float size = tagName.equals(PrinterTextParser.TAGS_PDF417) ? printer.getPrinterWidthMM() * 0.7f : 20f;
+
+        if (barcodeAttributes.containsKey(PrinterTextParser.ATTR_BARCODE_2D_SIZE)) {
+            String barcodeAttribute = barcodeAttributes.get(PrinterTextParser.ATTR_BARCODE_2D_SIZE);
+            if (barcodeAttribute == null) {
+                throw new EscPosParserException("Invalid 2D code attribute : " + PrinterTextParser.ATTR_BARCODE_2D_SIZE);
+            }
+            try {
+                size = Float.parseFloat(barcodeAttribute);
+            } catch(NumberFormatException nfe) {
+                throw new EscPosParserException("Invalid 2D code " + PrinterTextParser.ATTR_BARCODE_2D_SIZE + " value");
+            }
+        }
+
+        int quietZone = 0;
+
+        if (barcodeAttributes.containsKey(PrinterTextParser.ATTR_BARCODE_2D_QUIET_ZONE)) {
+            String barcodeAttribute = barcodeAttributes.get(PrinterTextParser.ATTR_BARCODE_2D_QUIET_ZONE);
+            if (barcodeAttribute == null) {
+                throw new EscPosParserException("Invalid 2D code attribute : " + PrinterTextParser.ATTR_BARCODE_2D_QUIET_ZONE);
+            }
+            try {
+                quietZone = Integer.parseInt(barcodeAttribute);
+            } catch(NumberFormatException nfe) {
+                throw new EscPosParserException("Invalid 2D code " + PrinterTextParser.ATTR_BARCODE_2D_QUIET_ZONE + " value");
+            }
+            if (quietZone < 0) {
+                throw new EscPosParserException("Invalid 2D code " + PrinterTextParser.ATTR_BARCODE_2D_QUIET_ZONE + " value");
+            }
+        }
+
+        switch (tagName) {
+            case PrinterTextParser.TAGS_PDF417:
+                return new BarcodePDF417(printer, data, size, quietZone);
+            case PrinterTextParser.TAGS_DATAMATRIX:
+                return new BarcodeDataMatrix(printer, data, size, quietZone);
+            case PrinterTextParser.TAGS_AZTEC:
+                return new BarcodeAztec(printer, data, size, quietZone);
+            default:
+                throw new EscPosParserException("Invalid 2D code tag : " + tagName);
+        }
+    }
+
+    private Barcode2D barcode;
+
+    public PrinterTextParserBarcode2D(PrinterTextParserColumn printerTextParserColumn, String textAlign, String tagName,
+                                      Hashtable<String, String> barcodeAttributes, String data) throws EscPosParserException, EscPosBarcodeException {
+        this(printerTextParserColumn, textAlign, PrinterTextParserBarcode2D.initConstructor(printerTextParserColumn, tagName, barcodeAttributes, data));
+    }
+
+    private PrinterTextParserBarcode2D(PrinterTextParserColumn printerTextParserColumn, String textAlign, Barcode2D barcode) {
+        super(printerTextParserColumn, textAlign, barcode.getRasterImage());
+        this.barcode = barcode;
+    }
+
+    /**
+     * Print 2D code. If the printer profile supports the "GS ( k" commands of the symbol, only the data is sent and the
+     * printer builds the same symbol as the image. Otherwise, the 2D code is printed as an image.
+     *
+     * @param printerSocket Instance of EscPosPrinterCommands
+     * @return this Fluent method
+     */
+    @Override
+    public PrinterTextParserBarcode2D print(EscPosPrinterCommands printerSocket) throws EscPosEncodingException, EscPosConnectionException {
+        if (!this.barcode.isCommandSupported(printerSocket.getProfile())) {
+            super.print(printerSocket);
+            return this;
+        }
+
+        // The printer does not print the quiet zone : the paper is fed above and below the 2D code instead
+        int quietZoneDots = this.barcode.getQuietZone() * this.barcode.getModuleWidth();
+
+        this.feedPaper(printerSocket, quietZoneDots);
+        printerSocket
+            .setAlign(this.getAlign())
+            .printBarcode2D(this.barcode)
+            .setAlign(EscPosPrinterCommands.TEXT_ALIGN_LEFT);
+        this.feedPaper(printerSocket, quietZoneDots);
+        return this;
+    }
+}
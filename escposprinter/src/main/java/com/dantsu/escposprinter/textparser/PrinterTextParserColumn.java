@@ -4,6 +4,8 @@ import java.util.Hashtable;
 
 import com.dantsu.escposprinter.EscPosPrinter;
 import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.EscPosTextStyle;
+import com.dantsu.escposprinter.IEscPosRasterImage;
 import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
 import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
 import com.dantsu.escposprinter.exceptions.EscPosParserException;
@@ -18,6 +20,78 @@ public class PrinterTextParserColumn {
         return str.toString();
     }
 
+    /**
+     * Alignment spaces keep the colors and underlining of the text but are printed with normal size and weight.
+     */
+    private static EscPosTextStyle getSpaceTextStyle(EscPosTextStyle textStyle) {
+        return EscPosTextStyle.get(
+            EscPosPrinterCommands.TEXT_SIZE_NORMAL,
+            textStyle.getTextColor(),
+            textStyle.getTextReverseColor(),
+            EscPosPrinterCommands.TEXT_WEIGHT_NORMAL,
+            textStyle.getTextUnderline(),
+            textStyle.getTextDoubleStrike()
+        );
+    }
+
+
+    /**
+     * Find the tags of an image, barcode or QR code column : an opening tag and its closing tag, or a self-closing
+     * image tag with a ref attribute, only surrounded by blank texts.
+     *
+     * @param lexer      Lexer positioned on the line that contains the column
+     * @param firstToken Index of the first token of the column, after the alignment marker
+     * @param endToken   Index after the last token of the column
+     * @return Indexes of the opening and closing tag tokens, null if the column contains formatted text
+     */
+    static int[] findElementTagTokens(PrinterTextParserLexer lexer, int firstToken, int endToken) {
+        int openTagToken = firstToken, closeTagToken = endToken - 1;
+
+        while (openTagToken < endToken && lexer.getTokenType(openTagToken) == PrinterTextParserLexer.TOKEN_TEXT && lexer.isTokenBlank(openTagToken)) {
+            ++openTagToken;
+        }
+        while (closeTagToken > openTagToken && lexer.getTokenType(closeTagToken) == PrinterTextParserLexer.TOKEN_TEXT && lexer.isTokenBlank(closeTagToken)) {
+            --closeTagToken;
+        }
+
+        if (
+            openTagToken == closeTagToken &&
+                lexer.getTokenType(openTagToken) == PrinterTextParserLexer.TOKEN_TAG &&
+                lexer.isTagSelfClosing(openTagToken) &&
+                lexer.isTagName(openTagToken, PrinterTextParser.TAGS_IMAGE) &&
+                lexer.getTagAttributes(openTagToken).containsKey(PrinterTextParser.ATTR_IMAGE_REF)
+        ) {
+            return new int[]{openTagToken, closeTagToken};
+        }
+
+        if (
+            openTagToken >= closeTagToken ||
+                lexer.getTokenType(openTagToken) != PrinterTextParserLexer.TOKEN_TAG ||
+                lexer.getTokenType(closeTagToken) != PrinterTextParserLexer.TOKEN_TAG ||
+                lexer.isTagClose(openTagToken) ||
+                lexer.isTagSelfClosing(openTagToken) ||
+                !lexer.isTagClose(closeTagToken)
+        ) {
+            return null;
+        }
+
+        String tagName = lexer.getTagName(openTagToken);
+
+        switch (tagName) {
+            case PrinterTextParser.TAGS_IMAGE:
+            case PrinterTextParser.TAGS_BARCODE:
+            case PrinterTextParser.TAGS_QRCODE:
+            case PrinterTextParser.TAGS_PDF417:
+            case PrinterTextParser.TAGS_DATAMATRIX:
+            case PrinterTextParser.TAGS_AZTEC:
+                if (lexer.isTagName(closeTagToken, tagName)) {
+                    return new int[]{openTagToken, closeTagToken};
+                }
+                break;
+        }
+        return null;
+    }
+
 
     private PrinterTextParserLine textParserLine;
     private IPrinterTextParserElement[] elements = new IPrinterTextParserElement[0];
@@ -29,64 +103,69 @@ public class PrinterTextParserColumn {
      * @param textColumn     Text that the column contain
      */
     public PrinterTextParserColumn(PrinterTextParserLine textParserLine, String textColumn) throws EscPosParserException, EscPosBarcodeException, EscPosEncodingException {
+        this(textParserLine, PrinterTextParserLine.lexLine(textColumn));
+    }
+
+    private PrinterTextParserColumn(PrinterTextParserLine textParserLine, PrinterTextParserLexer lexer) throws EscPosParserException, EscPosBarcodeException, EscPosEncodingException {
+        this(textParserLine, lexer, 0, lexer.getTokensCount());
+    }
+
+    /**
+     * Create a new instance of PrinterTextParserColumn.
+     *
+     * @param textParserLine Parent PrinterTextParserLine instance
+     * @param lexer          Lexer positioned on the line that contains the column
+     * @param firstToken     Index of the first token of the column
+     * @param endToken       Index after the last token of the column
+     */
+    public PrinterTextParserColumn(PrinterTextParserLine textParserLine, PrinterTextParserLexer lexer, int firstToken, int endToken) throws EscPosParserException, EscPosBarcodeException, EscPosEncodingException {
         this.textParserLine = textParserLine;
         PrinterTextParser textParser = this.textParserLine.getTextParser();
         String textAlign = PrinterTextParser.TAGS_ALIGN_LEFT;
-        byte[]
-                textUnderlineStartColumn = textParser.getLastTextUnderline(),
-                textDoubleStrikeStartColumn = textParser.getLastTextDoubleStrike(),
-                textColorStartColumn = textParser.getLastTextColor(),
-                textReverseColorStartColumn = textParser.getLastTextReverseColor();
+        EscPosTextStyle textStyleStartColumn = textParser.getLastTextStyle();
 
 
         // =================================================================
         // Check the column alignment
-        if(textColumn.length() > 2) {
-            switch (textColumn.substring(0, 3).toUpperCase()) {
-                case "[" + PrinterTextParser.TAGS_ALIGN_LEFT + "]":
-                case "[" + PrinterTextParser.TAGS_ALIGN_CENTER + "]":
-                case "[" + PrinterTextParser.TAGS_ALIGN_RIGHT + "]":
-                    textAlign = textColumn.substring(1, 2).toUpperCase();
-                    textColumn = textColumn.substring(3);
-                    break;
-            }
+        if (firstToken < endToken && lexer.getTokenType(firstToken) == PrinterTextParserLexer.TOKEN_ALIGN) {
+            textAlign = lexer.getTokenAlign(firstToken);
+            ++firstToken;
         }
 
-        String trimmedTextColumn = textColumn.trim();
         boolean isImgOrBarcodeLine = false;
 
-        if (this.textParserLine.getNbrColumns() == 1 && trimmedTextColumn.indexOf("<") == 0) {
+        if (this.textParserLine.getNbrColumns() == 1) {
             // =================================================================
             // Image or Barcode Lines
-            int openTagIndex = trimmedTextColumn.indexOf("<"),
-                    openTagEndIndex = trimmedTextColumn.indexOf(">", openTagIndex + 1) + 1;
-
-            if (openTagIndex < openTagEndIndex) {
-                PrinterTextParserTag textParserTag = new PrinterTextParserTag(trimmedTextColumn.substring(openTagIndex, openTagEndIndex));
-
-                switch (textParserTag.getTagName()) {
-                    case PrinterTextParser.TAGS_IMAGE:
-                    case PrinterTextParser.TAGS_BARCODE:
-                    case PrinterTextParser.TAGS_QRCODE:
-                        String closeTag = "</" + textParserTag.getTagName() + ">";
-                        int closeTagPosition = trimmedTextColumn.length() - closeTag.length();
-
-                        if (trimmedTextColumn.substring(closeTagPosition).equals(closeTag)) {
-                            switch (textParserTag.getTagName()) {
-                                case PrinterTextParser.TAGS_IMAGE:
-                                    this.appendImage(textAlign, trimmedTextColumn.substring(openTagEndIndex, closeTagPosition));
-                                    break;
-                                case PrinterTextParser.TAGS_BARCODE:
-                                    this.appendBarcode(textAlign, textParserTag.getAttributes(), trimmedTextColumn.substring(openTagEndIndex, closeTagPosition));
-                                    break;
-                                case PrinterTextParser.TAGS_QRCODE:
-                                    this.appendQRCode(textAlign, textParserTag.getAttributes(), trimmedTextColumn.substring(openTagEndIndex, closeTagPosition));
-                                    break;
-                            }
-                            isImgOrBarcodeLine = true;
-                        }
-                        break;
+            int[] elementTagTokens = PrinterTextParserColumn.findElementTagTokens(lexer, firstToken, endToken);
+
+            if (elementTagTokens != null) {
+                int
+                    openTagToken = elementTagTokens[0],
+                    closeTagToken = elementTagTokens[1],
+                    contentStart = lexer.getTokenEnd(openTagToken),
+                    contentEnd = openTagToken == closeTagToken ? contentStart : lexer.getTokenStart(closeTagToken);
+
+                if (lexer.getTagName(openTagToken).equals(PrinterTextParser.TAGS_IMAGE)) {
+                    // The image data is not copied, it is decoded from the text while the image is printed
+                    this.appendImage(textAlign, lexer.getTagAttributes(openTagToken), lexer.getText(), contentStart, contentEnd);
+                } else {
+                    String content = lexer.getText().subSequence(contentStart, contentEnd).toString();
+                    switch (lexer.getTagName(openTagToken)) {
+                        case PrinterTextParser.TAGS_BARCODE:
+                            this.appendBarcode(textAlign, lexer.getTagAttributes(openTagToken), content);
+                            break;
+                        case PrinterTextParser.TAGS_QRCODE:
+                            this.appendQRCode(textAlign, lexer.getTagAttributes(openTagToken), content);
+                            break;
+                        case PrinterTextParser.TAGS_PDF417:
+                        case PrinterTextParser.TAGS_DATAMATRIX:
+                        case PrinterTextParser.TAGS_AZTEC:
+                            this.appendBarcode2D(textAlign, lexer.getTagName(openTagToken), lexer.getTagAttributes(openTagToken), content);
+                            break;
+                    }
                 }
+                isImgOrBarcodeLine = true;
             }
         }
 
@@ -94,133 +173,25 @@ public class PrinterTextParserColumn {
             // =================================================================
             // If the tag is for format text
 
-            int offset = 0;
-            while (true) {
-                int openTagIndex = textColumn.indexOf("<", offset), closeTagIndex = -1;
-
-                if (openTagIndex != -1) {
-                    closeTagIndex = textColumn.indexOf(">", openTagIndex);
-                } else {
-                    openTagIndex = textColumn.length();
+            for (int tokenIndex = firstToken; tokenIndex < endToken; ++tokenIndex) {
+                if (lexer.getTokenType(tokenIndex) != PrinterTextParserLexer.TOKEN_TAG) {
+                    this.appendString(lexer.getTokenString(tokenIndex));
+                    continue;
                 }
 
-                this.appendString(textColumn.substring(offset, openTagIndex));
-
-                if (closeTagIndex == -1) {
-                    break;
-                }
+                PrinterTextParserTag textParserTag = lexer.getTag(tokenIndex);
 
-                closeTagIndex++;
-                PrinterTextParserTag textParserTag = new PrinterTextParserTag(textColumn.substring(openTagIndex, closeTagIndex));
-
-                if (PrinterTextParser.isTagTextFormat(textParserTag.getTagName())) {
-                    if (textParserTag.isCloseTag()) {
-                        switch (textParserTag.getTagName()) {
-                            case PrinterTextParser.TAGS_FORMAT_TEXT_BOLD:
-                                textParser.dropTextBold();
-                                break;
-                            case PrinterTextParser.TAGS_FORMAT_TEXT_UNDERLINE:
-                                textParser.dropLastTextUnderline();
-                                textParser.dropLastTextDoubleStrike();
-                                break;
-                            case PrinterTextParser.TAGS_FORMAT_TEXT_FONT:
-                                textParser.dropLastTextSize();
-                                textParser.dropLastTextColor();
-                                textParser.dropLastTextReverseColor();
-                                break;
-                        }
-                    } else {
-                        switch (textParserTag.getTagName()) {
-                            case PrinterTextParser.TAGS_FORMAT_TEXT_BOLD:
-                                textParser.addTextBold(EscPosPrinterCommands.TEXT_WEIGHT_BOLD);
-                                break;
-                            case PrinterTextParser.TAGS_FORMAT_TEXT_UNDERLINE:
-                                if (textParserTag.hasAttribute(PrinterTextParser.ATTR_FORMAT_TEXT_UNDERLINE_TYPE)) {
-                                    switch (textParserTag.getAttribute(PrinterTextParser.ATTR_FORMAT_TEXT_UNDERLINE_TYPE)) {
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_UNDERLINE_TYPE_NORMAL:
-                                            textParser.addTextUnderline(EscPosPrinterCommands.TEXT_UNDERLINE_LARGE);
-                                            textParser.addTextDoubleStrike(textParser.getLastTextDoubleStrike());
-                                            break;
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_UNDERLINE_TYPE_DOUBLE:
-                                            textParser.addTextUnderline(textParser.getLastTextUnderline());
-                                            textParser.addTextDoubleStrike(EscPosPrinterCommands.TEXT_DOUBLE_STRIKE_ON);
-                                            break;
-                                    }
-                                } else {
-                                    textParser.addTextUnderline(EscPosPrinterCommands.TEXT_UNDERLINE_LARGE);
-                                    textParser.addTextDoubleStrike(textParser.getLastTextDoubleStrike());
-                                }
-                                break;
-                            case PrinterTextParser.TAGS_FORMAT_TEXT_FONT:
-                                if (textParserTag.hasAttribute(PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE)) {
-                                    switch (textParserTag.getAttribute(PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE)) {
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_NORMAL:
-                                        default:
-                                            textParser.addTextSize(EscPosPrinterCommands.TEXT_SIZE_NORMAL);
-                                            break;
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_TALL:
-                                            textParser.addTextSize(EscPosPrinterCommands.TEXT_SIZE_DOUBLE_HEIGHT);
-                                            break;
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_WIDE:
-                                            textParser.addTextSize(EscPosPrinterCommands.TEXT_SIZE_DOUBLE_WIDTH);
-                                            break;
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_BIG:
-                                            textParser.addTextSize(EscPosPrinterCommands.TEXT_SIZE_BIG);
-                                            break;
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_BIG_2:
-                                            textParser.addTextSize(EscPosPrinterCommands.TEXT_SIZE_BIG_2);
-                                            break;
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_BIG_3:
-                                            textParser.addTextSize(EscPosPrinterCommands.TEXT_SIZE_BIG_3);
-                                            break;
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_BIG_4:
-                                            textParser.addTextSize(EscPosPrinterCommands.TEXT_SIZE_BIG_4);
-                                            break;
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_BIG_5:
-                                            textParser.addTextSize(EscPosPrinterCommands.TEXT_SIZE_BIG_5);
-                                            break;
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_SIZE_BIG_6:
-                                            textParser.addTextSize(EscPosPrinterCommands.TEXT_SIZE_BIG_6);
-                                            break;
-                                    }
-                                } else {
-                                    textParser.addTextSize(textParser.getLastTextSize());
-                                }
-
-                                if (textParserTag.hasAttribute(PrinterTextParser.ATTR_FORMAT_TEXT_FONT_COLOR)) {
-                                    switch (textParserTag.getAttribute(PrinterTextParser.ATTR_FORMAT_TEXT_FONT_COLOR)) {
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_COLOR_BLACK:
-                                        default:
-                                            textParser.addTextColor(EscPosPrinterCommands.TEXT_COLOR_BLACK);
-                                            textParser.addTextReverseColor(EscPosPrinterCommands.TEXT_COLOR_REVERSE_OFF);
-                                            break;
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_COLOR_BG_BLACK:
-                                            textParser.addTextColor(EscPosPrinterCommands.TEXT_COLOR_BLACK);
-                                            textParser.addTextReverseColor(EscPosPrinterCommands.TEXT_COLOR_REVERSE_ON);
-                                            break;
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_COLOR_RED:
-                                            textParser.addTextColor(EscPosPrinterCommands.TEXT_COLOR_RED);
-                                            textParser.addTextReverseColor(EscPosPrinterCommands.TEXT_COLOR_REVERSE_OFF);
-                                            break;
-                                        case PrinterTextParser.ATTR_FORMAT_TEXT_FONT_COLOR_BG_RED:
-                                            textParser.addTextColor(EscPosPrinterCommands.TEXT_COLOR_RED);
-                                            textParser.addTextReverseColor(EscPosPrinterCommands.TEXT_COLOR_REVERSE_ON);
-                                            break;
-                                    }
-                                } else {
-                                    textParser.addTextColor(textParser.getLastTextColor());
-                                    textParser.addTextReverseColor(textParser.getLastTextReverseColor());
-                                }
-                                break;
-                        }
-                    }
-                    offset = closeTagIndex;
+                if (PrinterTextParser.isTagTextFormat(textParserTag.getTagName()) && !lexer.isTagSelfClosing(tokenIndex)) {
+                    textParser.applyTextFormatTag(textParserTag);
                 } else {
-                    this.appendString("<");
-                    offset = openTagIndex + 1;
+                    this.appendString(lexer.getTokenString(tokenIndex));
                 }
             }
 
+            if (this.elements.length == 0) {
+                this.appendString("");
+            }
+
             // =================================================================
             // Define the number of spaces required for the different alignments
 
@@ -272,10 +243,10 @@ public class PrinterTextParserColumn {
             }
 
             if (leftSpace > 0) {
-                this.prependString(PrinterTextParserColumn.generateSpace(leftSpace), EscPosPrinterCommands.TEXT_SIZE_NORMAL, textColorStartColumn, textReverseColorStartColumn, EscPosPrinterCommands.TEXT_WEIGHT_NORMAL, textUnderlineStartColumn, textDoubleStrikeStartColumn);
+                this.prependString(PrinterTextParserColumn.generateSpace(leftSpace), PrinterTextParserColumn.getSpaceTextStyle(textStyleStartColumn));
             }
             if (rightSpace > 0) {
-                this.appendString(PrinterTextParserColumn.generateSpace(rightSpace), EscPosPrinterCommands.TEXT_SIZE_NORMAL, textParser.getLastTextColor(), textParser.getLastTextReverseColor(), EscPosPrinterCommands.TEXT_WEIGHT_NORMAL, textParser.getLastTextUnderline(), textParser.getLastTextDoubleStrike());
+                this.appendString(PrinterTextParserColumn.generateSpace(rightSpace), PrinterTextParserColumn.getSpaceTextStyle(textParser.getLastTextStyle()));
             }
 
             // =================================================================================================
@@ -288,22 +259,19 @@ public class PrinterTextParserColumn {
     }
 
     private PrinterTextParserColumn prependString(String text) {
-        PrinterTextParser textParser = this.textParserLine.getTextParser();
-        return this.prependString(text, textParser.getLastTextSize(), textParser.getLastTextColor(), textParser.getLastTextReverseColor(), textParser.getLastTextBold(), textParser.getLastTextUnderline(), textParser.getLastTextDoubleStrike());
+        return this.prependString(text, this.textParserLine.getTextParser().getLastTextStyle());
     }
 
-    private PrinterTextParserColumn prependString(String text, byte[] textSize, byte[] textColor, byte[] textReverseColor, byte[] textBold, byte[] textUnderline, byte[] textDoubleStrike) {
-        return this.prependElement(new PrinterTextParserString(this, text, textSize, textColor, textReverseColor, textBold, textUnderline, textDoubleStrike));
+    private PrinterTextParserColumn prependString(String text, EscPosTextStyle textStyle) {
+        return this.prependElement(new PrinterTextParserString(this, text, textStyle));
     }
 
     private PrinterTextParserColumn appendString(String text) {
-        PrinterTextParser textParser = this.textParserLine.getTextParser();
-        return this.appendString(text, textParser.getLastTextSize(), textParser.getLastTextColor(), textParser.getLastTextReverseColor(), textParser.getLastTextBold(), textParser.getLastTextUnderline(), textParser.getLastTextDoubleStrike());
+        return this.appendString(text, this.textParserLine.getTextParser().getLastTextStyle());
     }
 
-    private PrinterTextParserColumn appendString(String text, byte[] textSize, byte[] textColor, byte[] textReverseColor, byte[] textBold, byte[] textUnderline, byte[] textDoubleStrike) {
-        EscPosPrinter printer = this.textParserLine.getTextParser().getPrinter();
-        return this.appendElement(new PrinterTextParserString(this, text, textSize, textColor, textReverseColor, textBold, textUnderline, textDoubleStrike));
+    private PrinterTextParserColumn appendString(String text, EscPosTextStyle textStyle) {
+        return this.appendElement(new PrinterTextParserString(this, text, textStyle));
     }
 
     private PrinterTextParserColumn prependImage(String textAlign, String hexString) {
@@ -314,6 +282,22 @@ public class PrinterTextParserColumn {
         return this.appendElement(new PrinterTextParserImg(this, textAlign, hexString));
     }
 
+    private PrinterTextParserColumn appendImage(String textAlign, Hashtable<String, String> imageAttributes, CharSequence text, int hexStart, int hexEnd) throws EscPosParserException {
+        if (!imageAttributes.containsKey(PrinterTextParser.ATTR_IMAGE_REF)) {
+            if (hexStart == hexEnd) {
+                throw new EscPosParserException("Invalid image tag : missing image data or ref attribute.");
+            }
+            return this.appendElement(new PrinterTextParserImg(this, textAlign, text, hexStart, hexEnd));
+        }
+
+        String imageName = imageAttributes.get(PrinterTextParser.ATTR_IMAGE_REF);
+        IEscPosRasterImage image = this.textParserLine.getTextParser().getPrinter().getImageRegistry().getImage(imageName);
+        if (image == null) {
+            throw new EscPosParserException("Invalid image tag : no image registered with the name \"" + imageName + "\".");
+        }
+        return this.appendElement(new PrinterTextParserImg(this, textAlign, image));
+    }
+
     private PrinterTextParserColumn prependBarcode(String textAlign, Hashtable<String, String> barcodeAttributes, String code) throws EscPosParserException, EscPosBarcodeException {
         return this.prependElement(new PrinterTextParserBarcode(this, textAlign, barcodeAttributes, code));
     }
@@ -330,6 +314,10 @@ public class PrinterTextParserColumn {
         return this.appendElement(new PrinterTextParserQRCode(this, textAlign, qrCodeAttributes, data));
     }
 
+    private PrinterTextParserColumn appendBarcode2D(String textAlign, String tagName, Hashtable<String, String> barcodeAttributes, String data) throws EscPosParserException, EscPosBarcodeException {
+        return this.appendElement(new PrinterTextParserBarcode2D(this, textAlign, tagName, barcodeAttributes, data));
+    }
+
     private PrinterTextParserColumn prependElement(IPrinterTextParserElement element) {
         IPrinterTextParserElement[] elementsTmp = new IPrinterTextParserElement[this.elements.length + 1];
         elementsTmp[0] = element;
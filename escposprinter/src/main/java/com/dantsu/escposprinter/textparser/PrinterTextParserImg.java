@@ -6,7 +6,12 @@ import android.graphics.drawable.Drawable;
 
 import com.dantsu.escposprinter.EscPosPrinter;
 import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.EscPosPrinterProfile;
 import com.dantsu.escposprinter.EscPosPrinterSize;
+import com.dantsu.escposprinter.EscPosRasterImage;
+import com.dantsu.escposprinter.IEscPosMultiToneImage;
+import com.dantsu.escposprinter.IEscPosRasterImage;
+import com.dantsu.escposprinter.dither.DitherAlgorithm;
 import com.dantsu.escposprinter.exceptions.EscPosConnectionException;
 import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
 
@@ -87,6 +92,64 @@ public class PrinterTextParserImg implements IPrinterTextParserElement {
         return PrinterTextParserImg.bytesToHexadecimalString(printerSize.bitmapToBytes(bitmap, gradient));
     }
     
+    /**
+     * Convert Bitmap instance to a hexadecimal string of the image data.
+     *
+     * @param printerSize A EscPosPrinterSize instance that will print the image.
+     * @param bitmap Bitmap instance to be converted.
+     * @param ditherAlgorithm Algorithm used to convert the colors to black and white dots (Ex: new DitherFloydSteinberg())
+     * @return A hexadecimal string of the image data.
+     */
+    public static String bitmapToHexadecimalString(EscPosPrinterSize printerSize, Bitmap bitmap, DitherAlgorithm ditherAlgorithm) {
+        return PrinterTextParserImg.bytesToHexadecimalString(printerSize.bitmapToBytes(bitmap, ditherAlgorithm));
+    }
+
+    /**
+     * Maximum image size in bytes for which the "ESC *" commands are kept, larger images are converted band by band.
+     */
+    private static final int ESC_ASTERISK_CACHE_MAX_SIZE = 262144;
+
+    private static final char[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        for (int i = 0; i < PrinterTextParserImg.HEX_VALUES.length; ++i) {
+            PrinterTextParserImg.HEX_VALUES[i] = -1;
+        }
+        for (int i = 0; i < 16; ++i) {
+            PrinterTextParserImg.HEX_VALUES[PrinterTextParserImg.HEX_DIGITS[i]] = (byte) i;
+            PrinterTextParserImg.HEX_VALUES[Character.toUpperCase(PrinterTextParserImg.HEX_DIGITS[i])] = (byte) i;
+        }
+    }
+
+    private static int hexadecimalCharToInt(CharSequence hexString, int index) throws NumberFormatException {
+        char c = hexString.charAt(index);
+        int value = c < 128 ? PrinterTextParserImg.HEX_VALUES[c] : -1;
+        if (value == -1) {
+            throw new NumberFormatException("Invalid hexadecimal character '" + c + "' at index " + index + ".");
+        }
+        return value;
+    }
+
+    /**
+     * Decode a part of a hexadecimal string.
+     *
+     * @param hexString   Hexadecimal string
+     * @param hexIndex    Index of the first character to be decoded
+     * @param bytes       Array that receive the decoded bytes
+     * @param bytesOffset Index in bytes of the first decoded byte
+     * @param length      Number of bytes to be decoded
+     */
+    private static void decodeHexadecimalString(CharSequence hexString, int hexIndex, byte[] bytes, int bytesOffset, int length) throws NumberFormatException {
+        for (int i = 0; i < length; ++i) {
+            bytes[bytesOffset + i] = (byte) (
+                PrinterTextParserImg.hexadecimalCharToInt(hexString, hexIndex) << 4 |
+                    PrinterTextParserImg.hexadecimalCharToInt(hexString, hexIndex + 1)
+            );
+            hexIndex += 2;
+        }
+    }
+
     /**
      * Convert byte array to a hexadecimal string of the image data.
      *
@@ -94,15 +157,12 @@ public class PrinterTextParserImg implements IPrinterTextParserElement {
      * @return A hexadecimal string of the image data.
      */
     public static String bytesToHexadecimalString(byte[] bytes) {
-        StringBuilder imageHexString = new StringBuilder();
-        for (byte aByte : bytes) {
-            String hexString = Integer.toHexString(aByte & 0xFF);
-            if (hexString.length() == 1) {
-                imageHexString.append("0");
-            }
-            imageHexString.append(hexString);
+        char[] imageHexString = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; ++i) {
+            imageHexString[i * 2] = PrinterTextParserImg.HEX_DIGITS[(bytes[i] >> 4) & 0x0F];
+            imageHexString[i * 2 + 1] = PrinterTextParserImg.HEX_DIGITS[bytes[i] & 0x0F];
         }
-        return imageHexString.toString();
+        return new String(imageHexString);
     }
     
     /**
@@ -113,26 +173,65 @@ public class PrinterTextParserImg implements IPrinterTextParserElement {
      */
     public static byte[] hexadecimalStringToBytes(String hexString) throws NumberFormatException {
         byte[] bytes = new byte[hexString.length() / 2];
-        for (int i = 0; i < bytes.length; i++) {
-            int pos = i * 2;
-            bytes[i] = (byte) Integer.parseInt(hexString.substring(pos, pos + 2), 16);
-        }
+        PrinterTextParserImg.decodeHexadecimalString(hexString, 0, bytes, 0, bytes.length);
         return bytes;
     }
     
     
     private int length;
-    private byte[] image;
+    private IEscPosRasterImage image;
+    private CharSequence hexadecimalText;
+    private int hexadecimalStart;
+    private int bytesByLine;
+    private int height;
+    private int nbrWhiteByteToInsert;
+    private byte[] align = EscPosPrinterCommands.TEXT_ALIGN_LEFT;
+    private byte[] escAsteriskBytes = null;
     
     /**
-     * Create new instance of PrinterTextParserImg.
+     * Create new instance of PrinterTextParserImg. The hexadecimal string is only checked here, it is decoded row by
+     * row while the image is printed.
      *
      * @param printerTextParserColumn Parent PrinterTextParserColumn instance.
      * @param textAlign Set the image alignment. Use PrinterTextParser.TAGS_ALIGN_... constants.
      * @param hexadecimalString Hexadecimal string of the image data.
      */
-    public PrinterTextParserImg(PrinterTextParserColumn printerTextParserColumn, String textAlign, String hexadecimalString) {
-        this(printerTextParserColumn, textAlign, PrinterTextParserImg.hexadecimalStringToBytes(hexadecimalString));
+    public PrinterTextParserImg(PrinterTextParserColumn printerTextParserColumn, String textAlign, String hexadecimalString) throws NumberFormatException {
+        this(printerTextParserColumn, textAlign, hexadecimalString, 0, hexadecimalString.length());
+    }
+
+    /**
+     * Create new instance of PrinterTextParserImg from a part of a text. The text is not copied : the hexadecimal
+     * characters are only checked here, they are decoded row by row from the text while the image is printed.
+     *
+     * @param printerTextParserColumn Parent PrinterTextParserColumn instance.
+     * @param textAlign Set the image alignment. Use PrinterTextParser.TAGS_ALIGN_... constants.
+     * @param text Text that contains the hexadecimal string of the image data, it must not be modified after.
+     * @param hexStart Index of the first character of the hexadecimal string
+     * @param hexEnd Index after the last character of the hexadecimal string
+     */
+    public PrinterTextParserImg(PrinterTextParserColumn printerTextParserColumn, String textAlign, CharSequence text, int hexStart, int hexEnd) throws NumberFormatException {
+        byte[] header = new byte[8];
+        if (hexEnd - hexStart < 16) {
+            throw new NumberFormatException("Invalid image data : missing GS v 0 header.");
+        }
+        PrinterTextParserImg.decodeHexadecimalString(text, hexStart, header, 0, 8);
+
+        int
+            imageBytesByLine = (header[4] & 0xFF) + (header[5] & 0xFF) * 256,
+            height = (header[6] & 0xFF) + (header[7] & 0xFF) * 256;
+        long hexLength = 16L + (long) imageBytesByLine * height * 2;
+
+        if (hexEnd - hexStart < hexLength) {
+            throw new NumberFormatException("Invalid image data : " + hexLength + " hexadecimal characters expected.");
+        }
+        for (int i = hexStart + 16; i < hexStart + hexLength; ++i) {
+            PrinterTextParserImg.hexadecimalCharToInt(text, i);
+        }
+
+        this.init(printerTextParserColumn, textAlign, imageBytesByLine, height);
+        this.hexadecimalText = text;
+        this.hexadecimalStart = hexStart;
     }
 
     /**
@@ -143,35 +242,48 @@ public class PrinterTextParserImg implements IPrinterTextParserElement {
      * @param image Bytes contain the image in ESC/POS command.
      */
     public PrinterTextParserImg(PrinterTextParserColumn printerTextParserColumn, String textAlign, byte[] image) {
+        this(printerTextParserColumn, textAlign, new EscPosRasterImage(image));
+    }
+
+    /**
+     * Create new instance of PrinterTextParserImg. Rows are read from the image while it is printed.
+     *
+     * @param printerTextParserColumn Parent PrinterTextParserColumn instance.
+     * @param textAlign Set the image alignment. Use PrinterTextParser.TAGS_ALIGN_... constants.
+     * @param image Image to be printed.
+     */
+    public PrinterTextParserImg(PrinterTextParserColumn printerTextParserColumn, String textAlign, IEscPosRasterImage image) {
+        this.init(printerTextParserColumn, textAlign, image.getBytesByLine(), image.getHeight());
+        this.image = image;
+    }
+
+    private void init(PrinterTextParserColumn printerTextParserColumn, String textAlign, int byteWidth, int height) {
         EscPosPrinter printer = printerTextParserColumn.getLine().getTextParser().getPrinter();
 
         int
-                byteWidth = ((int) image[4] & 0xFF) + ((int) image[5] & 0xFF) * 256,
                 width = byteWidth * 8,
-                height = ((int) image[6] & 0xFF) + ((int) image[7] & 0xFF) * 256,
                 nbrByteDiff = (int) Math.floor(((float) (printer.getPrinterWidthPx() - width)) / 8f),
                 nbrWhiteByteToInsert = 0;
 
         switch (textAlign) {
             case PrinterTextParser.TAGS_ALIGN_CENTER:
                 nbrWhiteByteToInsert = Math.round(((float) nbrByteDiff) / 2f);
+                this.align = EscPosPrinterCommands.TEXT_ALIGN_CENTER;
                 break;
             case PrinterTextParser.TAGS_ALIGN_RIGHT:
                 nbrWhiteByteToInsert = nbrByteDiff;
+                this.align = EscPosPrinterCommands.TEXT_ALIGN_RIGHT;
                 break;
         }
 
-        if (nbrWhiteByteToInsert > 0) {
-            int newByteWidth = byteWidth + nbrWhiteByteToInsert;
-            byte[] newImage = EscPosPrinterCommands.initGSv0Command(newByteWidth, height);
-            for (int i = 0; i < height; i++) {
-                System.arraycopy(image, (byteWidth * i + 8), newImage, (newByteWidth * i + nbrWhiteByteToInsert + 8), byteWidth);
-            }
-            image = newImage;
-        }
-
         this.length = (int) Math.ceil(((float) byteWidth * 8) / ((float) printer.getPrinterCharSizeWidthPx()));
-        this.image = image;
+        this.nbrWhiteByteToInsert = Math.max(0, nbrWhiteByteToInsert);
+        this.bytesByLine = byteWidth + this.nbrWhiteByteToInsert;
+        this.height = height;
+    }
+
+    private int getImageBytesByLine() {
+        return this.bytesByLine - this.nbrWhiteByteToInsert;
     }
 
     /**
@@ -185,14 +297,159 @@ public class PrinterTextParserImg implements IPrinterTextParserElement {
     }
 
     /**
-     * Print image
+     * Get the alignment of the image.
+     *
+     * @return EscPosPrinterCommands.TEXT_ALIGN_... constant
+     */
+    protected byte[] getAlign() {
+        return this.align;
+    }
+
+    /**
+     * Get the number of bit planes of the image, 1 if the image is black and white.
+     */
+    private int getNbrPlanes() {
+        return this.image instanceof IEscPosMultiToneImage ? ((IEscPosMultiToneImage) this.image).getNbrPlanes() : 1;
+    }
+
+    /**
+     * Decode rows of a bit plane of the image, with white bytes added on the left.
+     *
+     * @param plane Index of the plane, -1 for the black and white rows
+     */
+    private void readPlaneRows(int plane, int firstRow, int nbrRows, byte[] buffer, int offset, int nbrWhiteBytes) {
+        if (plane != -1 && !(this.image instanceof IEscPosMultiToneImage)) {
+            plane = -1;
+        }
+
+        if (this.image != null && nbrWhiteBytes == 0) {
+            this.readSourceRows(plane, firstRow, nbrRows, buffer, offset);
+            return;
+        }
+
+        int imageBytesByLine = this.getImageBytesByLine();
+
+        for (int row = firstRow; row < firstRow + nbrRows; ++row) {
+            for (int i = 0; i < nbrWhiteBytes; ++i) {
+                buffer[offset++] = 0;
+            }
+            if (this.image != null) {
+                this.readSourceRows(plane, row, 1, buffer, offset);
+            } else {
+                PrinterTextParserImg.decodeHexadecimalString(this.hexadecimalText, this.hexadecimalStart + 16 + row * imageBytesByLine * 2, buffer, offset, imageBytesByLine);
+            }
+            offset += imageBytesByLine;
+        }
+    }
+
+    private void readSourceRows(int plane, int firstRow, int nbrRows, byte[] buffer, int offset) {
+        if (plane == -1) {
+            this.image.readRows(firstRow, nbrRows, buffer, offset);
+        } else {
+            ((IEscPosMultiToneImage) this.image).readPlaneRows(plane, firstRow, nbrRows, buffer, offset);
+        }
+    }
+
+    /**
+     * The image rows with the white bytes inserted on the left to align it.
+     */
+    private class PaddedImage implements IEscPosMultiToneImage {
+        @Override
+        public int getBytesByLine() {
+            return PrinterTextParserImg.this.bytesByLine;
+        }
+
+        @Override
+        public int getHeight() {
+            return PrinterTextParserImg.this.height;
+        }
+
+        @Override
+        public int getNbrPlanes() {
+            return PrinterTextParserImg.this.getNbrPlanes();
+        }
+
+        @Override
+        public void readRows(int firstRow, int nbrRows, byte[] buffer, int offset) {
+            PrinterTextParserImg.this.readPlaneRows(-1, firstRow, nbrRows, buffer, offset, PrinterTextParserImg.this.nbrWhiteByteToInsert);
+        }
+
+        @Override
+        public void readPlaneRows(int plane, int firstRow, int nbrRows, byte[] buffer, int offset) {
+            PrinterTextParserImg.this.readPlaneRows(plane, firstRow, nbrRows, buffer, offset, PrinterTextParserImg.this.nbrWhiteByteToInsert);
+        }
+    }
+
+    /**
+     * The image rows without the white bytes inserted to align it.
+     */
+    private class UnalignedImage implements IEscPosMultiToneImage {
+        @Override
+        public int getBytesByLine() {
+            return PrinterTextParserImg.this.getImageBytesByLine();
+        }
+
+        @Override
+        public int getHeight() {
+            return PrinterTextParserImg.this.height;
+        }
+
+        @Override
+        public int getNbrPlanes() {
+            return PrinterTextParserImg.this.getNbrPlanes();
+        }
+
+        @Override
+        public void readRows(int firstRow, int nbrRows, byte[] buffer, int offset) {
+            PrinterTextParserImg.this.readPlaneRows(-1, firstRow, nbrRows, buffer, offset, 0);
+        }
+
+        @Override
+        public void readPlaneRows(int plane, int firstRow, int nbrRows, byte[] buffer, int offset) {
+            PrinterTextParserImg.this.readPlaneRows(plane, firstRow, nbrRows, buffer, offset, 0);
+        }
+    }
+
+    /**
+     * Print image. Centered and right aligned images are moved with the "GS L" left margin or justified with "ESC a"
+     * if the printer profile supports it, so their white bytes are not sent.
      *
      * @param printerSocket Instance of EscPosPrinterCommands
      * @return this Fluent method
      */
     @Override
-    public PrinterTextParserImg print(EscPosPrinterCommands printerSocket) throws EscPosConnectionException {
-        printerSocket.printImage(this.image);
+    public PrinterTextParserImg print(EscPosPrinterCommands printerSocket) throws EscPosEncodingException, EscPosConnectionException {
+        EscPosPrinterProfile profile = printerSocket.getProfile();
+
+        if (printerSocket.isUsingEscAsteriskCommand() && (long) this.bytesByLine * this.height <= PrinterTextParserImg.ESC_ASTERISK_CACHE_MAX_SIZE) {
+            // The "ESC *" commands are kept, printing this element again does not convert the image again
+            if (this.escAsteriskBytes == null) {
+                this.escAsteriskBytes = EscPosPrinterCommands.rasterImageToEscAsterisk(new PaddedImage());
+            }
+            printerSocket.printEscAsteriskImage(this.escAsteriskBytes);
+        } else if (this.nbrWhiteByteToInsert > 0 && profile.isLeftMarginSupported()) {
+            printerSocket.printImage(new UnalignedImage(), this.nbrWhiteByteToInsert * 8);
+        } else if (this.nbrWhiteByteToInsert > 0 && profile.isRasterJustificationSupported() && !printerSocket.isUsingEscAsteriskCommand()) {
+            printerSocket
+                .setAlign(this.align)
+                .printImage(new UnalignedImage())
+                .setAlign(EscPosPrinterCommands.TEXT_ALIGN_LEFT);
+        } else {
+            printerSocket.printImage(new PaddedImage());
+        }
         return this;
     }
+
+    /**
+     * Feed the paper, used to print the quiet zone of the 2D codes printed by the printer.
+     *
+     * @param printerSocket Instance of EscPosPrinterCommands
+     * @param dots          Number of dots to feed
+     */
+    protected void feedPaper(EscPosPrinterCommands printerSocket, int dots) throws EscPosConnectionException {
+        while (dots > 0) {
+            printerSocket.feedPaper(Math.min(255, dots));
+            dots -= 255;
+        }
+    }
 }
@@ -0,0 +1,430 @@
+package com.dantsu.escposprinter.textparser;
+
+import java.util.Hashtable;
+
+/**
+ * Single pass lexer of the formatted text syntax.
+ * <p>
+ * The input is read line by line. Each line is cut into tokens (text, alignment markers and tags) that are only
+ * stored as index ranges of the input, so no intermediate string is created while scanning.
+ */
+public class PrinterTextParserLexer {
+
+    public static final int TOKEN_TEXT = 1;
+    public static final int TOKEN_ALIGN = 2;
+    public static final int TOKEN_TAG = 3;
+
+    private CharSequence text;
+    private int textLength;
+    private int position = 0;
+
+    private int lineStart = 0;
+    private int lineEnd = 0;
+
+    /**
+     * Index of the first '>' or '\n' found after lastOpenTagIndex. Every '<' placed before this index share the same
+     * result, this keeps the scan linear with inputs like "<<<<<<".
+     */
+    private int lastOpenTagIndex = -1;
+    private int closeTagIndex = -1;
+
+    private int tokensCount = 0;
+    private int[] tokensType = new int[16];
+    private int[] tokensStart = new int[16];
+    private int[] tokensEnd = new int[16];
+    private int[] tagsNameStart = new int[16];
+    private int[] tagsNameEnd = new int[16];
+    private boolean[] tagsIsClose = new boolean[16];
+    private boolean[] tagsIsSelfClosing = new boolean[16];
+    private int[] tagsAttributesStart = new int[16];
+    private int[] tagsAttributesCount = new int[16];
+
+    private int attributesCount = 0;
+    private int[] attributesBounds = new int[16];
+
+    /**
+     * Create new instance of PrinterTextParserLexer.
+     *
+     * @param text Formatted text to be read
+     */
+    public PrinterTextParserLexer(CharSequence text) {
+        this(text, 0, text.length());
+    }
+
+    /**
+     * Create new instance of PrinterTextParserLexer that only read a part of the formatted text.
+     * Tokens indexes stay relative to the whole text.
+     *
+     * @param text  Formatted text to be read
+     * @param start Index of the first character to be read, must be the start of a line
+     * @param end   Index after the last character to be read
+     */
+    public PrinterTextParserLexer(CharSequence text, int start, int end) {
+        this.text = text;
+        this.textLength = end;
+        this.position = start;
+    }
+
+    public CharSequence getText() {
+        return this.text;
+    }
+
+    /**
+     * Read the next line of the formatted text.
+     *
+     * @return false if the end of the text has been reached
+     */
+    public boolean nextLine() {
+        if (this.position > this.textLength) {
+            return false;
+        }
+
+        this.tokensCount = 0;
+        this.attributesCount = 0;
+        this.lineStart = this.position;
+
+        int textStart = this.position, i = this.position;
+
+        while (i < this.textLength) {
+            char c = this.text.charAt(i);
+
+            if (c == '\n') {
+                int end = i;
+                if (end > this.lineStart && this.text.charAt(end - 1) == '\r') {
+                    --end;
+                }
+                this.addTextToken(textStart, end);
+                this.lineEnd = end;
+                this.position = i + 1;
+                return true;
+            }
+
+            if (c == '[') {
+                if (this.isAlignMarker(i)) {
+                    this.addTextToken(textStart, i);
+                    this.addToken(PrinterTextParserLexer.TOKEN_ALIGN, i, i + 3);
+                    i += 3;
+                    textStart = i;
+                    continue;
+                }
+            } else if (c == '<') {
+                int tagEnd = this.readTag(textStart, i);
+                if (tagEnd != -1) {
+                    i = tagEnd;
+                    textStart = i;
+                    continue;
+                }
+            }
+            ++i;
+        }
+
+        this.addTextToken(textStart, this.textLength);
+        this.lineEnd = this.textLength;
+        this.position = this.textLength + 1;
+        return true;
+    }
+
+    private boolean isAlignMarker(int index) {
+        if (index + 2 >= this.textLength || this.text.charAt(index + 2) != ']') {
+            return false;
+        }
+        char align = this.text.charAt(index + 1);
+        if (index == this.lineStart) {
+            align = Character.toUpperCase(align);
+        }
+        return align == 'L' || align == 'C' || align == 'R';
+    }
+
+    private int findCloseTagIndex(int openTagIndex) {
+        if (openTagIndex > this.lastOpenTagIndex && openTagIndex < this.closeTagIndex) {
+            return this.closeTagIndex;
+        }
+        int i = openTagIndex + 1;
+        while (i < this.textLength) {
+            char c = this.text.charAt(i);
+            if (c == '>' || c == '\n') {
+                break;
+            }
+            ++i;
+        }
+        this.lastOpenTagIndex = openTagIndex;
+        this.closeTagIndex = i;
+        return i;
+    }
+
+    /**
+     * Read a tag starting at openTagIndex, the text between textStart and openTagIndex is added before the tag.
+     *
+     * @return Index after the tag, -1 if it is not a valid tag
+     */
+    private int readTag(int textStart, int openTagIndex) {
+        int closeTagIndex = this.findCloseTagIndex(openTagIndex);
+        if (closeTagIndex >= this.textLength || this.text.charAt(closeTagIndex) != '>') {
+            return -1;
+        }
+
+        int i = openTagIndex + 1, tagContentEnd = closeTagIndex;
+        boolean isCloseTag = false, isSelfClosingTag = false;
+        if (i < closeTagIndex && this.text.charAt(i) == '/') {
+            isCloseTag = true;
+            ++i;
+        }
+        if (!isCloseTag && tagContentEnd > i && this.text.charAt(tagContentEnd - 1) == '/') {
+            isSelfClosingTag = true;
+            --tagContentEnd;
+        }
+
+        int nameStart = i;
+        while (i < tagContentEnd && !Character.isWhitespace(this.text.charAt(i))) {
+            ++i;
+        }
+        int nameEnd = i;
+
+        if (nameStart == nameEnd) {
+            return -1;
+        }
+
+        this.addTextToken(textStart, openTagIndex);
+        int tokenIndex = this.addToken(PrinterTextParserLexer.TOKEN_TAG, openTagIndex, closeTagIndex + 1);
+        this.tagsNameStart[tokenIndex] = nameStart;
+        this.tagsNameEnd[tokenIndex] = nameEnd;
+        this.tagsIsClose[tokenIndex] = isCloseTag;
+        this.tagsIsSelfClosing[tokenIndex] = isSelfClosingTag;
+        this.tagsAttributesStart[tokenIndex] = this.attributesCount;
+
+        while (i < tagContentEnd) {
+            while (i < tagContentEnd && Character.isWhitespace(this.text.charAt(i))) {
+                ++i;
+            }
+            int attributeNameStart = i;
+            while (i < tagContentEnd && this.text.charAt(i) != '=' && !Character.isWhitespace(this.text.charAt(i))) {
+                ++i;
+            }
+            int attributeNameEnd = i;
+
+            if (i + 1 >= tagContentEnd || this.text.charAt(i) != '=') {
+                ++i;
+                continue;
+            }
+
+            char quote = this.text.charAt(i + 1);
+            if (quote != '\'' && quote != '"') {
+                i += 2;
+                continue;
+            }
+
+            int valueStart = i + 2;
+            i = valueStart;
+            while (i < tagContentEnd && this.text.charAt(i) != quote) {
+                ++i;
+            }
+            if (i >= tagContentEnd) {
+                break;
+            }
+            if (attributeNameStart < attributeNameEnd) {
+                this.addAttribute(attributeNameStart, attributeNameEnd, valueStart, i);
+            }
+            ++i;
+        }
+
+        this.tagsAttributesCount[tokenIndex] = this.attributesCount - this.tagsAttributesStart[tokenIndex];
+        return closeTagIndex + 1;
+    }
+
+    private void addTextToken(int start, int end) {
+        if (start < end) {
+            this.addToken(PrinterTextParserLexer.TOKEN_TEXT, start, end);
+        }
+    }
+
+    private int addToken(int type, int start, int end) {
+        if (this.tokensCount == this.tokensType.length) {
+            int newLength = this.tokensCount * 2;
+            this.tokensType = PrinterTextParserLexer.grow(this.tokensType, newLength);
+            this.tokensStart = PrinterTextParserLexer.grow(this.tokensStart, newLength);
+            this.tokensEnd = PrinterTextParserLexer.grow(this.tokensEnd, newLength);
+            this.tagsNameStart = PrinterTextParserLexer.grow(this.tagsNameStart, newLength);
+            this.tagsNameEnd = PrinterTextParserLexer.grow(this.tagsNameEnd, newLength);
+            this.tagsAttributesStart = PrinterTextParserLexer.grow(this.tagsAttributesStart, newLength);
+            this.tagsAttributesCount = PrinterTextParserLexer.grow(this.tagsAttributesCount, newLength);
+            this.tagsIsClose = PrinterTextParserLexer.grow(this.tagsIsClose, newLength);
+            this.tagsIsSelfClosing = PrinterTextParserLexer.grow(this.tagsIsSelfClosing, newLength);
+        }
+        int tokenIndex = this.tokensCount++;
+        this.tokensType[tokenIndex] = type;
+        this.tokensStart[tokenIndex] = start;
+        this.tokensEnd[tokenIndex] = end;
+        return tokenIndex;
+    }
+
+    private void addAttribute(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+        int index = this.attributesCount * 4;
+        if (index == this.attributesBounds.length) {
+            this.attributesBounds = PrinterTextParserLexer.grow(this.attributesBounds, index * 2);
+        }
+        this.attributesBounds[index] = nameStart;
+        this.attributesBounds[index + 1] = nameEnd;
+        this.attributesBounds[index + 2] = valueStart;
+        this.attributesBounds[index + 3] = valueEnd;
+        ++this.attributesCount;
+    }
+
+    private static int[] grow(int[] array, int newLength) {
+        int[] newArray = new int[newLength];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private static boolean[] grow(boolean[] array, int newLength) {
+        boolean[] newArray = new boolean[newLength];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+
+    public int getLineStart() {
+        return this.lineStart;
+    }
+
+    public int getLineEnd() {
+        return this.lineEnd;
+    }
+
+    public int getTokensCount() {
+        return this.tokensCount;
+    }
+
+    public int getTokenType(int tokenIndex) {
+        return this.tokensType[tokenIndex];
+    }
+
+    public int getTokenStart(int tokenIndex) {
+        return this.tokensStart[tokenIndex];
+    }
+
+    public int getTokenEnd(int tokenIndex) {
+        return this.tokensEnd[tokenIndex];
+    }
+
+    /**
+     * Get the raw text of a token.
+     *
+     * @param tokenIndex Index of the token in the current line
+     * @return String
+     */
+    public String getTokenString(int tokenIndex) {
+        return this.text.subSequence(this.tokensStart[tokenIndex], this.tokensEnd[tokenIndex]).toString();
+    }
+
+    /**
+     * Check if a token contains only whitespace characters.
+     *
+     * @param tokenIndex Index of the token in the current line
+     * @return boolean
+     */
+    public boolean isTokenBlank(int tokenIndex) {
+        for (int i = this.tokensStart[tokenIndex], end = this.tokensEnd[tokenIndex]; i < end; ++i) {
+            if (!Character.isWhitespace(this.text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the alignment of an alignment token. Use PrinterTextParser.TAGS_ALIGN_... constants.
+     *
+     * @param tokenIndex Index of the token in the current line
+     * @return String
+     */
+    public String getTokenAlign(int tokenIndex) {
+        switch (Character.toUpperCase(this.text.charAt(this.tokensStart[tokenIndex] + 1))) {
+            case 'C':
+                return PrinterTextParser.TAGS_ALIGN_CENTER;
+            case 'R':
+                return PrinterTextParser.TAGS_ALIGN_RIGHT;
+            default:
+                return PrinterTextParser.TAGS_ALIGN_LEFT;
+        }
+    }
+
+    public boolean isTagClose(int tokenIndex) {
+        return this.tagsIsClose[tokenIndex];
+    }
+
+    /**
+     * Check if a tag token ends with "/>", like &lt;img ref='logo'/&gt;.
+     *
+     * @param tokenIndex Index of the token in the current line
+     * @return boolean
+     */
+    public boolean isTagSelfClosing(int tokenIndex) {
+        return this.tagsIsSelfClosing[tokenIndex];
+    }
+
+    /**
+     * Compare the name of a tag token without creating a string.
+     *
+     * @param tokenIndex Index of the token in the current line
+     * @param tagName    Lower case tag name
+     * @return boolean
+     */
+    public boolean isTagName(int tokenIndex, String tagName) {
+        int start = this.tagsNameStart[tokenIndex], length = this.tagsNameEnd[tokenIndex] - start;
+        if (length != tagName.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (Character.toLowerCase(this.text.charAt(start + i)) != tagName.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the lower case name of a tag token.
+     *
+     * @param tokenIndex Index of the token in the current line
+     * @return String
+     */
+    public String getTagName(int tokenIndex) {
+        return this.text.subSequence(this.tagsNameStart[tokenIndex], this.tagsNameEnd[tokenIndex]).toString().toLowerCase();
+    }
+
+    /**
+     * Get the attributes of a tag token.
+     *
+     * @param tokenIndex Index of the token in the current line
+     * @return Hashtable of attributes
+     */
+    public Hashtable<String, String> getTagAttributes(int tokenIndex) {
+        int
+            first = this.tagsAttributesStart[tokenIndex],
+            count = this.tagsAttributesCount[tokenIndex];
+        Hashtable<String, String> attributes = new Hashtable<String, String>(count * 2);
+        for (int i = first; i < first + count; ++i) {
+            int index = i * 4;
+            attributes.put(
+                this.text.subSequence(this.attributesBounds[index], this.attributesBounds[index + 1]).toString(),
+                this.text.subSequence(this.attributesBounds[index + 2], this.attributesBounds[index + 3]).toString()
+            );
+        }
+        return attributes;
+    }
+
+    /**
+     * Create a PrinterTextParserTag instance of a tag token.
+     *
+     * @param tokenIndex Index of the token in the current line
+     * @return PrinterTextParserTag instance
+     */
+    public PrinterTextParserTag getTag(int tokenIndex) {
+        return new PrinterTextParserTag(
+            this.getTagName(tokenIndex),
+            this.getTagAttributes(tokenIndex),
+            this.tokensEnd[tokenIndex] - this.tokensStart[tokenIndex],
+            this.tagsIsClose[tokenIndex]
+        );
+    }
+}
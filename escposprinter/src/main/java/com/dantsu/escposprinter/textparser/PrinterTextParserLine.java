@@ -4,10 +4,6 @@ import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
 import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
 import com.dantsu.escposprinter.exceptions.EscPosParserException;
 
-import java.util.ArrayList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 public class PrinterTextParserLine {
     private PrinterTextParser textParser;
     private int nbrColumns;
@@ -17,37 +13,60 @@ public class PrinterTextParserLine {
     private PrinterTextParserColumn[] columns;
     
     public PrinterTextParserLine(PrinterTextParser textParser, String textLine) throws EscPosParserException, EscPosBarcodeException, EscPosEncodingException {
+        this(textParser, PrinterTextParserLine.lexLine(textLine));
+    }
+
+    /**
+     * Create a new instance of PrinterTextParserLine with the current line of the lexer.
+     *
+     * @param textParser Parent PrinterTextParser instance
+     * @param lexer      Lexer positioned on the line to be parsed
+     */
+    public PrinterTextParserLine(PrinterTextParser textParser, PrinterTextParserLexer lexer) throws EscPosParserException, EscPosBarcodeException, EscPosEncodingException {
         this.textParser = textParser;
-        int nbrCharactersPerLine = this.getTextParser().getPrinter().getPrinterNbrCharactersPerLine();
-    
-        Pattern pattern = Pattern.compile(PrinterTextParser.getRegexAlignTags());
-        Matcher matcher = pattern.matcher(textLine);
-    
-        ArrayList<String> columnsList = new ArrayList<String>();
-        int lastPosition = 0;
-        
-        while (matcher.find()) {
-            int startPosition = matcher.start();
-            if(startPosition > 0) {
-                columnsList.add(textLine.substring(lastPosition, startPosition));
-            }
-            lastPosition = startPosition;
-        }
-        columnsList.add(textLine.substring(lastPosition));
-        
-        this.nbrColumns = columnsList.size();
+        int
+            nbrCharactersPerLine = this.getTextParser().getPrinter().getPrinterNbrCharactersPerLine(),
+            tokensCount = lexer.getTokensCount();
+
+        this.nbrColumns = PrinterTextParserLine.countColumns(lexer);
+
         this.nbrCharColumn = (int) Math.floor(((float) nbrCharactersPerLine) / ((float) this.nbrColumns));
         this.nbrCharForgetted = nbrCharactersPerLine - (nbrCharColumn * this.nbrColumns);
         this.nbrCharColumnExceeded = 0;
         this.columns = new PrinterTextParserColumn[this.nbrColumns];
-        
-        int i=0;
-        for (String column : columnsList) {
-            this.columns[i++] = new PrinterTextParserColumn(this, column);
+
+        int i = 0, firstToken = 0;
+        for (int tokenIndex = 1; tokenIndex < tokensCount; ++tokenIndex) {
+            if (lexer.getTokenType(tokenIndex) == PrinterTextParserLexer.TOKEN_ALIGN) {
+                this.columns[i++] = new PrinterTextParserColumn(this, lexer, firstToken, tokenIndex);
+                firstToken = tokenIndex;
+            }
         }
+        this.columns[i] = new PrinterTextParserColumn(this, lexer, firstToken, tokensCount);
     }
-    
-    
+
+    /**
+     * Count the columns of the current line of the lexer. An alignment marker at the start of the line does not open a new column.
+     *
+     * @param lexer Lexer positioned on the line
+     * @return int
+     */
+    static int countColumns(PrinterTextParserLexer lexer) {
+        int nbrColumns = 1, tokensCount = lexer.getTokensCount(), lineStart = lexer.getLineStart();
+        for (int i = 0; i < tokensCount; ++i) {
+            if (lexer.getTokenType(i) == PrinterTextParserLexer.TOKEN_ALIGN && lexer.getTokenStart(i) > lineStart) {
+                ++nbrColumns;
+            }
+        }
+        return nbrColumns;
+    }
+
+    static PrinterTextParserLexer lexLine(String textLine) {
+        PrinterTextParserLexer lexer = new PrinterTextParserLexer(textLine);
+        lexer.nextLine();
+        return lexer;
+    }
+
     public PrinterTextParser getTextParser() {
         return this.textParser;
     }
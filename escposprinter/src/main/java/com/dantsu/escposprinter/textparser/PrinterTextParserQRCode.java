@@ -2,7 +2,9 @@ package com.dantsu.escposprinter.textparser;
 
 import com.dantsu.escposprinter.EscPosPrinter;
 import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.EscPosQRCodeImage;
 import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+import com.dantsu.escposprinter.exceptions.EscPosConnectionException;
 import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
 import com.dantsu.escposprinter.exceptions.EscPosParserException;
 
@@ -10,8 +12,13 @@ import java.util.Hashtable;
 
 public class PrinterTextParserQRCode extends PrinterTextParserImg {
 
-    private static byte[] initConstructor(PrinterTextParserColumn printerTextParserColumn,
-                                          Hashtable<String, String> qrCodeAttributes, String data) throws EscPosParserException, EscPosBarcodeException {
+    /**
+     * Maximum size of a module of the "GS ( k" QR code command.
+     */
+    private static final int QRCODE_MAX_MODULE_SIZE = 16;
+
+    private static EscPosQRCodeImage initConstructor(PrinterTextParserColumn printerTextParserColumn,
+                                                     Hashtable<String, String> qrCodeAttributes, String data) throws EscPosParserException, EscPosBarcodeException {
         EscPosPrinter printer = printerTextParserColumn.getLine().getTextParser().getPrinter();
         data = data.trim();
 
@@ -29,15 +36,91 @@ public class PrinterTextParserQRCode extends PrinterTextParserImg {
             }
         }
 
-        return EscPosPrinterCommands.QRCodeDataToBytes(data, size);
+        int errorCorrectionLevel = EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_L;
+
+        if (qrCodeAttributes.containsKey(PrinterTextParser.ATTR_QRCODE_ERROR_CORRECTION)) {
+            String qrCodeAttribute = qrCodeAttributes.get(PrinterTextParser.ATTR_QRCODE_ERROR_CORRECTION);
+            if (qrCodeAttribute == null) {
+                throw new EscPosParserException("Invalid QR code attribute : " + PrinterTextParser.ATTR_QRCODE_ERROR_CORRECTION);
+            }
+            switch (qrCodeAttribute) {
+                case PrinterTextParser.ATTR_QRCODE_ERROR_CORRECTION_L:
+                    errorCorrectionLevel = EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_L;
+                    break;
+                case PrinterTextParser.ATTR_QRCODE_ERROR_CORRECTION_M:
+                    errorCorrectionLevel = EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_M;
+                    break;
+                case PrinterTextParser.ATTR_QRCODE_ERROR_CORRECTION_Q:
+                    errorCorrectionLevel = EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_Q;
+                    break;
+                case PrinterTextParser.ATTR_QRCODE_ERROR_CORRECTION_H:
+                    errorCorrectionLevel = EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_H;
+                    break;
+                default:
+                    throw new EscPosParserException("Invalid QR code " + PrinterTextParser.ATTR_QRCODE_ERROR_CORRECTION + " value");
+            }
+        }
+
+        int quietZone = 0;
+
+        if (qrCodeAttributes.containsKey(PrinterTextParser.ATTR_QRCODE_QUIET_ZONE)) {
+            String qrCodeAttribute = qrCodeAttributes.get(PrinterTextParser.ATTR_QRCODE_QUIET_ZONE);
+            if (qrCodeAttribute == null) {
+                throw new EscPosParserException("Invalid QR code attribute : " + PrinterTextParser.ATTR_QRCODE_QUIET_ZONE);
+            }
+            try {
+                quietZone = Integer.parseInt(qrCodeAttribute);
+            } catch(NumberFormatException nfe) {
+                throw new EscPosParserException("Invalid QR code " + PrinterTextParser.ATTR_QRCODE_QUIET_ZONE + " value");
+            }
+            if (quietZone < 0) {
+                throw new EscPosParserException("Invalid QR code " + PrinterTextParser.ATTR_QRCODE_QUIET_ZONE + " value");
+            }
+        }
+
+        return EscPosPrinterCommands.QRCodeDataToRasterImage(data, size, errorCorrectionLevel, quietZone);
     }
 
+    private EscPosQRCodeImage qrCodeImage;
+
     public PrinterTextParserQRCode(PrinterTextParserColumn printerTextParserColumn, String textAlign,
                                    Hashtable<String, String> qrCodeAttributes, String data) throws EscPosParserException, EscPosBarcodeException {
-        super(
-                printerTextParserColumn,
-                textAlign,
-                PrinterTextParserQRCode.initConstructor(printerTextParserColumn, qrCodeAttributes, data)
-        );
+        this(printerTextParserColumn, textAlign, PrinterTextParserQRCode.initConstructor(printerTextParserColumn, qrCodeAttributes, data));
+    }
+
+    private PrinterTextParserQRCode(PrinterTextParserColumn printerTextParserColumn, String textAlign, EscPosQRCodeImage qrCodeImage) {
+        super(printerTextParserColumn, textAlign, qrCodeImage);
+        this.qrCodeImage = qrCodeImage;
+    }
+
+    /**
+     * Print QR code. If the printer profile supports the "GS ( k" QR code commands, only the data is sent and the
+     * printer builds the QR code with the same module size as the image. Otherwise, the QR code is printed as an image.
+     *
+     * @param printerSocket Instance of EscPosPrinterCommands
+     * @return this Fluent method
+     */
+    @Override
+    public PrinterTextParserQRCode print(EscPosPrinterCommands printerSocket) throws EscPosEncodingException, EscPosConnectionException {
+        int moduleSize = this.qrCodeImage.getModuleSize();
+
+        if (
+            !printerSocket.getProfile().isQRCodeCommandSupported() ||
+            moduleSize < 1 || moduleSize > PrinterTextParserQRCode.QRCODE_MAX_MODULE_SIZE
+        ) {
+            super.print(printerSocket);
+            return this;
+        }
+
+        // The printer does not print the quiet zone : the paper is fed above and below the QR code instead
+        int quietZoneDots = this.qrCodeImage.getQuietZoneDots();
+
+        this.feedPaper(printerSocket, quietZoneDots);
+        printerSocket
+            .setAlign(this.getAlign())
+            .printQRCode(EscPosPrinterCommands.QRCODE_2, this.qrCodeImage.getData(), moduleSize, this.qrCodeImage.getErrorCorrectionLevel())
+            .setAlign(EscPosPrinterCommands.TEXT_ALIGN_LEFT);
+        this.feedPaper(printerSocket, quietZoneDots);
+        return this;
     }
 }
@@ -0,0 +1,87 @@
+package com.dantsu.escposprinter.textparser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Read a formatted text line by line from a Reader, with a fixed size buffer.
+ * <p>
+ * Lines are split like PrinterTextParserLexer does : on "\n" and "\r\n", a single "\r" is kept in the line.
+ */
+public class PrinterTextParserReader {
+
+    private Reader reader;
+    private char[] buffer;
+    private int bufferStart = 0;
+    private int bufferEnd = 0;
+    private boolean isEnded = false;
+    private StringBuilder line = new StringBuilder();
+
+    /**
+     * Create new instance of PrinterTextParserReader.
+     *
+     * @param reader Reader of the formatted text
+     */
+    public PrinterTextParserReader(Reader reader) {
+        this(reader, 8192);
+    }
+
+    /**
+     * Create new instance of PrinterTextParserReader.
+     *
+     * @param reader     Reader of the formatted text
+     * @param bufferSize Number of characters read at once
+     */
+    public PrinterTextParserReader(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[Math.max(1, bufferSize)];
+    }
+
+    /**
+     * Read the next line of the formatted text. The last line is not returned if it is empty.
+     *
+     * @return The line without its line break, null if the end of the text has been reached
+     */
+    public String readLine() throws IOException {
+        this.line.setLength(0);
+
+        while (true) {
+            if (this.bufferStart == this.bufferEnd) {
+                if (this.isEnded || !this.fillBuffer()) {
+                    this.isEnded = true;
+                    return this.line.length() > 0 ? this.line.toString() : null;
+                }
+            }
+
+            for (int i = this.bufferStart; i < this.bufferEnd; ++i) {
+                if (this.buffer[i] == '\n') {
+                    this.line.append(this.buffer, this.bufferStart, i - this.bufferStart);
+                    this.bufferStart = i + 1;
+
+                    int length = this.line.length();
+                    if (length > 0 && this.line.charAt(length - 1) == '\r') {
+                        this.line.setLength(length - 1);
+                    }
+                    return this.line.toString();
+                }
+            }
+
+            this.line.append(this.buffer, this.bufferStart, this.bufferEnd - this.bufferStart);
+            this.bufferStart = this.bufferEnd;
+        }
+    }
+
+    private boolean fillBuffer() throws IOException {
+        int nbrCharsRead;
+        do {
+            nbrCharsRead = this.reader.read(this.buffer, 0, this.buffer.length);
+        } while (nbrCharsRead == 0);
+
+        if (nbrCharsRead == -1) {
+            return false;
+        }
+        this.bufferStart = 0;
+        this.bufferEnd = nbrCharsRead;
+        return true;
+    }
+}
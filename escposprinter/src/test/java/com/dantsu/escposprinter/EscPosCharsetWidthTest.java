@@ -0,0 +1,64 @@
+package com.dantsu.escposprinter;
+
+import com.dantsu.escposprinter.exceptions.EscPosEncodingException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EscPosCharsetWidthTest {
+
+    @Test
+    public void getTextWidth_countsOneColumnByAsciiCharacter() throws Exception {
+        EscPosCharsetWidth charsetWidth = EscPosCharsetWidth.forCharsetName("windows-1252");
+        assertEquals(0, charsetWidth.getTextWidth(""));
+        assertEquals(13, charsetWidth.getTextWidth("Hello, World!"));
+        assertEquals(5, charsetWidth.getTextWidth("Hello, World!", 7, 12));
+        assertEquals(1, charsetWidth.getCharWidth('A'));
+        assertSame(charsetWidth, EscPosCharsetWidth.forCharsetName("windows-1252"));
+    }
+
+    @Test
+    public void getTextWidth_countsTwoColumnsByWideCharacter() throws Exception {
+        EscPosCharsetWidth charsetWidth = EscPosCharsetWidth.forCharsetName("UTF-8");
+        assertEquals(4, charsetWidth.getTextWidth("\u4E2D\u6587"));
+        assertEquals(6, charsetWidth.getTextWidth("\uD55C\uAE00ab"));
+        assertEquals(2, charsetWidth.getTextWidth("\uFF21"));
+        // Supplementary character (U+20000) written with a surrogate pair
+        assertEquals(2, charsetWidth.getTextWidth("\uD840\uDC00"));
+    }
+
+    @Test
+    public void getTextWidth_countsNoColumnForCombiningCharacter() throws Exception {
+        EscPosCharsetWidth charsetWidth = EscPosCharsetWidth.forCharsetName("UTF-8");
+        assertEquals(0, charsetWidth.getCharWidth('\u0301'));
+        assertEquals(1, charsetWidth.getTextWidth("e\u0301"));
+        assertEquals(3, charsetWidth.getTextWidth("\u4E2De\u0300"));
+    }
+
+    @Test
+    public void getTextWidth_countsOneColumnForCharacterThatCantBeEncoded() throws Exception {
+        // Characters that can't be encoded are replaced by one character
+        EscPosCharsetWidth charsetWidth = EscPosCharsetWidth.forCharsetName("windows-1252");
+        assertEquals(2, charsetWidth.getTextWidth("\u4E2D\u6587"));
+        assertEquals(2, charsetWidth.getTextWidth("e\u0301"));
+    }
+
+    @Test(expected = EscPosEncodingException.class)
+    public void forCharsetName_rejectsUnknownCharset() throws Exception {
+        EscPosCharsetWidth.forCharsetName("not a charset");
+    }
+
+    @Test
+    public void getTextSizeWidthMultiplier_readsWidthOfTextSize() {
+        assertEquals(1, EscPosCharsetWidth.getTextSizeWidthMultiplier(null));
+        assertEquals(1, EscPosCharsetWidth.getTextSizeWidthMultiplier(new byte[]{0x1D, 0x21}));
+        assertEquals(1, EscPosCharsetWidth.getTextSizeWidthMultiplier(EscPosPrinterCommands.TEXT_SIZE_NORMAL));
+        assertEquals(1, EscPosCharsetWidth.getTextSizeWidthMultiplier(EscPosPrinterCommands.TEXT_SIZE_DOUBLE_HEIGHT));
+        assertEquals(2, EscPosCharsetWidth.getTextSizeWidthMultiplier(EscPosPrinterCommands.TEXT_SIZE_DOUBLE_WIDTH));
+        assertEquals(2, EscPosCharsetWidth.getTextSizeWidthMultiplier(EscPosPrinterCommands.TEXT_SIZE_BIG));
+        assertEquals(4, EscPosCharsetWidth.getTextSizeWidthMultiplier(EscPosPrinterCommands.TEXT_SIZE_BIG_3));
+        assertEquals(7, EscPosCharsetWidth.getTextSizeWidthMultiplier(EscPosPrinterCommands.TEXT_SIZE_BIG_6));
+        assertEquals(8, EscPosCharsetWidth.getTextSizeWidthMultiplier(new byte[]{0x1D, 0x21, 0x77}));
+    }
+}
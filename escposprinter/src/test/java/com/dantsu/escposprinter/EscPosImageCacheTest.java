@@ -0,0 +1,85 @@
+package com.dantsu.escposprinter;
+
+import com.dantsu.escposprinter.dither.DitherBayer;
+import com.dantsu.escposprinter.dither.DitherThreshold;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.*;
+
+public class EscPosImageCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] image(int bytesByLine, int height) {
+        byte[] bytes = EscPosPrinterCommands.initGSv0Command(bytesByLine, height);
+        for (int i = 8; i < bytes.length; ++i) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+
+    @Test
+    public void computeKey_dependsOnPixelsSizeAndAlgorithm() {
+        EscPosArgbImage image = new EscPosArgbImage(2, 1, new int[]{0xFF000000, 0xFFFFFFFF});
+        String key = EscPosImageCache.computeKey(image, 2, 1, new DitherThreshold());
+
+        assertEquals(key, EscPosImageCache.computeKey(new EscPosArgbImage(2, 1, new int[]{0xFF000000, 0xFFFFFFFF}), 2, 1, new DitherThreshold()));
+        assertNotEquals(key, EscPosImageCache.computeKey(new EscPosArgbImage(2, 1, new int[]{0xFF000000, 0xFFFFFFFE}), 2, 1, new DitherThreshold()));
+        assertNotEquals(key, EscPosImageCache.computeKey(image, 1, 1, new DitherThreshold()));
+        assertNotEquals(key, EscPosImageCache.computeKey(image, 2, 1, new DitherThreshold(100)));
+        assertNotEquals(key, EscPosImageCache.computeKey(image, 2, 1, new DitherThreshold().setGamma(1.5f)));
+        assertNotEquals(key, EscPosImageCache.computeKey(image, 2, 1, new DitherBayer()));
+    }
+
+    @Test
+    public void get_removesLeastRecentlyUsedImages() {
+        EscPosImageCache cache = new EscPosImageCache(40);
+        cache.put("a", EscPosImageCacheTest.image(1, 10));
+        cache.put("b", EscPosImageCacheTest.image(1, 10));
+        assertNotNull(cache.get("a"));
+        cache.put("c", EscPosImageCacheTest.image(1, 10));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void get_readsImagesWrittenInDirectory() throws Exception {
+        File directory = this.folder.newFolder();
+        byte[] image = EscPosImageCacheTest.image(2, 3);
+        new EscPosImageCache(1000, directory, 1000).put("a", image);
+
+        EscPosImageCache cache = new EscPosImageCache(1000, directory, 1000);
+        assertArrayEquals(image, cache.get("a"));
+        assertNull(cache.get("b"));
+
+        File[] files = directory.listFiles();
+        assertEquals(1, files.length);
+        FileOutputStream outputStream = new FileOutputStream(files[0]);
+        outputStream.write(image, 0, image.length - 1);
+        outputStream.close();
+        assertNull(new EscPosImageCache(1000, directory, 1000).get("a"));
+    }
+
+    @Test
+    public void put_removesOldestFilesWhenDirectoryIsFull() throws Exception {
+        File directory = this.folder.newFolder();
+        EscPosImageCache cache = new EscPosImageCache(0, directory, 40);
+        cache.put("a", EscPosImageCacheTest.image(1, 10));
+        new File(directory, directory.list()[0]).setLastModified(System.currentTimeMillis() - 60000);
+        cache.put("b", EscPosImageCacheTest.image(1, 10));
+        cache.put("c", EscPosImageCacheTest.image(1, 10));
+
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+}
@@ -0,0 +1,325 @@
+package com.dantsu.escposprinter;
+
+import com.dantsu.escposprinter.barcode.BarcodeDataMatrix;
+import com.dantsu.escposprinter.barcode.BarcodeITF;
+import com.dantsu.escposprinter.barcode.BarcodePDF417;
+import com.dantsu.escposprinter.connection.DeviceConnection;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class EscPosPrinterCommandsTest {
+
+    /**
+     * Connection that keep the sent bytes.
+     */
+    private static class BufferConnection extends DeviceConnection {
+        private final ByteArrayOutputStream sentBytes = new ByteArrayOutputStream();
+
+        BufferConnection() {
+            this.outputStream = this.sentBytes;
+        }
+
+        @Override
+        public DeviceConnection connect() {
+            return this;
+        }
+
+        @Override
+        public DeviceConnection disconnect() {
+            return this;
+        }
+
+        @Override
+        public void send(int addWaitingTime) {
+            this.sentBytes.write(this.data, 0, this.data.length);
+            this.data = new byte[0];
+        }
+    }
+
+    private static final EscPosPrinterSize PRINTER_SIZE = new EscPosPrinterSize(203, 48f, 32) {};
+
+    private static EscPosArgbImage filledImage(int width, int height, int color) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; ++i) {
+            pixels[i] = color;
+        }
+        return new EscPosArgbImage(width, height, pixels);
+    }
+
+    @Test
+    public void printBatch_cutsEachTextWithDefaultFormat() throws Exception {
+        BufferConnection connection = new BufferConnection();
+        EscPosPrinter printer = new EscPosPrinter(connection, 203, 48f, 32);
+        printer.printBatch(Arrays.asList("[L]<b>A", "[L]B"), 0);
+
+        byte[] bytes = connection.sentBytes.toByteArray();
+        byte[] cut = {0x1D, 0x56, 0x01};
+        int firstCut = EscPosPrinterCommandsTest.indexOf(bytes, cut, 0);
+        assertTrue(firstCut > EscPosPrinterCommandsTest.indexOf(bytes, EscPosPrinterCommands.TEXT_WEIGHT_BOLD, 0));
+        assertTrue(EscPosPrinterCommandsTest.indexOf(bytes, cut, firstCut + 3) > firstCut);
+        // The <b> tag left open by the first text is not applied to the second one
+        assertEquals(-1, EscPosPrinterCommandsTest.indexOf(bytes, EscPosPrinterCommands.TEXT_WEIGHT_BOLD, firstCut));
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern, int fromIndex) {
+        for (int i = fromIndex; i <= bytes.length - pattern.length; ++i) {
+            if (Arrays.equals(pattern, Arrays.copyOfRange(bytes, i, i + pattern.length))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void bitmapToBytes_writesGSv0Header() {
+        byte[] bytes = EscPosPrinterCommands.bitmapToBytes(EscPosPrinterCommandsTest.filledImage(300, 260, 0xFFFFFFFF), false);
+        assertEquals(8 + 38 * 260, bytes.length);
+        assertArrayEquals(new byte[]{0x1D, 0x76, 0x30, 0x00, 38, 0, 4, 1}, Arrays.copyOf(bytes, 8));
+    }
+
+    @Test
+    public void bitmapToBytes_thresholdsBlackAndWhite() {
+        int[] pixels = {0xFF000000, 0xFFFFFFFF, 0xFF9F9F9F, 0xFFA0A0A0, 0xFFFFFF00, 0xFFFFFFFF, 0xFFFFFFFF, 0xFFFFFFFF, 0xFF000000};
+        byte[] bytes = EscPosPrinterCommands.bitmapToBytes(new EscPosArgbImage(9, 1, pixels), false);
+        assertEquals((byte) 0xA8, bytes[8]);
+        assertEquals((byte) 0x80, bytes[9]);
+    }
+
+    @Test
+    public void bitmapToBytes_gradientKeepsExtremes() {
+        byte[] black = EscPosPrinterCommands.bitmapToBytes(EscPosPrinterCommandsTest.filledImage(16, 12, 0xFF000000), true);
+        byte[] white = EscPosPrinterCommands.bitmapToBytes(EscPosPrinterCommandsTest.filledImage(16, 12, 0xFFFFFFFF), true);
+        int blackDots = 0, whiteDots = 0;
+        for (int i = 8; i < black.length; ++i) {
+            blackDots += Integer.bitCount(black[i] & 0xFF);
+            whiteDots += Integer.bitCount(white[i] & 0xFF);
+        }
+        // Level 0 of the pattern never prints a dot, level 95 always does
+        assertTrue(blackDots > 16 * 12 * 9 / 10);
+        assertEquals(0, whiteDots);
+    }
+
+    @Test
+    public void convertGSv0ToEscAsterisk_transposesColumns() {
+        // 2 bytes by line, 10 rows : row 0 has its first dot black, row 9 has its last dot black
+        byte[] image = EscPosPrinterCommands.initGSv0Command(2, 10);
+        image[8] = (byte) 0x80;
+        image[8 + 9 * 2 + 1] = 0x01;
+
+        byte[][] commands = EscPosPrinterCommands.convertGSv0ToEscAsterisk(image);
+        assertEquals(3, commands.length);
+
+        byte[] stripe = commands[1];
+        assertEquals(6 + 2 * 24, stripe.length);
+        assertArrayEquals(new byte[]{0x1B, 0x2A, 0x21, 16, 0}, Arrays.copyOf(stripe, 5));
+        assertEquals(0x0A, stripe[stripe.length - 1]);
+
+        for (int i = 5; i < stripe.length - 1; ++i) {
+            int column = (i - 5) / 3, byteRow = (i - 5) % 3;
+            byte expected = column == 0 && byteRow == 0 ? (byte) 0x80 : column == 15 && byteRow == 1 ? (byte) 0x40 : 0;
+            assertEquals("byte " + i, expected, stripe[i]);
+        }
+        assertArrayEquals(stripe, EscPosPrinterCommands.rasterImageToEscAsterisk(new EscPosRasterImage(image)));
+    }
+
+    @Test
+    public void printImage_feedsBlankRowsAndTrimsWhiteBytes() throws Exception {
+        // 4 bytes by line, 40 rows : only the rows 10 and 11 have dots, in their second and third bytes
+        byte[] image = EscPosPrinterCommands.initGSv0Command(4, 40);
+        image[8 + 10 * 4 + 1] = 0x01;
+        image[8 + 11 * 4 + 2] = (byte) 0x80;
+
+        BufferConnection connection = new BufferConnection();
+        new EscPosPrinterCommands(connection).printImage(image);
+        assertArrayEquals(new byte[]{
+            0x1B, 0x4A, 10,
+            0x1D, 0x76, 0x30, 0x00, 3, 0, 2, 0, 0x00, 0x01, 0x00, 0x00, 0x00, (byte) 0x80,
+            0x1B, 0x4A, 28
+        }, connection.sentBytes.toByteArray());
+
+        connection = new BufferConnection();
+        new EscPosPrinterCommands(connection).useProfile(new EscPosPrinterProfile().setLeftMarginSupported(true)).printImage(image);
+        assertArrayEquals(new byte[]{
+            0x1B, 0x4A, 10,
+            0x1D, 0x4C, 8, 0,
+            0x1D, 0x76, 0x30, 0x00, 2, 0, 2, 0, 0x01, 0x00, 0x00, (byte) 0x80,
+            0x1B, 0x4A, 28,
+            0x1D, 0x4C, 0, 0
+        }, connection.sentBytes.toByteArray());
+    }
+
+    @Test
+    public void printImage_movesImageWithLeftMargin() throws Exception {
+        byte[] image = EscPosPrinterCommands.initGSv0Command(1, 1);
+        image[8] = (byte) 0xFF;
+
+        BufferConnection connection = new BufferConnection();
+        new EscPosPrinterCommands(connection).printImage(new EscPosRasterImage(image), 20);
+        assertArrayEquals(new byte[]{
+            0x1D, 0x76, 0x30, 0x00, 3, 0, 1, 0, 0x00, 0x00, (byte) 0xFF
+        }, connection.sentBytes.toByteArray());
+
+        connection = new BufferConnection();
+        new EscPosPrinterCommands(connection).useProfile(new EscPosPrinterProfile().setLeftMarginSupported(true)).printImage(new EscPosRasterImage(image), 20);
+        assertArrayEquals(new byte[]{
+            0x1D, 0x4C, 20, 0,
+            0x1D, 0x76, 0x30, 0x00, 1, 0, 1, 0, (byte) 0xFF,
+            0x1D, 0x4C, 0, 0
+        }, connection.sentBytes.toByteArray());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rasterImage_rejectsImageSmallerThanItsHeader() {
+        // 65535 * 65535 bytes don't fit in an int
+        new EscPosRasterImage(new byte[]{0x1D, 0x76, 0x30, 0x00, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x00});
+    }
+
+    @Test
+    public void QRCodeDataToRasterImage_scalesModules() throws Exception {
+        // Version 1 : 21 modules, 2 dots by module
+        EscPosQRCodeImage image = EscPosPrinterCommands.QRCodeDataToRasterImage("ESCPOS", 42);
+        assertEquals(21, image.getNbrModules());
+        assertEquals(2, image.getModuleSize());
+        assertEquals(6, image.getBytesByLine());
+        assertEquals(42, image.getHeight());
+
+        // The finder pattern starts with a row of 7 black modules, then a row with only its borders black
+        byte[] rows = new byte[6 * 4];
+        image.readRows(0, 4, rows, 0);
+        assertArrayEquals(new byte[]{(byte) 0xFF, (byte) 0xFC}, Arrays.copyOfRange(rows, 0, 2));
+        assertArrayEquals(Arrays.copyOfRange(rows, 0, 6), Arrays.copyOfRange(rows, 6, 12));
+        assertArrayEquals(new byte[]{(byte) 0xC0, (byte) 0x0C}, Arrays.copyOfRange(rows, 12, 14));
+
+        byte[] bytes = EscPosPrinterCommands.QRCodeDataToBytes("ESCPOS", 42);
+        assertArrayEquals(rows, Arrays.copyOfRange(bytes, 8, 8 + rows.length));
+    }
+
+    @Test
+    public void QRCodeDataToRasterImage_addsQuietZone() throws Exception {
+        // 21 modules and 2 modules of quiet zone on each side, 2 dots by module
+        EscPosQRCodeImage image = EscPosPrinterCommands.QRCodeDataToRasterImage("ESCPOS", 50, EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_M, 2);
+        assertEquals(2, image.getModuleSize());
+        assertEquals(EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_M, image.getErrorCorrectionLevel());
+        assertEquals(7, image.getBytesByLine());
+        assertEquals(50, image.getHeight());
+
+        byte[] rows = new byte[7 * 5];
+        Arrays.fill(rows, (byte) 0x55);
+        image.readRows(0, 5, rows, 0);
+        for (int i = 0; i < 7 * 4; ++i) {
+            assertEquals(0, rows[i]);
+        }
+        assertArrayEquals(new byte[]{0x0F, (byte) 0xFF}, Arrays.copyOfRange(rows, 28, 30));
+        assertEquals(0xC0, rows[30] & 0xF0);
+
+        assertSame(image, EscPosPrinterCommands.QRCodeDataToRasterImage("ESCPOS", 50, EscPosPrinterCommands.QRCODE_ERROR_CORRECTION_M, 2));
+    }
+
+    @Test
+    public void printBarcode2D_sendsDataWithGSk() throws Exception {
+        BarcodeDataMatrix barcode = new BarcodeDataMatrix(EscPosPrinterCommandsTest.PRINTER_SIZE, "ESCPOS", 10f, 0);
+        int nbrModules = barcode.getNbrModules(), moduleWidth = barcode.getModuleWidth();
+        assertEquals(Math.round(80f / nbrModules), moduleWidth);
+
+        BufferConnection connection = new BufferConnection();
+        new EscPosPrinterCommands(connection).printBarcode2D(barcode);
+        connection.send();
+        assertArrayEquals(new byte[]{
+            0x1D, 0x28, 0x6B, 0x05, 0x00, 0x36, 0x32, 0x00, (byte) nbrModules, (byte) nbrModules,
+            0x1D, 0x28, 0x6B, 0x03, 0x00, 0x36, 0x33, (byte) moduleWidth,
+            0x1D, 0x28, 0x6B, 0x09, 0x00, 0x36, 0x50, 0x30, 'E', 'S', 'C', 'P', 'O', 'S',
+            0x1D, 0x28, 0x6B, 0x03, 0x00, 0x36, 0x51, 0x30
+        }, connection.sentBytes.toByteArray());
+    }
+
+    @Test
+    public void barcode2DRasterImage_scalesModules() throws Exception {
+        // DataMatrix : black left and bottom borders, alternate modules on the top border, 1 module of quiet zone
+        BarcodeDataMatrix dataMatrix = new BarcodeDataMatrix(EscPosPrinterCommandsTest.PRINTER_SIZE, "ESCPOS", 1f, 1);
+        EscPosModuleImage image = dataMatrix.getRasterImage();
+        int nbrModules = dataMatrix.getNbrModules(), moduleWidth = image.getModuleWidth(), bytesByLine = image.getBytesByLine();
+        assertEquals(1, moduleWidth);
+        assertEquals((nbrModules + 2 + 7) / 8, bytesByLine);
+        assertEquals(nbrModules + 2, image.getHeight());
+
+        byte[] rows = new byte[bytesByLine * image.getHeight()];
+        image.readRows(0, image.getHeight(), rows, 0);
+        for (int x = 0; x < nbrModules + 2; ++x) {
+            boolean isInside = x >= 1 && x <= nbrModules;
+            assertEquals(false, EscPosPrinterCommandsTest.isDotBlack(rows, bytesByLine, x, 0));
+            assertEquals(isInside && x % 2 == 1, EscPosPrinterCommandsTest.isDotBlack(rows, bytesByLine, x, 1));
+            assertEquals(isInside, EscPosPrinterCommandsTest.isDotBlack(rows, bytesByLine, x, nbrModules));
+            assertEquals(false, EscPosPrinterCommandsTest.isDotBlack(rows, bytesByLine, x, nbrModules + 1));
+        }
+        for (int y = 1; y <= nbrModules; ++y) {
+            assertEquals(false, EscPosPrinterCommandsTest.isDotBlack(rows, bytesByLine, 0, y));
+            assertEquals(true, EscPosPrinterCommandsTest.isDotBlack(rows, bytesByLine, 1, y));
+        }
+
+        // PDF417 : rows of modules 3 times higher than wide, each row starts with the start pattern
+        BarcodePDF417 pdf417 = new BarcodePDF417(EscPosPrinterCommandsTest.PRINTER_SIZE, "ESCPOS", 20f, 0);
+        assertEquals(pdf417.getModuleWidth() * 3, pdf417.getModuleHeight());
+        image = pdf417.getRasterImage();
+        assertEquals(pdf417.getNbrRows() * pdf417.getModuleHeight(), image.getHeight());
+
+        pdf417 = new BarcodePDF417(EscPosPrinterCommandsTest.PRINTER_SIZE, "ESCPOS", 1f, 0);
+        image = pdf417.getRasterImage();
+        assertEquals(1, image.getModuleWidth());
+        rows = new byte[image.getBytesByLine() * image.getHeight()];
+        image.readRows(0, image.getHeight(), rows, 0);
+        for (int row = 0; row < image.getHeight(); ++row) {
+            int offset = row * image.getBytesByLine();
+            assertArrayEquals(new byte[]{(byte) 0xFF, 0x54}, Arrays.copyOfRange(rows, offset, offset + 2));
+        }
+    }
+
+    @Test
+    public void printBarcode_printsImageIfTypeIsNotSupported() throws Exception {
+        BarcodeITF barcode = new BarcodeITF(EscPosPrinterCommandsTest.PRINTER_SIZE, "1234", 11.25f, 1f, EscPosPrinterCommands.BARCODE_TEXT_POSITION_NONE);
+        assertEquals(45, barcode.getColsCount());
+        assertEquals(2, barcode.getColWidth());
+
+        // Each module of the ZXing pattern is colWidth dots wide
+        String pattern = "#.#.###.#...#.#.###...###.###.#...#.#...###.#";
+        EscPosModuleImage image = barcode.getRasterImage();
+        assertEquals(barcode.getHeight(), image.getHeight());
+        byte[] rows = new byte[image.getBytesByLine() * image.getHeight()];
+        image.readRows(0, image.getHeight(), rows, 0);
+        for (int x = 0; x < image.getBytesByLine() * 8; ++x) {
+            boolean isBar = x < pattern.length() * 2 && pattern.charAt(x / 2) == '#';
+            assertEquals(isBar, EscPosPrinterCommandsTest.isDotBlack(rows, image.getBytesByLine(), x, 0));
+            assertEquals(isBar, EscPosPrinterCommandsTest.isDotBlack(rows, image.getBytesByLine(), x, image.getHeight() - 1));
+        }
+
+        BufferConnection connection = new BufferConnection();
+        new EscPosPrinterCommands(connection).printBarcodeOrImage(barcode);
+        connection.send();
+        assertArrayEquals(new byte[]{0x1D, 0x48, 0x00}, Arrays.copyOf(connection.sentBytes.toByteArray(), 3));
+
+        // printBarcode always sends "GS k", whatever the printer profile
+        connection = new BufferConnection();
+        new EscPosPrinterCommands(connection)
+            .useProfile(new EscPosPrinterProfile().setBarcodeTypeSupported(EscPosPrinterCommands.BARCODE_TYPE_ITF, false))
+            .printBarcode(barcode);
+        connection.send();
+        assertArrayEquals(new byte[]{0x1D, 0x48, 0x00}, Arrays.copyOf(connection.sentBytes.toByteArray(), 3));
+
+        connection = new BufferConnection();
+        new EscPosPrinterCommands(connection)
+            .useProfile(new EscPosPrinterProfile().setBarcodeTypeSupported(EscPosPrinterCommands.BARCODE_TYPE_ITF, false))
+            .printBarcodeOrImage(barcode);
+        connection.send();
+        byte[] bytes = connection.sentBytes.toByteArray();
+        assertArrayEquals(new byte[]{0x1D, 0x76, 0x30, 0x00, (byte) image.getBytesByLine(), 0x00, (byte) image.getHeight(), 0x00}, Arrays.copyOf(bytes, 8));
+        assertArrayEquals(Arrays.copyOf(rows, image.getBytesByLine()), Arrays.copyOfRange(bytes, 8, 8 + image.getBytesByLine()));
+    }
+
+    private static boolean isDotBlack(byte[] rows, int bytesByLine, int x, int y) {
+        return (rows[y * bytesByLine + x / 8] & (0x80 >> (x % 8))) != 0;
+    }
+}
@@ -0,0 +1,142 @@
+package com.dantsu.escposprinter;
+
+import com.dantsu.escposprinter.connection.tcp.TcpConnection;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class EscPosPrinterIdentifierTest {
+
+    /**
+     * Local TCP printer that answers the "GS I" commands like a TM-T20II, or never answers.
+     */
+    private static class PrinterStandIn extends Thread {
+        private final ServerSocket serverSocket;
+        private final boolean answering;
+        private final AtomicInteger nbrQueries = new AtomicInteger();
+
+        PrinterStandIn(boolean answering) throws IOException {
+            this.serverSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+            this.answering = answering;
+            this.setDaemon(true);
+            this.start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Socket socket = this.serverSocket.accept();
+                    InputStream inputStream = socket.getInputStream();
+                    OutputStream outputStream = socket.getOutputStream();
+                    int b;
+                    while ((b = inputStream.read()) != -1) {
+                        if (b != 0x1D || inputStream.read() != 0x49) {
+                            continue;
+                        }
+                        int function = inputStream.read();
+                        this.nbrQueries.incrementAndGet();
+                        if (!this.answering) {
+                            continue;
+                        }
+                        switch (function) {
+                            case 0x43:
+                                outputStream.write("_TM-T20II\0".getBytes("US-ASCII"));
+                                break;
+                            case 0x41:
+                                outputStream.write("_1.00 ESC/POS\0".getBytes("US-ASCII"));
+                                break;
+                            case 0x02:
+                                outputStream.write(0x02);
+                                break;
+                        }
+                        outputStream.flush();
+                    }
+                    socket.close();
+                }
+            } catch (IOException e) {
+                // Server closed
+            }
+        }
+
+        TcpConnection connect() throws Exception {
+            return new TcpConnection("127.0.0.1", this.serverSocket.getLocalPort(), 1000).connect();
+        }
+
+        void close() throws IOException {
+            this.serverSocket.close();
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PrinterStandIn printer;
+
+    @After
+    public void closePrinter() throws IOException {
+        if (this.printer != null) {
+            this.printer.close();
+        }
+    }
+
+    @Test
+    public void identify_queriesPrinterOnce() throws Exception {
+        this.printer = new PrinterStandIn(true);
+        File directory = this.folder.newFolder();
+        EscPosPrinterIdentifier identifier = new EscPosPrinterIdentifier(directory);
+
+        TcpConnection connection = this.printer.connect();
+        EscPosPrinterIdentification identification = identifier.identify(connection);
+        connection.disconnect();
+        assertEquals("TM-T20II", identification.getModelName());
+        assertEquals("1.00 ESC/POS", identification.getFirmwareVersion());
+        assertEquals(2, identification.getTypeId());
+        assertEquals("TM-T20II", identification.getProfile().getName());
+        assertEquals(3, this.printer.nbrQueries.get());
+
+        connection = this.printer.connect();
+        EscPosPrinterCommands printerCommands = new EscPosPrinterCommands(connection).useIdentifiedProfile(identifier);
+        connection.disconnect();
+        assertTrue(printerCommands.getProfile().isQRCodeCommandSupported());
+        assertEquals(3, this.printer.nbrQueries.get());
+
+        // Identifications written in the directory are available without connecting
+        identification = new EscPosPrinterIdentifier(directory).identify(new TcpConnection("127.0.0.1", this.printer.serverSocket.getLocalPort()));
+        assertEquals("TM-T20II", identification.getModelName());
+        assertEquals(3, this.printer.nbrQueries.get());
+    }
+
+    @Test
+    public void identify_keepsProfileIfPrinterDoesNotAnswer() throws Exception {
+        this.printer = new PrinterStandIn(false);
+        File directory = this.folder.newFolder();
+        EscPosPrinterIdentifier identifier = new EscPosPrinterIdentifier(directory).setResponseTimeout(50);
+
+        TcpConnection connection = this.printer.connect();
+        EscPosPrinterProfile profile = new EscPosPrinterProfile();
+        EscPosPrinterCommands printerCommands = new EscPosPrinterCommands(connection).useProfile(profile).useIdentifiedProfile(identifier);
+        connection.disconnect();
+        assertSame(profile, printerCommands.getProfile());
+        assertFalse(identifier.get(connection.getAddress()).isIdentified());
+        // The firmware version and the type ID are not queried
+        assertEquals(1, this.printer.nbrQueries.get());
+
+        // The failure is kept in memory only, the printer is queried again after a restart
+        assertNull(new EscPosPrinterIdentifier(directory).get(connection.getAddress()));
+        assertEquals(0, directory.list().length);
+    }
+}
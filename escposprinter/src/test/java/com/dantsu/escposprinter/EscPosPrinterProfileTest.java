@@ -0,0 +1,97 @@
+package com.dantsu.escposprinter;
+
+import com.dantsu.escposprinter.connection.DeviceConnection;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EscPosPrinterProfileTest {
+
+    /**
+     * Connection that only computes the waiting times.
+     */
+    private static class PacedConnection extends DeviceConnection {
+        @Override
+        public DeviceConnection connect() {
+            return this;
+        }
+
+        @Override
+        public DeviceConnection disconnect() {
+            return this;
+        }
+
+        int waitingTime(int nbrBytes, int processingTime) {
+            return this.getWaitingTime(nbrBytes, processingTime);
+        }
+    }
+
+    @Test
+    public void fromJson_readsCapabilities() throws Exception {
+        EscPosPrinterProfile profile = EscPosPrinterProfile.fromJson(
+            "{\"name\": \"TM-X\", \"inputBufferSize\": 4096, \"transferSpeed\": 100000, \"printSpeed\": 250," +
+                "\"commands\": {\"graphics\": true, \"graphicsTones\": 4, \"qrCode\": true}," +
+                "\"unsupportedBarcodes\": [\"93\", \"codabar\"]," +
+                "\"codePages\": {\"cp437\": 0, \"windows-1252\": 16}, \"defaultCodePage\": \"windows-1252\"}"
+        );
+        assertEquals("TM-X", profile.getName());
+        assertEquals(4096, profile.getInputBufferSize());
+        assertEquals(100000, profile.getTransferSpeed());
+        assertEquals(250, profile.getPrintSpeed());
+        assertEquals(100, profile.getCutTime());
+        assertTrue(profile.isGraphicsCommandSupported());
+        assertEquals(4, profile.getNbrGraphicsTones());
+        assertTrue(profile.isQRCodeCommandSupported());
+        assertFalse(profile.isPDF417CommandSupported());
+        assertFalse(profile.isBarcodeTypeSupported(EscPosPrinterCommands.BARCODE_TYPE_93));
+        assertFalse(profile.isBarcodeTypeSupported(EscPosPrinterCommands.BARCODE_TYPE_CODABAR));
+        assertTrue(profile.isBarcodeTypeSupported(EscPosPrinterCommands.BARCODE_TYPE_128));
+        assertArrayEquals(new byte[]{0x1B, 0x74, 0}, profile.getCharsetEncoding("cp437").getCommand());
+        assertEquals("windows-1252", profile.getDefaultCharsetEncoding().getName());
+        assertNull(profile.getCharsetEncoding("cp866"));
+    }
+
+    @Test
+    public void forModel_loadsBundledProfiles() {
+        for (String model : EscPosPrinterProfile.getBundledModels()) {
+            assertNotNull(model, EscPosPrinterProfile.forModel(model));
+        }
+        assertNull(EscPosPrinterProfile.forModel("unknown"));
+
+        EscPosPrinterProfile profile = EscPosPrinterProfile.forModel("epson-tm-t20ii");
+        assertEquals("TM-T20II", profile.getName());
+        assertTrue(profile.isQRCodeCommandSupported());
+
+        EscPosPrinterCommands printerCommands = new EscPosPrinterCommands(new EscPosPrinterProfileTest.PacedConnection());
+        assertSame(EscPosPrinterCommands.DEFAULT_CHARSET_ENCODING, printerCommands.getCharsetEncoding());
+        printerCommands.useProfile(profile);
+        assertEquals("cp437", printerCommands.getCharsetEncoding().getName());
+    }
+
+    @Test
+    public void getFeedTime_usesPrintSpeed() {
+        EscPosPrinterProfile profile = new EscPosPrinterProfile();
+        assertEquals(200, profile.getFeedTime(200, 203));
+        profile.setPrintSpeed(200);
+        // 200 dots at 203 DPI are 25mm, fed in 125ms
+        assertEquals(126, profile.getFeedTime(200, 203));
+        // 180 dots at 180 DPI are 25.4mm, fed in 127ms
+        assertEquals(127, profile.getFeedTime(180, 180));
+    }
+
+    @Test
+    public void useProfile_pacesConnection() {
+        EscPosPrinterProfileTest.PacedConnection connection = new EscPosPrinterProfileTest.PacedConnection();
+        assertEquals(100, connection.waitingTime(1600, 0));
+        assertEquals(100 + 150, connection.waitingTime(1600, 150));
+
+        connection = new EscPosPrinterProfileTest.PacedConnection();
+        new EscPosPrinterCommands(connection).useProfile(new EscPosPrinterProfile().setInputBufferSize(4096).setTransferSpeed(4000));
+        // A paper cut is executed while the next data fills the buffer
+        assertEquals(0, connection.waitingTime(3000, 100));
+        // 1904 bytes and the 100ms cut don't fit in the buffer, they are processed at 4000 bytes per second
+        int waitingTime = connection.waitingTime(2600, 0);
+        assertTrue(waitingTime > 450 && waitingTime <= 476);
+    }
+}
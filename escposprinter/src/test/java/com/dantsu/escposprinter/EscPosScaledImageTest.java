@@ -0,0 +1,43 @@
+package com.dantsu.escposprinter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EscPosScaledImageTest {
+
+    @Test
+    public void getRow_averagesCoveredPixels() {
+        // 4x2 image : black and white columns
+        int[] pixels = {0xFF000000, 0xFFFFFFFF, 0xFF000000, 0xFFFFFFFF, 0xFF000000, 0xFFFFFFFF, 0xFF000000, 0xFFFFFFFF};
+        EscPosScaledImage image = new EscPosScaledImage(new EscPosArgbImage(4, 2, pixels), 2, 1);
+        int[] row = new int[2];
+        image.getRow(0, row);
+        assertEquals(0xFF808080, row[0]);
+        assertEquals(0xFF808080, row[1]);
+    }
+
+    @Test
+    public void getRow_weightsPartiallyCoveredPixels() {
+        // 3 pixels to 2 : the middle pixel is shared between both
+        int[] pixels = {0xFF000000, 0xFF909090, 0xFFFFFFFF};
+        EscPosScaledImage image = new EscPosScaledImage(new EscPosArgbImage(3, 1, pixels), 2, 1);
+        int[] row = new int[2];
+        image.getRow(0, row);
+        assertEquals(0xFF303030, row[0]);
+        assertEquals(0xFFDADADA, row[1]);
+    }
+
+    @Test
+    public void getRow_ignoresColorOfTransparentPixels() {
+        int[] pixels = {0x00000000, 0xFFFF0000, 0x00000000, 0x00000000};
+        EscPosScaledImage image = new EscPosScaledImage(new EscPosArgbImage(2, 2, pixels), 1, 1);
+        int[] row = new int[1];
+        image.getRow(0, row);
+        assertEquals(0x40FF0000, row[0]);
+
+        image = new EscPosScaledImage(new EscPosArgbImage(2, 2, new int[4]), 1, 1);
+        image.getRow(0, row);
+        assertEquals(0x00FFFFFF, row[0]);
+    }
+}
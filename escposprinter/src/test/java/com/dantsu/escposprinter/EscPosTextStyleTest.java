@@ -0,0 +1,115 @@
+package com.dantsu.escposprinter;
+
+import com.dantsu.escposprinter.connection.DeviceConnection;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+public class EscPosTextStyleTest {
+
+    /**
+     * Connection that keep the sent bytes.
+     */
+    private static class BufferConnection extends DeviceConnection {
+        private final ByteArrayOutputStream sentBytes = new ByteArrayOutputStream();
+
+        BufferConnection() {
+            this.outputStream = this.sentBytes;
+        }
+
+        @Override
+        public DeviceConnection connect() {
+            return this;
+        }
+
+        @Override
+        public DeviceConnection disconnect() {
+            return this;
+        }
+
+        @Override
+        public void send(int addWaitingTime) {
+            this.sentBytes.write(this.data, 0, this.data.length);
+            this.data = new byte[0];
+        }
+
+        byte[] takeSentBytes() {
+            byte[] bytes = this.sentBytes.toByteArray();
+            this.sentBytes.reset();
+            return bytes;
+        }
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (byte[] array : arrays) {
+            bytes.write(array, 0, array.length);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void get_internsEqualStyles() {
+        EscPosTextStyle textStyle = EscPosTextStyle.get(
+            EscPosPrinterCommands.TEXT_SIZE_BIG, EscPosPrinterCommands.TEXT_COLOR_RED, EscPosPrinterCommands.TEXT_COLOR_REVERSE_OFF,
+            EscPosPrinterCommands.TEXT_WEIGHT_BOLD, EscPosPrinterCommands.TEXT_UNDERLINE_LARGE, EscPosPrinterCommands.TEXT_DOUBLE_STRIKE_OFF
+        );
+
+        // Equal commands built from other arrays give the same instance
+        assertSame(textStyle, EscPosTextStyle.get(
+            new byte[]{0x1D, 0x21, 0x11}, new byte[]{0x1B, 0x72, 0x01}, new byte[]{0x1D, 0x42, 0x00},
+            new byte[]{0x1B, 0x45, 0x01}, new byte[]{0x1B, 0x2D, 0x02}, new byte[]{0x1B, 0x47, 0x00}
+        ));
+        assertSame(textStyle, EscPosTextStyle.get(0x11, 1, 0, 1, 2, 0));
+        assertEquals(textStyle.getPackedValue(), EscPosTextStyle.get(0x11, 1, 0, 1, 2, 0).getPackedValue());
+
+        assertNotSame(textStyle, EscPosTextStyle.get(0x11, 1, 0, 0, 2, 0));
+        assertNotSame(textStyle, EscPosTextStyle.get(0x22, 1, 0, 1, 2, 0));
+        assertNotEquals(textStyle.getPackedValue(), EscPosTextStyle.get(0x11, 1, 0, 0, 2, 0).getPackedValue());
+    }
+
+    @Test
+    public void get_keepsStyleCommands() {
+        EscPosTextStyle textStyle = EscPosTextStyle.get(null, null, null, null, null, null);
+        assertSame(EscPosPrinterCommands.TEXT_SIZE_NORMAL, textStyle.getTextSize());
+        assertSame(EscPosPrinterCommands.TEXT_COLOR_BLACK, textStyle.getTextColor());
+        assertSame(EscPosPrinterCommands.TEXT_WEIGHT_NORMAL, textStyle.getTextBold());
+        assertSame(EscPosPrinterCommands.TEXT_UNDERLINE_OFF, textStyle.getTextUnderline());
+        assertEquals(1, textStyle.getWidthMultiplier());
+
+        textStyle = EscPosTextStyle.get(0x35, 0, 0, 0, 0, 0);
+        assertArrayEquals(new byte[]{0x1D, 0x21, 0x35}, textStyle.getTextSize());
+        assertEquals(4, textStyle.getWidthMultiplier());
+    }
+
+    @Test
+    public void printStyledText_sendsOnlyChangedStyleCommands() throws Exception {
+        EscPosTextStyleTest.BufferConnection connection = new EscPosTextStyleTest.BufferConnection();
+        EscPosPrinterCommands printerCommands = new EscPosPrinterCommands(connection);
+        byte[] charsetCommand = printerCommands.getCharsetEncoding().getCommand();
+        EscPosTextStyle normal = EscPosTextStyle.get(null, null, null, null, null, null);
+        EscPosTextStyle bold = EscPosTextStyle.get(null, null, null, EscPosPrinterCommands.TEXT_WEIGHT_BOLD, null, null);
+
+        printerCommands.printStyledText("A", normal);
+        connection.send();
+        assertArrayEquals(EscPosTextStyleTest.concat(
+            charsetCommand,
+            EscPosPrinterCommands.TEXT_SIZE_NORMAL, EscPosPrinterCommands.TEXT_DOUBLE_STRIKE_OFF, EscPosPrinterCommands.TEXT_UNDERLINE_OFF,
+            EscPosPrinterCommands.TEXT_WEIGHT_NORMAL, EscPosPrinterCommands.TEXT_COLOR_BLACK, EscPosPrinterCommands.TEXT_COLOR_REVERSE_OFF,
+            new byte[]{'A'}
+        ), connection.takeSentBytes());
+
+        // The same style is not sent again
+        printerCommands.printStyledText("B", EscPosTextStyle.get(0, 0, 0, 0, 0, 0));
+        connection.send();
+        assertArrayEquals(EscPosTextStyleTest.concat(charsetCommand, new byte[]{'B'}), connection.takeSentBytes());
+
+        // Only the commands that differ from the current style are sent
+        printerCommands.printStyledText("C", bold);
+        connection.send();
+        assertArrayEquals(EscPosTextStyleTest.concat(charsetCommand, EscPosPrinterCommands.TEXT_WEIGHT_BOLD, new byte[]{'C'}), connection.takeSentBytes());
+    }
+}
@@ -0,0 +1,62 @@
+package com.dantsu.escposprinter.barcode;
+
+import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.EscPosPrinterSize;
+import com.dantsu.escposprinter.exceptions.EscPosBarcodeException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class Barcode128Test {
+
+    private static final EscPosPrinterSize PRINTER_SIZE = new EscPosPrinterSize(203, 48f, 32) {};
+
+    private static Barcode128 barcode(String data) throws EscPosBarcodeException {
+        return new Barcode128(Barcode128Test.PRINTER_SIZE, data, 0f, 10f, EscPosPrinterCommands.BARCODE_TEXT_POSITION_BELOW);
+    }
+
+    @Test
+    public void encode_packsDigitPairsInCodeSetC() throws Exception {
+        Barcode128 barcode = Barcode128Test.barcode("12345678");
+        assertEquals("{C\014\"8N", barcode.getCode());
+        // Start, 4 symbols, check : 11 modules each, then the stop symbol
+        assertEquals(6 * 11 + 13, barcode.getColsCount());
+        assertEquals("12345678", barcode.getHumanReadableText());
+    }
+
+    @Test
+    public void encode_switchesCodeSets() throws Exception {
+        // A digits run is worth the switch to code set C, an odd digit stays in code set B
+        Barcode128 barcode = Barcode128Test.barcode("ORDER-000123456789");
+        assertEquals("{BORDER-{C\000\001\027-CY", barcode.getCode());
+        assertEquals((1 + 6 + 1 + 6 + 1) * 11 + 13, barcode.getColsCount());
+
+        barcode = Barcode128Test.barcode("A1B2C3");
+        assertEquals("{BA1B2C3", barcode.getCode());
+
+        // A control character is shifted to code set A, "{" is doubled
+        barcode = Barcode128Test.barcode("ab\tc{");
+        assertEquals("{Bab{S\tc{{", barcode.getCode());
+        assertEquals((1 + 6 + 1) * 11 + 13, barcode.getColsCount());
+        assertEquals("abc{", barcode.getHumanReadableText());
+    }
+
+    @Test
+    public void encode_keepsEncodedData() throws Exception {
+        Barcode128 barcode = Barcode128Test.barcode("{BDantSu");
+        assertEquals("{BDantSu", barcode.getCode());
+        assertEquals(8 * 11 + 13, barcode.getColsCount());
+        assertEquals("DantSu", barcode.getHumanReadableText());
+    }
+
+    @Test(expected = EscPosBarcodeException.class)
+    public void encode_rejectsInvalidEncodedData() throws Exception {
+        Barcode128Test.barcode("{BDant{Su");
+    }
+
+    @Test(expected = EscPosBarcodeException.class)
+    public void encode_rejectsEmptyData() throws Exception {
+        Barcode128Test.barcode("");
+    }
+}
@@ -0,0 +1,139 @@
+package com.dantsu.escposprinter.dither;
+
+import com.dantsu.escposprinter.EscPosArgbImage;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class DitherAlgorithmTest {
+
+    private static EscPosArgbImage grayImage(int width, int height, int gray) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; ++i) {
+            pixels[i] = 0xFF000000 | gray << 16 | gray << 8 | gray;
+        }
+        return new EscPosArgbImage(width, height, pixels);
+    }
+
+    private static float blackRatio(byte[] imageBytes, int width, int height) {
+        int blackDots = 0;
+        for (int i = 8; i < imageBytes.length; ++i) {
+            blackDots += Integer.bitCount(imageBytes[i] & 0xFF);
+        }
+        return (float) blackDots / (width * height);
+    }
+
+    @Test
+    public void dither_preservesMeanGrayLevel() {
+        DitherAlgorithm[] ditherAlgorithms = {new DitherFloydSteinberg(), new DitherBayer(DitherBayer.SIZE_4), new DitherBayer(DitherBayer.SIZE_8)};
+        for (DitherAlgorithm ditherAlgorithm : ditherAlgorithms) {
+            for (int gray = 32; gray < 255; gray += 64) {
+                float ratio = DitherAlgorithmTest.blackRatio(ditherAlgorithm.convert(DitherAlgorithmTest.grayImage(64, 64, gray)), 64, 64);
+                assertEquals(ditherAlgorithm.getClass().getSimpleName() + " " + gray, 1f - gray / 255f, ratio, 0.07f);
+            }
+        }
+    }
+
+    @Test
+    public void atkinson_ditherMiddleGray() {
+        // Atkinson diffuses only 6/8 of the error : extreme gray levels are saturated on purpose.
+        float ratio = DitherAlgorithmTest.blackRatio(new DitherAtkinson().convert(DitherAlgorithmTest.grayImage(64, 64, 128)), 64, 64);
+        assertEquals(0.5f, ratio, 0.07f);
+    }
+
+    @Test
+    public void dither_keepsBlackAndWhite() {
+        DitherAlgorithm[] ditherAlgorithms = {new DitherFloydSteinberg(), new DitherAtkinson(), new DitherBayer(), new DitherOtsu(), new DitherThreshold()};
+        for (DitherAlgorithm ditherAlgorithm : ditherAlgorithms) {
+            assertEquals(1f, DitherAlgorithmTest.blackRatio(ditherAlgorithm.convert(DitherAlgorithmTest.grayImage(13, 7, 0)), 13, 7), 0f);
+            assertEquals(0f, DitherAlgorithmTest.blackRatio(ditherAlgorithm.convert(DitherAlgorithmTest.grayImage(13, 7, 255)), 13, 7), 0f);
+        }
+    }
+
+    @Test
+    public void dither_printsTransparentPixelsWhite() {
+        EscPosArgbImage image = new EscPosArgbImage(8, 1, new int[8]);
+        assertEquals(0, new DitherThreshold().convert(image)[8]);
+    }
+
+    @Test
+    public void otsu_separatesTwoClasses() {
+        int[] histogram = new int[256];
+        histogram[60] = 1000;
+        histogram[200] = 3000;
+        int threshold = DitherOtsu.computeThreshold(histogram);
+        assertTrue(threshold > 60 && threshold <= 200);
+    }
+
+    @Test
+    public void gammaContrast_changesGrayLevels() {
+        EscPosArgbImage image = DitherAlgorithmTest.grayImage(32, 32, 128);
+        float normal = DitherAlgorithmTest.blackRatio(new DitherBayer().convert(image), 32, 32);
+        float darker = DitherAlgorithmTest.blackRatio(new DitherBayer().setGamma(2f).convert(image), 32, 32);
+        float highContrast = DitherAlgorithmTest.blackRatio(new DitherBayer().setContrast(100f).convert(DitherAlgorithmTest.grayImage(32, 32, 100)), 32, 32);
+        assertTrue(darker > normal);
+        assertEquals(1f, highContrast, 0f);
+    }
+
+    @Test
+    public void convert_sameDotsInParallel() {
+        Random random = new Random(42);
+        int[] pixels = new int[100 * 300];
+        for (int i = 0; i < pixels.length; ++i) {
+            pixels[i] = random.nextInt();
+        }
+        EscPosArgbImage image = new EscPosArgbImage(100, 300, pixels);
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+
+        try {
+            DitherAlgorithm[] ditherAlgorithms = {new DitherClassic(true), new DitherFloydSteinberg(), new DitherAtkinson(), new DitherBayer(), new DitherOtsu()};
+            for (DitherAlgorithm ditherAlgorithm : ditherAlgorithms) {
+                assertTrue(ditherAlgorithm.getClass().getSimpleName(), Arrays.equals(ditherAlgorithm.convert(image), ditherAlgorithm.convert(image, executorService)));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void rasterImage_sameDotsAsConvert() {
+        Random random = new Random(7);
+        int[] pixels = new int[50 * 300];
+        for (int i = 0; i < pixels.length; ++i) {
+            pixels[i] = random.nextInt();
+        }
+        EscPosArgbImage image = new EscPosArgbImage(50, 300, pixels);
+
+        DitherAlgorithm[] ditherAlgorithms = {new DitherFloydSteinberg(), new DitherOtsu()};
+        for (DitherAlgorithm ditherAlgorithm : ditherAlgorithms) {
+            byte[] imageBytes = ditherAlgorithm.convert(image), rows = new byte[imageBytes.length];
+            DitherRasterImage rasterImage = new DitherRasterImage(image, ditherAlgorithm);
+            System.arraycopy(imageBytes, 0, rows, 0, 8);
+            for (int y = 0; y < 300; y += 24) {
+                rasterImage.readRows(y, Math.min(24, 300 - y), rows, 8 + y * rasterImage.getBytesByLine());
+            }
+            assertTrue(ditherAlgorithm.getClass().getSimpleName(), Arrays.equals(imageBytes, rows));
+        }
+    }
+
+    @Test
+    public void multiTone_encodesToneInPlanes() {
+        int[] grays = {255, 170, 85, 0};
+        for (int tone = 0; tone < 4; ++tone) {
+            DitherMultiToneImage image = new DitherMultiToneImage(DitherAlgorithmTest.grayImage(16, 8, grays[tone]), new DitherBayer());
+            byte[] highBits = new byte[16], lowBits = new byte[16];
+            image.readPlaneRows(0, 0, 8, highBits, 0);
+            image.readPlaneRows(1, 0, 8, lowBits, 0);
+            for (int i = 0; i < 16; ++i) {
+                assertEquals("tone " + tone, (tone & 2) != 0 ? (byte) 0xFF : 0, highBits[i]);
+                assertEquals("tone " + tone, (tone & 1) != 0 ? (byte) 0xFF : 0, lowBits[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.dantsu.escposprinter.textparser;
+
+import com.dantsu.escposprinter.EscPosPrinter;
+import com.dantsu.escposprinter.EscPosPrinterCommands;
+import com.dantsu.escposprinter.connection.DeviceConnection;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+public class PrinterTextParserImgTest {
+
+    /**
+     * Connection that keep the sent bytes.
+     */
+    private static class BufferConnection extends DeviceConnection {
+        private final ByteArrayOutputStream sentBytes = new ByteArrayOutputStream();
+
+        BufferConnection() {
+            this.outputStream = this.sentBytes;
+        }
+
+        @Override
+        public DeviceConnection connect() {
+            return this;
+        }
+
+        @Override
+        public DeviceConnection disconnect() {
+            return this;
+        }
+
+        @Override
+        public void send(int addWaitingTime) {
+            this.sentBytes.write(this.data, 0, this.data.length);
+            this.data = new byte[0];
+        }
+    }
+
+    private static PrinterTextParserImg parseImage(EscPosPrinter printer, CharSequence text) throws Exception {
+        PrinterTextParserLexer lexer = new PrinterTextParserLexer(text);
+        lexer.nextLine();
+        PrinterTextParserLine line = new PrinterTextParserLine(new PrinterTextParser(printer), lexer);
+        return (PrinterTextParserImg) line.getColumns()[0].getElements()[0];
+    }
+
+    @Test
+    public void print_decodesRowsFromText() throws Exception {
+        PrinterTextParserImgTest.BufferConnection connection = new PrinterTextParserImgTest.BufferConnection();
+        EscPosPrinter printer = new EscPosPrinter(connection, 203, 48f, 32);
+        StringBuilder text = new StringBuilder("[L]<img>1d76300001000200ff81</img>");
+        PrinterTextParserImg image = PrinterTextParserImgTest.parseImage(printer, text);
+
+        // The rows are not decoded while parsing, they are read from the text when the image is printed
+        text.replace(24, 28, "0f18");
+        image.print(new EscPosPrinterCommands(connection));
+        assertArrayEquals(new byte[]{
+            0x1D, 0x76, 0x30, 0x00, 1, 0, 2, 0, 0x0F, 0x18
+        }, connection.sentBytes.toByteArray());
+    }
+
+    @Test
+    public void print_insertsWhiteBytesToAlignImage() throws Exception {
+        PrinterTextParserImgTest.BufferConnection connection = new PrinterTextParserImgTest.BufferConnection();
+        EscPosPrinter printer = new EscPosPrinter(connection, 203, 48f, 32);
+        PrinterTextParserImg image = PrinterTextParserImgTest.parseImage(printer, "[R]<img>1d76300001000200ff81</img>");
+        image.print(new EscPosPrinterCommands(connection));
+
+        // 48mm at 203 DPI are 48 bytes, 47 white bytes are inserted before each row
+        byte[] expected = new byte[8 + 48 * 2];
+        System.arraycopy(new byte[]{0x1D, 0x76, 0x30, 0x00, 48, 0, 2, 0}, 0, expected, 0, 8);
+        expected[8 + 47] = (byte) 0xFF;
+        expected[8 + 48 + 47] = (byte) 0x81;
+        assertArrayEquals(expected, connection.sentBytes.toByteArray());
+    }
+
+    @Test
+    public void parse_rejectsMalformedHexadecimalData() throws Exception {
+        EscPosPrinter printer = new EscPosPrinter(new PrinterTextParserImgTest.BufferConnection(), 203, 48f, 32);
+        String[] texts = {
+            "[L]<img>1d7630000100</img>",
+            "[L]<img>1d76300001000200ff8</img>",
+            "[L]<img>1d76300001000200ff8g</img>",
+            "[L]<img>1d7630zz01000200ff81</img>",
+        };
+        for (String text : texts) {
+            try {
+                PrinterTextParserImgTest.parseImage(printer, text);
+                fail("NumberFormatException expected for " + text);
+            } catch (NumberFormatException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void parse_rejectsImageSmallerThanItsHeader() throws Exception {
+        PrinterTextParserImgTest.BufferConnection connection = new PrinterTextParserImgTest.BufferConnection();
+        EscPosPrinter printer = new EscPosPrinter(connection, 203, 48f, 32);
+        try {
+            // 65535 * 65535 * 2 hexadecimal characters don't fit in an int
+            printer.printFormattedText("[C]<img>1d763000ffffffff00</img>");
+            fail("NumberFormatException expected");
+        } catch (NumberFormatException e) {
+            // The image is rejected before anything is sent to the printer
+            assertEquals(0, connection.sentBytes.size());
+        }
+    }
+}
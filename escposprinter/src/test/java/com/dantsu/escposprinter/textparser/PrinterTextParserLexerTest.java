@@ -0,0 +1,148 @@
+package com.dantsu.escposprinter.textparser;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PrinterTextParserLexerTest {
+
+    /**
+     * CharSequence that count how many characters are read.
+     */
+    private static class CountingCharSequence implements CharSequence {
+        private final String text;
+        private long reads = 0;
+
+        CountingCharSequence(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return this.text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            ++this.reads;
+            return this.text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return this.text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return this.text;
+        }
+    }
+
+    private static final String[] FUZZ_PIECES = {
+        "<", ">", "[", "]", "L", "C", "R", "l", "/", "=", "'", "\"", " ", "\n", "\r", "a", "b", "u",
+        "<b>", "</b>", "<font size='big'>", "</font>", "<u type='double'>", "[L]", "[C]", "[R]", "<img>", "</img>"
+    };
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            text.append(FUZZ_PIECES[random.nextInt(FUZZ_PIECES.length)]);
+        }
+        return text.toString();
+    }
+
+    private static long lexAll(CharSequence text) {
+        PrinterTextParserLexer lexer = new PrinterTextParserLexer(text);
+        long nbrLines = 0;
+        int previousLineEnd = -1;
+        while (lexer.nextLine()) {
+            ++nbrLines;
+            int lineStart = lexer.getLineStart(), lineEnd = lexer.getLineEnd(), position = lineStart;
+            assertTrue(lineStart > previousLineEnd);
+            assertTrue(lineStart <= lineEnd);
+            for (int i = 0; i < lexer.getTokensCount(); ++i) {
+                int start = lexer.getTokenStart(i), end = lexer.getTokenEnd(i);
+                assertEquals(position, start);
+                assertTrue(start < end);
+                assertTrue(end <= lineEnd);
+                if (lexer.getTokenType(i) == PrinterTextParserLexer.TOKEN_TAG) {
+                    assertEquals('<', text.charAt(start));
+                    assertEquals('>', text.charAt(end - 1));
+                    lexer.getTagAttributes(i);
+                }
+                position = end;
+            }
+            assertEquals(lineEnd, position);
+            previousLineEnd = lineEnd;
+        }
+        return nbrLines;
+    }
+
+    @Test
+    public void lexer_splitsLinesLikeStringSplit() {
+        assertEquals(3, lexAll("a\nb\r\nc"));
+        assertEquals(1, lexAll("a\rb"));
+    }
+
+    @Test
+    public void lexer_readsTokens() {
+        PrinterTextParserLexer lexer = new PrinterTextParserLexer("[L]a <b>b</b> <font size='big' color=\"red\">c [R]d < e");
+        assertTrue(lexer.nextLine());
+        assertEquals(10, lexer.getTokensCount());
+        assertEquals(PrinterTextParserLexer.TOKEN_ALIGN, lexer.getTokenType(0));
+        assertEquals("a ", lexer.getTokenString(1));
+        assertTrue(lexer.isTagName(2, "b"));
+        assertFalse(lexer.isTagClose(2));
+        assertTrue(lexer.isTagClose(4));
+        assertEquals("big", lexer.getTagAttributes(6).get("size"));
+        assertEquals("red", lexer.getTagAttributes(6).get("color"));
+        assertEquals(PrinterTextParser.TAGS_ALIGN_RIGHT, lexer.getTokenAlign(8));
+        assertEquals("d < e", lexer.getTokenString(9));
+        assertFalse(lexer.nextLine());
+    }
+
+    @Test
+    public void lexer_readsSelfClosingTags() {
+        PrinterTextParserLexer lexer = new PrinterTextParserLexer("[C]<img ref='logo'/> <img/></b>");
+        assertTrue(lexer.nextLine());
+        assertEquals(5, lexer.getTokensCount());
+        assertTrue(lexer.isTagName(1, "img"));
+        assertTrue(lexer.isTagSelfClosing(1));
+        assertEquals("logo", lexer.getTagAttributes(1).get("ref"));
+        assertTrue(lexer.isTagName(3, "img"));
+        assertTrue(lexer.isTagSelfClosing(3));
+        assertTrue(lexer.isTagClose(4));
+        assertFalse(lexer.isTagSelfClosing(4));
+    }
+
+    @Test
+    public void lexer_fuzzNeverFails() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; ++i) {
+            lexAll(randomText(random, random.nextInt(200)));
+        }
+    }
+
+    @Test
+    public void lexer_isLinear() {
+        Random random = new Random(7);
+        String[] adversarialPieces = {"<", "<a ", "<a b='", "[", "[L", "=", "'"};
+        for (String piece : adversarialPieces) {
+            StringBuilder text = new StringBuilder();
+            while (text.length() < 200000) {
+                text.append(piece);
+            }
+            CountingCharSequence input = new CountingCharSequence(text.toString());
+            lexAll(input);
+            assertTrue(piece, input.reads <= 8L * input.length());
+        }
+        for (int i = 0; i < 20; ++i) {
+            CountingCharSequence input = new CountingCharSequence(randomText(random, 100000));
+            lexAll(input);
+            assertTrue(input.reads <= 8L * input.length());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.dantsu.escposprinter.textparser;
+
+import com.dantsu.escposprinter.EscPosPrinter;
+import com.dantsu.escposprinter.connection.DeviceConnection;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PrinterTextParserTest {
+
+    /**
+     * Connection that keep the sent bytes.
+     */
+    private static class BufferConnection extends DeviceConnection {
+        private final ByteArrayOutputStream sentBytes = new ByteArrayOutputStream();
+
+        BufferConnection() {
+            this.outputStream = this.sentBytes;
+        }
+
+        @Override
+        public DeviceConnection connect() {
+            return this;
+        }
+
+        @Override
+        public DeviceConnection disconnect() {
+            return this;
+        }
+
+        @Override
+        public void send(int addWaitingTime) {
+            this.sentBytes.write(this.data, 0, this.data.length);
+            this.data = new byte[0];
+        }
+    }
+
+    private static final String[] FORMAT_TAGS = {
+        "<b>", "</b>", "<u>", "<u type='double'>", "</u>", "<font size='big'>", "<font size='tall'>",
+        "<font color='bg-black'>", "</font>"
+    };
+
+    private static byte[] printParallel(String text, boolean parallel) throws Exception {
+        PrinterTextParserTest.BufferConnection connection = new PrinterTextParserTest.BufferConnection();
+        new EscPosPrinter(connection, 203, 48f, 32)
+            .useParallelParsing(parallel)
+            .printFormattedText(text);
+        return connection.sentBytes.toByteArray();
+    }
+
+    private static byte[] printReader(String text, boolean reader) throws Exception {
+        PrinterTextParserTest.BufferConnection connection = new PrinterTextParserTest.BufferConnection();
+        EscPosPrinter printer = new EscPosPrinter(connection, 203, 48f, 32);
+        if (reader) {
+            printer.printFormattedText(new StringReader(text));
+        } else {
+            printer.printFormattedText(text);
+        }
+        return connection.sentBytes.toByteArray();
+    }
+
+    @Test
+    public void parse_parallelPrintsSameBytesAsSequential() throws Exception {
+        Random random = new Random(29);
+        for (int n = 0; n < 20; ++n) {
+            // More than two blocks of 64 lines, the tags stay open across the block boundaries
+            StringBuilder text = new StringBuilder();
+            int nbrLines = 130 + random.nextInt(100);
+            for (int i = 0; i < nbrLines; ++i) {
+                text.append("[L]");
+                for (int j = random.nextInt(4); j > 0; --j) {
+                    text.append("line ").append(i);
+                    if (random.nextInt(3) == 0) {
+                        text.append(PrinterTextParserTest.FORMAT_TAGS[random.nextInt(PrinterTextParserTest.FORMAT_TAGS.length)]);
+                    }
+                }
+                if (random.nextInt(5) == 0) {
+                    text.append("[R]").append(PrinterTextParserTest.FORMAT_TAGS[random.nextInt(PrinterTextParserTest.FORMAT_TAGS.length)]).append("right");
+                }
+                text.append(random.nextInt(10) == 0 ? "\n\n" : "\n");
+            }
+
+            assertArrayEquals(
+                PrinterTextParserTest.printParallel(text.toString(), false),
+                PrinterTextParserTest.printParallel(text.toString(), true)
+            );
+        }
+    }
+
+    @Test
+    public void readLine_splitsLinesLongerThanBuffer() throws Exception {
+        PrinterTextParserReader reader = new PrinterTextParserReader(new StringReader("[L]a long first line\r\n[C]x\ry\n\n\r\n<b>last"), 4);
+        assertEquals("[L]a long first line", reader.readLine());
+        assertEquals("[C]x\ry", reader.readLine());
+        assertEquals("", reader.readLine());
+        assertEquals("", reader.readLine());
+        assertEquals("<b>last", reader.readLine());
+        assertNull(reader.readLine());
+        assertNull(reader.readLine());
+
+        reader = new PrinterTextParserReader(new StringReader("[L]line\n"), 4);
+        assertEquals("[L]line", reader.readLine());
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    public void printFormattedText_readerPrintsSameBytesAsString() throws Exception {
+        // A line longer than the 8192 characters buffer of the reader
+        StringBuilder longLine = new StringBuilder("[L]<u>");
+        while (longLine.length() < 20000) {
+            longLine.append("word ");
+        }
+
+        String[] texts = {
+            "[L]first<b>\r\n[C]second\r\n[R]third",
+            "[L]first\n[C]<font size='big'>second\n\n[R]third\n",
+            "[L]a\r\n" + longLine + "\r\n[R]<b>end</b>",
+            longLine.toString(),
+            "[C]x\ry\r\n",
+        };
+        for (String text : texts) {
+            assertArrayEquals(
+                PrinterTextParserTest.printReader(text, false),
+                PrinterTextParserTest.printReader(text, true)
+            );
+        }
+    }
+}